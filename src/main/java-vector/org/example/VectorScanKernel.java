@@ -0,0 +1,125 @@
+package org.example;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Scan kernel on the incubating Vector API.
+ *
+ * Each step loads one vector of bytes (32 with AVX2, 64 with AVX-512),
+ * classifies all of them with a handful of lane-wise compares and turns the
+ * result into two bit masks, one bit per byte: whitespace and line breaks. A
+ * word starts at every non-whitespace bit whose lower neighbour is whitespace,
+ * so a step counts its word starts with a shift, an and-not and a popcount, and
+ * only walks the line-break bits when there are any. The bytes after the last
+ * full vector go through the scalar kernel.
+ *
+ * Only compiled on Java 17+, and only usable when the JVM runs with
+ * {@code --add-modules jdk.incubator.vector}; see {@link ScanKernels}.
+ */
+final class VectorScanKernel implements ScanKernel {
+
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED.length() <= 64
+        ? ByteVector.SPECIES_PREFERRED
+        : ByteVector.SPECIES_64;
+    private static final int LANES = SPECIES.length();
+    private static final int LAST_LANE = LANES - 1;
+    private static final long LANE_BITS = LANES == 64 ? -1L : (1L << LANES) - 1;
+
+    VectorScanKernel() {
+        // Fail here, inside the reflective lookup, if vectors do not work on this JVM
+        ByteVector.zero(SPECIES).compare(VectorOperators.EQ, (byte) 0).toLong();
+    }
+
+    @Override
+    public void scan(byte[] buf, int off, int len, State state) {
+        boolean inWord = state.inWord;
+        int words = state.words;
+        int max = state.maxWords;
+        long lines = state.lines;
+
+        int i = off;
+        final int bound = off + SPECIES.loopBound(len);
+        for (; i < bound; i += LANES) {
+            ByteVector v = ByteVector.fromArray(SPECIES, buf, i);
+            long whitespace = whitespace(v).toLong();
+            long breaks = lineBreaks(v).toLong();
+
+            // Lane 0 continues the word of the previous step, if any
+            long starts = ~whitespace & LANE_BITS & ((whitespace << 1) | (inWord ? 0 : 1));
+            if (breaks != 0) {
+                lines += Long.bitCount(breaks);
+                do {
+                    long before = (breaks & -breaks) - 1;   // Lanes before the lowest remaining break
+                    words += Long.bitCount(starts & before);
+                    if (words > max) {
+                        max = words;
+                    }
+                    words = 0;
+                    starts &= ~before;
+                    breaks &= breaks - 1;
+                } while (breaks != 0);
+            }
+            words += Long.bitCount(starts);
+            inWord = (whitespace >>> LAST_LANE & 1) == 0;
+        }
+
+        state.inWord = inWord;
+        state.words = words;
+        state.maxWords = max;
+        state.lines = lines;
+        if (i < off + len) {
+            ScanKernels.SCALAR.scan(buf, i, off + len - i, state);
+        }
+    }
+
+    @Override
+    public int countWords(byte[] buf, int off, int len) {
+        int words = 0;
+        long previousWhitespace = 1;   // Before the range counts as whitespace
+        int i = off;
+        final int bound = off + SPECIES.loopBound(len);
+        for (; i < bound; i += LANES) {
+            long whitespace = whitespace(ByteVector.fromArray(SPECIES, buf, i)).toLong();
+            words += Long.bitCount(~whitespace & LANE_BITS & ((whitespace << 1) | previousWhitespace));
+            previousWhitespace = whitespace >>> LAST_LANE & 1;
+        }
+        if (i < off + len) {
+            // A word continuing from the last full vector is not counted again
+            int tail = ScanKernels.SCALAR.countWords(buf, i, off + len - i);
+            if (tail > 0 && previousWhitespace == 0 && !LineScanner.isWhitespace(buf[i])) {
+                tail--;
+            }
+            words += tail;
+        }
+        return words;
+    }
+
+    @Override
+    public int indexOfLineBreak(byte[] buf, int off, int len) {
+        int i = off;
+        final int bound = off + SPECIES.loopBound(len);
+        for (; i < bound; i += LANES) {
+            long breaks = lineBreaks(ByteVector.fromArray(SPECIES, buf, i)).toLong();
+            if (breaks != 0) {
+                return i + Long.numberOfTrailingZeros(breaks);
+            }
+        }
+        return ScanKernels.SCALAR.indexOfLineBreak(buf, i, off + len - i);
+    }
+
+    /**
+     * ' ' and '\t', '\n', '\u000B', '\f', '\r', which are 9 to 13.
+     */
+    private static VectorMask<Byte> whitespace(ByteVector v) {
+        return v.compare(VectorOperators.GT, (byte) 8)
+            .and(v.compare(VectorOperators.LT, (byte) 14))
+            .or(v.compare(VectorOperators.EQ, (byte) ' '));
+    }
+
+    private static VectorMask<Byte> lineBreaks(ByteVector v) {
+        return v.compare(VectorOperators.EQ, (byte) '\n').or(v.compare(VectorOperators.EQ, (byte) '\r'));
+    }
+}
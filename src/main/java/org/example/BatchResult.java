@@ -0,0 +1,89 @@
+package org.example;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Outcome of a batch job: the result of every file, in the order the files were
+ * given, and aggregates over all of them.
+ *
+ * Every per-file result is an ordinary {@link WordCountResult}; one with failed
+ * splits can be completed with
+ * {@link DistributedWordCount#retryFailed(WordCountResult)} on a processor for
+ * that file.
+ */
+final class BatchResult {
+
+    private final Map<String, WordCountResult> files;
+    private final LineAnalytics analytics;
+    private final int tasks;
+    private final long wallNanos;
+
+    BatchResult(Map<String, WordCountResult> files, LineAnalytics analytics, int tasks, long wallNanos) {
+        this.files = Collections.unmodifiableMap(new LinkedHashMap<>(files));
+        this.analytics = analytics;
+        this.tasks = tasks;
+        this.wallNanos = wallNanos;
+    }
+
+    Map<String, WordCountResult> files() {
+        return files;
+    }
+
+    WordCountResult file(String name) {
+        return files.get(name);
+    }
+
+    /**
+     * Maximum words on a single line of any file, among the completed splits.
+     */
+    int maxWords() {
+        int maxWords = 0;
+        for (WordCountResult result : files.values()) {
+            maxWords = Math.max(maxWords, result.maxWords());
+        }
+        return maxWords;
+    }
+
+    boolean isComplete() {
+        for (WordCountResult result : files.values()) {
+            if (!result.isComplete()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The requested line aggregates over all the files.
+     */
+    LineAnalytics analytics() {
+        return analytics;
+    }
+
+    long totalBytes() {
+        long total = 0;
+        for (WordCountResult result : files.values()) {
+            total += result.fileLength();
+        }
+        return total;
+    }
+
+    /**
+     * Number of remote calls the batch made, each paying the node startup once.
+     */
+    int tasks() {
+        return tasks;
+    }
+
+    long wallNanos() {
+        return wallNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResult{files=" + files.size() + ", maxWords=" + maxWords() + ", bytes=" + totalBytes()
+            + ", tasks=" + tasks + ", complete=" + isComplete() + "}";
+    }
+}
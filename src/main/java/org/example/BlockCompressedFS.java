@@ -0,0 +1,445 @@
+package org.example;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * DistributedFS view of the plain text held in a block-compressed file.
+ *
+ * The file is a sequence of independently deflated blocks of at most
+ * {@code blockSize} plain bytes, followed by an index of their compressed and
+ * plain lengths:
+ *
+ * <pre>
+ * header:  int magic, int version, int blockSize
+ * blocks:  one zlib stream per block
+ * index:   int count, then per block: int compressedLength, int length, boolean lineStart
+ * trailer: long indexOffset, int magic
+ * </pre>
+ *
+ * {@link #write} cuts a block after its last line break, so blocks start at
+ * line starts unless a line is longer than a block. {@link #plan} groups whole
+ * blocks into line-aligned splits, cut only at blocks that start a line: a
+ * node reads just the compressed bytes of its own blocks and inflates them as
+ * it scans, with one block's input buffer of memory. Offsets, lengths and
+ * {@link #getData(long)} are in plain bytes; only compressed bytes cross the
+ * network, counted by {@link #compressedBytesRead()}.
+ */
+final class BlockCompressedFS implements DistributedFS {
+
+    static final int DEFAULT_BLOCK_SIZE = 256 * 1024;
+
+    // Suffix of block-compressed files
+    static final String EXTENSION = ".wcz";
+
+    private static final int MAGIC = 0x57435a42; // "WCZB"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 12;
+    private static final int TRAILER_BYTES = 12;
+    private static final int INPUT_BUFFER_SIZE = 8192;
+
+    private final DistributedFS backing;
+    private final long compressedLength;
+    private final int blockSize;
+    private final int count;
+    private final long[] compressedOffsets; // count + 1 entries: the last one is the index offset
+    private final long[] offsets;           // count + 1 entries: the last one is the plain length
+    private final boolean[] lineStarts;
+    private final LongAdder compressedBytesRead;
+
+    private BlockCompressedFS(DistributedFS backing, long compressedLength, int blockSize, long[] compressedOffsets,
+                              long[] offsets, boolean[] lineStarts, LongAdder compressedBytesRead) {
+        this.backing = backing;
+        this.compressedLength = compressedLength;
+        this.blockSize = blockSize;
+        this.count = lineStarts.length;
+        this.compressedOffsets = compressedOffsets;
+        this.offsets = offsets;
+        this.lineStarts = lineStarts;
+        this.compressedBytesRead = compressedBytesRead;
+    }
+
+    /**
+     * Reads the header, trailer and block index of the block-compressed file {@code dfs}.
+     */
+    static BlockCompressedFS open(DistributedFS dfs) throws IOException {
+        long length = dfs.fileLength();
+        if (length < HEADER_BYTES + 4 + TRAILER_BYTES) {
+            throw new IOException("Not a block-compressed file: " + length + " bytes");
+        }
+        // Header and trailer in one round-trip
+        List<byte[]> ends = await(dfs.getDataVectored(
+            List.of(new FileRange(0, HEADER_BYTES), new FileRange(length - TRAILER_BYTES, TRAILER_BYTES))));
+        DataInputStream header = new DataInputStream(new ByteArrayInputStream(ends.get(0)));
+        DataInputStream trailer = new DataInputStream(new ByteArrayInputStream(ends.get(1)));
+        if (header.readInt() != MAGIC || header.readInt() != VERSION) {
+            throw new IOException("Not a block-compressed file of version " + VERSION);
+        }
+        int blockSize = header.readInt();
+        long indexOffset = trailer.readLong();
+        if (trailer.readInt() != MAGIC || indexOffset < HEADER_BYTES || indexOffset > length - TRAILER_BYTES - 4) {
+            throw new IOException("Block-compressed file has a damaged trailer");
+        }
+
+        byte[] indexBytes = await(dfs.getData(indexOffset, (int) (length - TRAILER_BYTES - indexOffset)));
+        DataInputStream index = new DataInputStream(new ByteArrayInputStream(indexBytes));
+        int count = index.readInt();
+        if (count < 0 || indexBytes.length != 4 + 9L * count) {
+            throw new IOException("Block-compressed file has a damaged index of " + count + " blocks");
+        }
+        long[] compressedOffsets = new long[count + 1];
+        long[] offsets = new long[count + 1];
+        boolean[] lineStarts = new boolean[count];
+        compressedOffsets[0] = HEADER_BYTES;
+        for (int i = 0; i < count; i++) {
+            compressedOffsets[i + 1] = compressedOffsets[i] + index.readInt();
+            offsets[i + 1] = offsets[i] + index.readInt();
+            lineStarts[i] = index.readBoolean();
+        }
+        if (compressedOffsets[count] != indexOffset) {
+            throw new IOException("Block index does not match the blocks: they end at " + compressedOffsets[count]
+                + ", the index starts at " + indexOffset);
+        }
+        return new BlockCompressedFS(dfs, length, blockSize, compressedOffsets, offsets, lineStarts, new LongAdder());
+    }
+
+    /**
+     * The same view reading its compressed bytes from {@code backing}, for example a read-ahead
+     * stream over the original; the compressed byte count is shared.
+     */
+    BlockCompressedFS over(DistributedFS backing) {
+        return new BlockCompressedFS(backing, compressedLength, blockSize, compressedOffsets, offsets, lineStarts,
+            compressedBytesRead);
+    }
+
+    DistributedFS backing() {
+        return backing;
+    }
+
+    /**
+     * Length of the block-compressed file itself.
+     */
+    long compressedLength() {
+        return compressedLength;
+    }
+
+    int blockSize() {
+        return blockSize;
+    }
+
+    int blockCount() {
+        return count;
+    }
+
+    /**
+     * Offset in the compressed file where the blocks holding the plain bytes before {@code offset} end.
+     */
+    long compressedEnd(long offset) {
+        if (offset <= 0 || count == 0) {
+            return HEADER_BYTES;
+        }
+        return compressedOffsets[blockAt(Math.min(offset, offsets[count]) - 1) + 1];
+    }
+
+    /**
+     * Compressed bytes read from the backing file so far, by this view and every view made with {@link #over}.
+     */
+    long compressedBytesRead() {
+        return compressedBytesRead.sum();
+    }
+
+    /**
+     * Length of the plain text.
+     */
+    @Override
+    public long fileLength() {
+        return offsets[count];
+    }
+
+    /**
+     * Streams the plain text from {@code offset}, reading the compressed file from the start of the
+     * block holding it.
+     */
+    @Override
+    public InputStream getData(long offset) {
+        if (offset >= offsets[count]) {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+        int block = blockAt(offset);
+        BlockStream stream = new BlockStream(backing.getData(compressedOffsets[block]), block);
+        try {
+            stream.discard(offset - offsets[block]);
+        } catch (IOException e) {
+            stream.close();
+            throw new UncheckedIOException("Error reading block " + block, e);
+        }
+        return stream;
+    }
+
+    /**
+     * Line-aligned splits of whole blocks, each holding about a split's worth of plain bytes,
+     * as many as byte splits of the plain text would be.
+     */
+    List<Split> plan(int numNodes, WordCountConfig config) {
+        long splitSize = SplitPlanner.splitSize(fileLength(), numNodes, config);
+        List<Split> splits = new ArrayList<>();
+        long start = 0;
+        for (int i = 1; i < count; i++) {
+            if (lineStarts[i] && offsets[i] - start >= splitSize) {
+                splits.add(new Split(splits.size(), start, offsets[i], true));
+                start = offsets[i];
+            }
+        }
+        if (start < fileLength()) {
+            splits.add(new Split(splits.size(), start, fileLength(), true));
+        }
+        return splits;
+    }
+
+    /**
+     * Converts the plain file {@code source} into a block-compressed file {@code target}, replacing it atomically.
+     */
+    static void compress(Path source, Path target, int blockSize) {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            try (InputStream in = Files.newInputStream(source);
+                 OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                write(in, out, blockSize);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error compressing " + source + " to " + target, e);
+        }
+    }
+
+    /**
+     * Writes the plain text read from {@code in} to {@code out} as a block-compressed file with blocks
+     * of at most {@code blockSize} plain bytes. Neither stream is closed.
+     */
+    static void write(InputStream in, OutputStream out, int blockSize) throws IOException {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("blockSize must be positive: " + blockSize);
+        }
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(blockSize);
+        long position = HEADER_BYTES;
+
+        ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+        DataOutputStream index = new DataOutputStream(indexBytes);
+        int count = 0;
+
+        byte[] block = new byte[blockSize];
+        byte[] compressed = new byte[INPUT_BUFFER_SIZE];
+        Deflater deflater = new Deflater();
+        try {
+            int filled = 0;
+            boolean eof = false;
+            boolean lineStart = true;
+            while (true) {
+                if (!eof) {
+                    filled += in.readNBytes(block, filled, blockSize - filled);
+                    eof = filled < blockSize;
+                }
+                if (filled == 0) {
+                    break;
+                }
+                int lineEnd = eof ? filled : lineCut(block, filled);
+                int cut = lineEnd > 0 ? lineEnd : filled;
+
+                deflater.setInput(block, 0, cut);
+                deflater.finish();
+                int compressedLength = 0;
+                while (!deflater.finished()) {
+                    int n = deflater.deflate(compressed);
+                    data.write(compressed, 0, n);
+                    compressedLength += n;
+                }
+                deflater.reset();
+                index.writeInt(compressedLength);
+                index.writeInt(cut);
+                index.writeBoolean(lineStart);
+                position += compressedLength;
+                count++;
+
+                // A line longer than a block continues in the next one
+                lineStart = lineEnd > 0;
+                System.arraycopy(block, cut, block, 0, filled - cut);
+                filled -= cut;
+            }
+        } finally {
+            deflater.end();
+        }
+
+        data.writeInt(count);
+        indexBytes.writeTo(data);
+        data.writeLong(position);
+        data.writeInt(MAGIC);
+        data.flush();
+    }
+
+    /**
+     * Converts the plain file named by the first argument into the block-compressed file named by the
+     * second, or by the first with {@link #EXTENSION} appended; the optional third argument is the block size.
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: BlockCompressedFS <plain file> [<target file> [<block size>]]");
+            return;
+        }
+        Path source = Paths.get(args[0]);
+        Path target = args.length > 1 ? Paths.get(args[1]) : source.resolveSibling(source.getFileName() + EXTENSION);
+        int blockSize = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_BLOCK_SIZE;
+        compress(source, target, blockSize);
+        System.out.println("Wrote " + target);
+    }
+
+    /**
+     * Position after the last line break of {@code buf[0, len)} that is known to end a line,
+     * or -1 if there is none. A '\r' in the last byte may be followed by a '\n' in the next block.
+     */
+    private static int lineCut(byte[] buf, int len) {
+        for (int i = len - 1; i >= 0; i--) {
+            if (buf[i] == '\n' || (buf[i] == '\r' && i < len - 1)) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Index of the block holding the plain byte at {@code offset}.
+     */
+    private int blockAt(long offset) {
+        int low = 0;
+        int high = count - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (offsets[mid] <= offset) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    private static <T> T await(CompletableFuture<T> read) throws IOException {
+        try {
+            return read.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Error reading block-compressed file", e.getCause());
+        }
+    }
+
+    /**
+     * Inflates consecutive blocks from a stream of the compressed file positioned at the start of one.
+     */
+    private final class BlockStream extends InputStream {
+        private final InputStream in;
+        private final Inflater inflater = new Inflater();
+        private final byte[] input = new byte[INPUT_BUFFER_SIZE];
+        private int block;
+        private long compressedLeft;
+
+        BlockStream(InputStream in, int block) {
+            this.in = in;
+            this.block = block;
+            this.compressedLeft = compressedOffsets[block + 1] - compressedOffsets[block];
+        }
+
+        void discard(long bytes) throws IOException {
+            byte[] scratch = new byte[(int) Math.min(INPUT_BUFFER_SIZE, Math.max(1, bytes))];
+            while (bytes > 0) {
+                int n = read(scratch, 0, (int) Math.min(scratch.length, bytes));
+                if (n < 0) {
+                    throw new EOFException("Block " + block + " ends early");
+                }
+                bytes -= n;
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (block < count) {
+                if (inflater.finished()) {
+                    long length = offsets[block + 1] - offsets[block];
+                    if (compressedLeft != 0 || inflater.getRemaining() != 0 || inflater.getBytesWritten() != length) {
+                        throw new IOException("Block " + block + " does not match the block index");
+                    }
+                    block++;
+                    inflater.reset();
+                    compressedLeft = block < count ? compressedOffsets[block + 1] - compressedOffsets[block] : 0;
+                    continue;
+                }
+                if (inflater.needsInput()) {
+                    if (compressedLeft == 0) {
+                        throw new IOException("Block " + block + " is truncated");
+                    }
+                    int n = in.read(input, 0, (int) Math.min(input.length, compressedLeft));
+                    if (n < 0) {
+                        throw new EOFException("File ends inside block " + block);
+                    }
+                    compressedLeft -= n;
+                    compressedBytesRead.add(n);
+                    inflater.setInput(input, 0, n);
+                }
+                try {
+                    int n = inflater.inflate(b, off, len);
+                    if (n > 0) {
+                        return n;
+                    }
+                    if (inflater.needsDictionary()) {
+                        throw new IOException("Block " + block + " needs a preset dictionary");
+                    }
+                } catch (DataFormatException e) {
+                    throw new IOException("Block " + block + " is corrupt", e);
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public void close() {
+            inflater.end();
+            try {
+                in.close();
+            } catch (IOException e) {
+                // Nothing is left to read from it
+            }
+        }
+    }
+}
@@ -0,0 +1,508 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * DistributedFS decorator that caches file metadata and data blocks.
+ *
+ * The file length is fetched once and then served from memory. Data is cached
+ * in fixed-size blocks aligned to multiples of the block size, held off-heap in
+ * direct buffers and evicted least-recently-used once the byte budget is
+ * reached. A reader that misses keeps one backend stream open and reads the
+ * following blocks from it, so a cold sequential scan still costs a single
+ * round-trip. Concurrent readers that miss on the same block share one
+ * in-flight fetch; each of them still counts as a miss.
+ *
+ * The direct buffers are allocated once, up to the byte budget, and recycled:
+ * a block is read from the backend straight into a pooled buffer through a
+ * channel, and an evicted block's buffer goes back to the pool once the last
+ * reader positioned in it moves on. Native memory therefore never exceeds the
+ * budget. When every buffer is in use by readers, a block is read on the heap
+ * for that reader only and not cached.
+ *
+ * Only full blocks are cached: the partial block at the end of the file may
+ * still grow, so it is always read from the backend. Readers stop at the
+ * cached file length; call {@link #invalidate()} when the file has changed.
+ *
+ * Ranged reads held entirely in cached blocks are served from memory; the
+ * others of a vectored read go to the backend together in one vectored call.
+ * They are counted per range and do not populate the cache.
+ *
+ * The engine does not use this class: its node caches ({@link NodeCache}) keep
+ * blocks per service ID. This is a standalone decorator for a caller that
+ * scans the same file repeatedly through one DistributedFS, for example by
+ * wrapping the file handed to {@link DistributedWordCount}.
+ */
+final class CachingDistributedFS implements DistributedFS {
+
+    static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+
+    private final DistributedFS backend;
+    private final int blockSize;
+    private final long capacityBytes;
+    private final int maxBuffers;
+
+    // Guarded by blocks. Access-ordered: iteration starts at the least recently used block
+    private final LinkedHashMap<Long, Block> blocks = new LinkedHashMap<>(16, 0.75f, true);
+    private final ArrayDeque<ByteBuffer> freeBuffers = new ArrayDeque<>();
+    private int allocatedBuffers;
+    private final ConcurrentHashMap<Long, CompletableFuture<Boolean>> inFlight = new ConcurrentHashMap<>();
+
+    private final Object lengthLock = new Object();
+    private volatile long fileLength = -1;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder sharedFetches = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    CachingDistributedFS(DistributedFS backend, long capacityBytes) {
+        this(backend, DEFAULT_BLOCK_SIZE, capacityBytes);
+    }
+
+    CachingDistributedFS(DistributedFS backend, int blockSize, long capacityBytes) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("blockSize must be positive: " + blockSize);
+        }
+        if (capacityBytes < 0) {
+            throw new IllegalArgumentException("capacityBytes must not be negative: " + capacityBytes);
+        }
+        this.backend = backend;
+        this.blockSize = blockSize;
+        this.capacityBytes = capacityBytes;
+        this.maxBuffers = (int) Math.min(Integer.MAX_VALUE, capacityBytes / blockSize);
+    }
+
+    @Override
+    public long fileLength() {
+        long length = fileLength;
+        if (length < 0) {
+            synchronized (lengthLock) {
+                length = fileLength;
+                if (length < 0) {
+                    length = backend.fileLength();
+                    fileLength = length;
+                }
+            }
+        }
+        return length;
+    }
+
+    @Override
+    public InputStream getData(long offset) {
+        return new CachedStream(offset);
+    }
+
+    @Override
+    public CompletableFuture<byte[]> getData(long offset, int length) {
+        return getDataVectored(List.of(new FileRange(offset, length))).thenApply(results -> results.get(0));
+    }
+
+    @Override
+    public CompletableFuture<List<byte[]>> getDataVectored(List<FileRange> ranges) {
+        byte[][] results = new byte[ranges.size()][];
+        List<FileRange> missed = new ArrayList<>();
+        List<Integer> missedAt = new ArrayList<>();
+        for (int i = 0; i < ranges.size(); i++) {
+            results[i] = readCached(ranges.get(i));
+            if (results[i] != null) {
+                hits.increment();
+            } else {
+                misses.increment();
+                missed.add(ranges.get(i));
+                missedAt.add(i);
+            }
+        }
+        if (missed.isEmpty()) {
+            return CompletableFuture.completedFuture(Arrays.asList(results));
+        }
+        return backend.getDataVectored(missed).thenApply(fetched -> {
+            for (int i = 0; i < fetched.size(); i++) {
+                results[missedAt.get(i)] = fetched.get(i);
+            }
+            return Arrays.asList(results);
+        });
+    }
+
+    /**
+     * Forgets the cached file length and all cached blocks, for example after the file was rewritten.
+     */
+    void invalidate() {
+        synchronized (lengthLock) {
+            fileLength = -1;
+        }
+        synchronized (blocks) {
+            for (Iterator<Block> cached = blocks.values().iterator(); cached.hasNext(); ) {
+                evict(cached.next());
+                cached.remove();
+            }
+        }
+    }
+
+    long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * Blocks and ranges read from the backend, including reads that shared another reader's fetch.
+     */
+    long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * Misses that waited for another reader's fetch of the same block instead of reading the backend.
+     */
+    long sharedFetches() {
+        return sharedFetches.sum();
+    }
+
+    long evictions() {
+        return evictions.sum();
+    }
+
+    long cachedBytes() {
+        synchronized (blocks) {
+            return (long) blocks.size() * blockSize;
+        }
+    }
+
+    /**
+     * Direct memory allocated for blocks, which never exceeds the byte budget.
+     */
+    long allocatedBytes() {
+        synchronized (blocks) {
+            return (long) allocatedBuffers * blockSize;
+        }
+    }
+
+    int blockSize() {
+        return blockSize;
+    }
+
+    /**
+     * The cached block {@code index}, pinned until {@link #unpin(Block)}, or null.
+     */
+    private Block pin(long index) {
+        synchronized (blocks) {
+            Block block = blocks.get(index);
+            if (block != null) {
+                block.readers++;
+            }
+            return block;
+        }
+    }
+
+    private void unpin(Block block) {
+        synchronized (blocks) {
+            block.readers--;
+            if (block.readers == 0 && block.evicted) {
+                freeBuffers.add(block.buffer);
+            }
+        }
+    }
+
+    /**
+     * Drops {@code block} from the cache; its buffer returns to the pool once nobody reads it.
+     */
+    private void evict(Block block) {
+        block.evicted = true;
+        if (block.readers == 0) {
+            freeBuffers.add(block.buffer);
+        }
+    }
+
+    /**
+     * A pooled buffer for a block, evicting the least recently used block nobody reads if the budget is all
+     * allocated, or null if every buffer is being read.
+     */
+    private ByteBuffer takeBuffer() {
+        synchronized (blocks) {
+            if (freeBuffers.isEmpty() && allocatedBuffers >= maxBuffers) {
+                for (Iterator<Block> eldest = blocks.values().iterator(); eldest.hasNext(); ) {
+                    Block block = eldest.next();
+                    if (block.readers == 0) {
+                        eldest.remove();
+                        evict(block);
+                        evictions.increment();
+                        break;
+                    }
+                }
+            }
+            ByteBuffer buffer = freeBuffers.poll();
+            if (buffer == null && allocatedBuffers < maxBuffers) {
+                allocatedBuffers++;
+                buffer = ByteBuffer.allocateDirect(blockSize);
+            }
+            if (buffer != null) {
+                buffer.clear();
+            }
+            return buffer;
+        }
+    }
+
+    private void returnBuffer(ByteBuffer buffer) {
+        synchronized (blocks) {
+            freeBuffers.add(buffer);
+        }
+    }
+
+    /**
+     * Caches the full block {@code index} read into a pooled buffer, pinned for the reader that read it.
+     */
+    private Block store(long index, ByteBuffer buffer) {
+        Block block = new Block(buffer);
+        block.readers = 1;
+        synchronized (blocks) {
+            if (blocks.containsKey(index)) {
+                // Read twice after an eviction race: this copy is only the reader's
+                block.evicted = true;
+            } else {
+                blocks.put(index, block);
+            }
+        }
+        return block;
+    }
+
+    /**
+     * The bytes of {@code range} if all the blocks it spans are cached, otherwise null.
+     */
+    private byte[] readCached(FileRange range) {
+        byte[] bytes = new byte[range.length()];
+        long position = range.offset();
+        int filled = 0;
+        while (filled < bytes.length) {
+            long index = position / blockSize;
+            Block block = pin(index);
+            if (block == null) {
+                return null;
+            }
+            try {
+                int skip = (int) (position - index * blockSize);
+                int n = Math.min(bytes.length - filled, block.buffer.limit() - skip);
+                block.buffer.duplicate().position(skip).get(bytes, filled, n);
+                filled += n;
+                position += n;
+            } finally {
+                unpin(block);
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * A cached block and the readers positioned in it.
+     */
+    private static final class Block {
+        final ByteBuffer buffer;
+        // Guarded by the cache's blocks
+        int readers;
+        boolean evicted;
+
+        Block(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+    }
+
+    /**
+     * Sequential stream over cached blocks, falling back to a backend stream on a miss.
+     */
+    private final class CachedStream extends InputStream {
+        private long position;
+        private ByteBuffer current;          // View of the block containing position, or null
+        private Block pinned;                // The cached block current views, or null
+        private InputStream backendStream;   // Open backend stream, positioned at backendPosition
+        private ReadableByteChannel backendChannel;
+        private long backendPosition;
+        private boolean eof;
+
+        CachedStream(long offset) {
+            this.position = offset;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (current == null || !current.hasRemaining()) {
+                if (eof || !loadBlock()) {
+                    eof = true;
+                    return -1;
+                }
+            }
+            int n = Math.min(len, current.remaining());
+            current.get(b, off, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            releaseCurrent();
+            closeBackend();
+        }
+
+        private void releaseCurrent() {
+            current = null;
+            if (pinned != null) {
+                unpin(pinned);
+                pinned = null;
+            }
+        }
+
+        /**
+         * Points {@code current} at the block containing {@code position}; false at end of file.
+         */
+        private boolean loadBlock() throws IOException {
+            // The block read so far can be evicted and its buffer reused from here on
+            releaseCurrent();
+
+            // Once the length is known, end of file needs no backend round-trip
+            long knownLength = fileLength;
+            if (knownLength >= 0 && position >= knownLength) {
+                return false;
+            }
+
+            long index = position / blockSize;
+            int skip = (int) (position - index * blockSize);
+
+            ByteBuffer data;
+            Block block = pin(index);
+            if (block != null) {
+                hits.increment();
+                pinned = block;
+                data = block.buffer;
+            } else {
+                data = fetch(index);
+                if (data != null) {
+                    misses.increment();
+                }
+            }
+            if (data == null || data.limit() <= skip) {
+                return false;
+            }
+            current = data.duplicate();
+            current.position(skip);
+            return true;
+        }
+
+        /**
+         * Block {@code index} from the backend, or from another reader's fetch of it; null past end of file.
+         */
+        private ByteBuffer fetch(long index) throws IOException {
+            CompletableFuture<Boolean> mine = new CompletableFuture<>();
+            CompletableFuture<Boolean> existing = inFlight.putIfAbsent(index, mine);
+            if (existing != null) {
+                // Another reader is already fetching this block: wait for it
+                sharedFetches.increment();
+                try {
+                    if (existing.join()) {
+                        Block shared = pin(index);
+                        if (shared != null) {
+                            pinned = shared;
+                            return shared.buffer;
+                        }
+                    }
+                } catch (CompletionException e) {
+                    // Fall through and fetch it ourselves
+                }
+                return readFromBackend(index);
+            }
+
+            try {
+                ByteBuffer data = readFromBackend(index);
+                mine.complete(pinned != null);
+                return data;
+            } catch (IOException | RuntimeException e) {
+                mine.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(index, mine);
+            }
+        }
+
+        /**
+         * Reads block {@code index} from the backend into a pooled buffer, caching and pinning it if it is
+         * full; null past end of file.
+         */
+        private ByteBuffer readFromBackend(long index) throws IOException {
+            long blockStart = index * blockSize;
+            if (backendStream != null && backendPosition != blockStart) {
+                closeBackend();
+            }
+            if (backendStream == null) {
+                backendStream = backend.getData(blockStart);
+                backendChannel = Channels.newChannel(backendStream);
+                backendPosition = blockStart;
+            }
+
+            // Take no buffer, which may evict a block, for a block that cannot be cached
+            int first = backendStream.read();
+            if (first < 0) {
+                return null;
+            }
+            long knownLength = fileLength;
+            ByteBuffer buffer = knownLength < 0 || blockStart + blockSize <= knownLength ? takeBuffer() : null;
+            if (buffer == null) {
+                // The tail block, or every buffer is being read: a copy for this reader only
+                buffer = ByteBuffer.allocate(blockSize);
+            }
+            buffer.put((byte) first);
+            while (buffer.hasRemaining() && backendChannel.read(buffer) >= 0) {
+                // Until the block is full or the file ends
+            }
+            backendPosition += buffer.position();
+            buffer.flip();
+
+            if (!buffer.isDirect()) {
+                return buffer.hasRemaining() ? buffer : null;
+            }
+            if (buffer.limit() < blockSize) {
+                // Partial tail block: served to this reader only, never cached
+                ByteBuffer tail = buffer.hasRemaining() ? ByteBuffer.allocate(buffer.limit()).put(buffer).flip() : null;
+                returnBuffer(buffer);
+                return tail;
+            }
+            pinned = store(index, buffer);
+            return buffer;
+        }
+
+        private void closeBackend() throws IOException {
+            if (backendStream != null) {
+                try {
+                    backendStream.close();
+                } finally {
+                    backendStream = null;
+                    backendChannel = null;
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CachingDistributedFS{hits=" + hits() + ", misses=" + misses() + " (" + sharedFetches() + " shared)"
+            + ", evictions=" + evictions() + ", cachedBytes=" + cachedBytes() + "/" + capacityBytes + "}";
+    }
+}
@@ -0,0 +1,56 @@
+package org.example;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * How an engine runs the local side of its remote calls.
+ *
+ * Every outstanding RemoteExecutor.run call blocks its dispatch thread for the
+ * whole remote startup and DFS I/O. A fixed pool bounds how many of those calls
+ * can be outstanding at once; virtual threads (Java 21+) make each blocked call
+ * cost a few hundred bytes of heap instead of a platform thread and its stack.
+ */
+enum DispatchMode {
+
+    /**
+     * A bounded pool of {@link WordCountConfig#dispatchThreads()} platform threads.
+     */
+    FIXED_POOL,
+
+    /**
+     * One virtual thread per task. Falls back to {@link #FIXED_POOL} on runtimes without virtual threads.
+     */
+    VIRTUAL_THREADS;
+
+    private static final Method NEW_VIRTUAL_THREAD_EXECUTOR = findVirtualThreadExecutorFactory();
+
+    static boolean virtualThreadsSupported() {
+        return NEW_VIRTUAL_THREAD_EXECUTOR != null;
+    }
+
+    /**
+     * Creates {@code Executors.newVirtualThreadPerTaskExecutor()}, looked up at runtime so the
+     * project still builds for older targets.
+     */
+    static ExecutorService newVirtualThreadExecutor() {
+        if (NEW_VIRTUAL_THREAD_EXECUTOR == null) {
+            throw new UnsupportedOperationException(
+                "Virtual threads require Java 21, running on " + System.getProperty("java.version"));
+        }
+        try {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_EXECUTOR.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create a virtual thread executor", e);
+        }
+    }
+
+    private static Method findVirtualThreadExecutorFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -3,13 +3,51 @@ package org.example;
 import java.io.*;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 
 interface DistributedFS {
     long fileLength();
     InputStream getData(long offset);
+
+    /**
+     * Reads up to {@code length} bytes from {@code offset}, fewer only at the end of the file.
+     * Backends should transfer only the requested bytes without blocking the caller; the
+     * default blocks on a getData stream.
+     */
+    default CompletableFuture<byte[]> getData(long offset, int length) {
+        CompletableFuture<byte[]> result = new CompletableFuture<>();
+        try (InputStream is = getData(offset)) {
+            result.complete(is.readNBytes(length));
+        } catch (IOException | RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * Reads several ranges, ideally in a single round-trip; the results are in the order of
+     * {@code ranges}. The default issues one ranged read per range.
+     */
+    default CompletableFuture<List<byte[]>> getDataVectored(List<FileRange> ranges) {
+        List<CompletableFuture<byte[]>> reads = new ArrayList<>();
+        for (FileRange range : ranges) {
+            reads.add(getData(range.offset(), range.length()));
+        }
+        return CompletableFuture.allOf(reads.toArray(new CompletableFuture<?>[0]))
+            .thenApply(ignored -> {
+                List<byte[]> results = new ArrayList<>();
+                for (CompletableFuture<byte[]> read : reads) {
+                    results.add(read.join());
+                }
+                return results;
+            });
+    }
+
     static DistributedFS getInstance() {
         // Implementation provided by the environment (MOCK at end of file)
         return DistributedFSImpl.getInstance(); 
@@ -36,176 +74,240 @@ class RemoteExecutor<T> {
 
 
 
-public class DistributedWordCount {
-    
-    // Total number of available compute nodes (1 to 100 inclusive)
-    private static final int NUM_NODES = 100;
-    
-    // The local thread pool should match the number of remote nodes to maximize parallelism
-    private static final int MAX_LOCAL_THREADS = NUM_NODES; 
+public class DistributedWordCount implements AutoCloseable {
     
     private final DistributedFS distributedFS;
-    private final ExecutorService executorService;
+    private final WordCountEngine engine;
+    private final boolean ownsEngine;
     
     public DistributedWordCount() {
         // Instantiate the (real or mock) DFS
-        this.distributedFS = DistributedFS.getInstance(); 
-        // Thread pool to manage the local threads calling the remote executor
-        this.executorService = Executors.newFixedThreadPool(MAX_LOCAL_THREADS);
+        this(DistributedFS.getInstance(), WordCountConfig.defaults());
+    }
+    
+    DistributedWordCount(DistributedFS distributedFS, WordCountConfig config) {
+        this(distributedFS, config, new RemoteExecutor<>());
+    }
+    
+    DistributedWordCount(DistributedFS distributedFS, WordCountConfig config, RemoteExecutor<Integer> remoteExecutor) {
+        this(distributedFS, new WordCountEngine(config, remoteExecutor), true);
+    }
+    
+    /**
+     * Runs jobs on a shared engine, which stays open when this instance is closed.
+     */
+    DistributedWordCount(DistributedFS distributedFS, WordCountEngine engine) {
+        this(distributedFS, engine, false);
+    }
+    
+    private DistributedWordCount(DistributedFS distributedFS, WordCountEngine engine, boolean ownsEngine) {
+        this.distributedFS = distributedFS;
+        this.engine = engine;
+        this.ownsEngine = ownsEngine;
     }
     
 
     public int findMaxWordsPerLine() {
-        try {
-            // Blocking call (100 ms on first call)
-            long fileLength = distributedFS.fileLength();
-            
-            // Calculate partition size to utilize all 100 nodes
-            long partitionSize = fileLength / NUM_NODES;
-            
-            // --- 1. Dispatch Tasks ---
-            List<CompletableFuture<Integer>> futures = new ArrayList<>();
-            
-            for (int i = 0; i < NUM_NODES; i++) {
-                final int nodeId = i + 1; // Service IDs 1 to 100
-                
-                // Calculate byte offsets for this node
-                final long startOffset = (long) i * partitionSize;
-                // Last node takes all remaining bytes to ensure no data is lost
-                final long endOffset = (i == NUM_NODES - 1) ? fileLength : startOffset + partitionSize;
-                final long length = endOffset - startOffset;
-                
-                // Submit the remote execution call to the local thread pool
-                CompletableFuture<Integer> future = CompletableFuture.supplyAsync(() -> {
-                    // This blocks the local thread until the remote node returns a result
-                    return processPartition(nodeId, startOffset, length, fileLength);
-                }, executorService);
-                
-                futures.add(future);
-            }
-            
-            // --- 2. Aggregate Results (Reduce Phase) ---
-            int maxWords = 0;
-            for (CompletableFuture<Integer> future : futures) {
-                try {
-                    int partitionMax = future.get(); // Blocks until a result is available
-                    maxWords = Math.max(maxWords, partitionMax);
-                } catch (InterruptedException | ExecutionException e) {
-                    // Log the error but continue aggregation (soft failure tolerance)
-                    System.err.println("Error processing partition: " + e.getMessage());
-                }
-            }
-            
-            return maxWords;
-            
-        } catch (Exception e) {
-            throw new RuntimeException("Error finding max words per line", e);
-        } finally {
-            executorService.shutdown();
+        WordCountResult result = run();
+        if (!result.isComplete()) {
+            throw new RuntimeException("Error finding max words per line: incomplete result " + result);
         }
+        return result.maxWords();
     }
 
-    private int processPartition(int nodeId, long startOffset, long length, long fileLength) {
-        // RemoteExecutor runs the Supplier (lambda) on the remote machine
-        return new RemoteExecutor<Integer>().run(nodeId, () -> {
-            
-            long maxWordsInChunk = 0;
-            long readOffset = startOffset;
-            
-            // --- CRITICAL BOUNDARY HANDLING ---
-            // If this is NOT the first partition (startOffset > 0), 
-            // we must advance the readOffset past the first partial line.
-            if (startOffset > 0 && startOffset < fileLength) {
-                try {
-                    // This helper method finds the first newline and returns the byte offset after it.
-                    readOffset = findNextLineStart(distributedFS, startOffset, fileLength);
-                } catch (IOException e) {
-                    System.err.println("Node " + nodeId + " failed boundary check: " + e.getMessage());
-                    return 0;
-                }
-            }
-            
-            
-            long bytesToRead = (startOffset + length > fileLength) ? fileLength - readOffset : (startOffset + length) - readOffset;
+    /**
+     * Like {@link #findMaxWordsPerLine()}, but only scans what was appended to the file since the
+     * result checkpointed in {@code store}, and checkpoints the new result there.
+     */
+    int findMaxWordsPerLine(SplitResultStore store) {
+        WordCountResult result = runIncremental(store);
+        if (!result.isComplete()) {
+            throw new RuntimeException("Error finding max words per line: incomplete result " + result);
+        }
+        return result.maxWords();
+    }
 
-            if (bytesToRead <= 0) {
-                 return 0; // Nothing left to read in this partition
+    /**
+     * Like {@link #findMaxWordsPerLine()}, on line-aligned splits planned from the line index kept in
+     * {@code indexFile}. A missing index is built in the same pass; an existing one is first extended
+     * to the current end of the file. Either way the index file is updated.
+     */
+    int findMaxWordsPerLine(Path indexFile) {
+        LineIndex index = LineIndex.load(indexFile);
+        WordCountResult result;
+        if (index == null) {
+            result = run(LineAnalytics.of(new LineIndex(engine.config().lineIndexInterval())));
+            if (result.isComplete()) {
+                index = result.analytics().get(LineIndex.class);
+                index.coverTo(result.fileLength());
             }
-            
-            // Get the stream starting from the corrected readOffset
-            try (InputStream is = distributedFS.getData(readOffset)) {
-                
-                InputStream limitedStream = new ByteArrayInputStream(
-                    is.readNBytes((int) bytesToRead), 0, (int) bytesToRead
-                );
+        } else {
+            index = updateLineIndex(index);
+            result = await(engine.submit(distributedFS, index, LineAnalytics.none()));
+        }
+        if (!result.isComplete()) {
+            throw new RuntimeException("Error finding max words per line: incomplete result " + result);
+        }
+        index.save(indexFile);
+        return result.maxWords();
+    }
 
-                try (BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(limitedStream, StandardCharsets.US_ASCII))) {
+    /**
+     * Extends {@code index} to the current end of the file, only scanning from where it can have changed.
+     */
+    LineIndex updateLineIndex(LineIndex index) {
+        WordCountResult result = await(engine.submitIndexUpdate(distributedFS, index));
+        if (!result.isComplete()) {
+            throw new RuntimeException("Error updating line index: incomplete result " + result);
+        }
+        return result.analytics().get(LineIndex.class);
+    }
 
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        int wordCount = countWordsInLine(line);
-                        maxWordsInChunk = Math.max(maxWordsInChunk, wordCount);
-                    }
+    /**
+     * Runs the job on line-aligned splits planned from {@code index}.
+     */
+    WordCountResult run(LineIndex index, LineAnalytics analytics) {
+        return await(engine.submit(distributedFS, index, analytics));
+    }
 
-                }
-            } catch (IOException e) {
-                throw new RuntimeException("Error reading chunk data on node " + nodeId, e);
-            }
-            
-            return (int) maxWordsInChunk;
-        });
+    /**
+     * The {@code k} lines with the most words, most first, with their byte offsets and lengths in the file.
+     */
+    List<LineAggregates.Line> findWidestLines(int k) {
+        WordCountResult result = run(LineAnalytics.of(LineAggregates.topLines(k)));
+        if (!result.isComplete()) {
+            throw new RuntimeException("Error finding widest lines: incomplete result " + result);
+        }
+        return result.analytics().get(LineAggregates.TopLines.class).lines();
     }
 
-    private long findNextLineStart(DistributedFS dfs, long offset, long totalLength) throws IOException {
-        long currentReadPos = offset;
-        
-        // We only check for a newline in the immediate vicinity of the boundary
-        try (InputStream is = dfs.getData(offset)) {
-            // We use a small, fixed buffer to find the first line break efficiently
-            byte[] buffer = new byte[1024]; 
-            int bytesRead;
+    /**
+     * Runs the job and reports which splits completed, instead of failing on the first lost split.
+     */
+    WordCountResult run() {
+        return run(LineAnalytics.none());
+    }
 
-            // Read small chunks until we find a newline or hit EOF
-            while ((bytesRead = is.read(buffer, 0, (int) Math.min(buffer.length, totalLength - currentReadPos))) != -1) {
-                for (int i = 0; i < bytesRead; i++) {
-                    if (buffer[i] == '\n' || buffer[i] == '\r') {
-                        // Return the position *after* the newline character
-                        return currentReadPos + i + 1; 
-                    }
-                }
-                currentReadPos += bytesRead;
-                if (currentReadPos >= totalLength) break;
-            }
+    /**
+     * Runs the job and computes the requested line aggregates in the same pass over the file.
+     */
+    WordCountResult run(LineAnalytics analytics) {
+        return await(engine.submit(distributedFS, analytics));
+    }
+
+    /**
+     * Starts the job without waiting for it: its running result is published to {@code listener}, which may
+     * be null, as every split finishes, and with sampling configured an early estimate is available from the
+     * returned job long before the exact answer. Cancelling the job stops the scan.
+     */
+    ProgressiveJob submitProgressive(LineAnalytics analytics, Consumer<JobProgress> listener) {
+        return engine.submitProgressive(distributedFS, analytics, listener);
+    }
+
+    /**
+     * Runs one job over many files, named by the keys of {@code files}, on this instance's engine; the
+     * file of this instance is not part of it unless listed. Small files are packed into shared tasks,
+     * and batches running at the same time share the nodes fairly.
+     */
+    BatchResult runBatch(Map<String, DistributedFS> files, LineAnalytics analytics) {
+        try {
+            return engine.submitBatch(files, analytics).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Error running batch", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error running batch", e.getCause());
         }
-        
-        return offset; 
     }
-    
 
-    private int countWordsInLine(String line) {
-        if (line == null || line.trim().isEmpty()) {
+    /**
+     * Runs the job over the plain text of this instance's file, which is block-compressed
+     * (see {@link BlockCompressedFS}); each node only fetches and inflates its own blocks.
+     */
+    WordCountResult runCompressed(LineAnalytics analytics) {
+        return await(engine.submitCompressed(distributedFS, analytics));
+    }
+
+    /**
+     * Runs the job incrementally against the split results checkpointed in {@code store}.
+     */
+    WordCountResult runIncremental(SplitResultStore store) {
+        return await(engine.submitIncremental(distributedFS, store));
+    }
+
+    /**
+     * Re-executes only the failed splits of an earlier result and merges the outcome into it.
+     */
+    WordCountResult retryFailed(WordCountResult previous) {
+        if (previous.isComplete()) {
+            return previous;
+        }
+        // The previous aggregates only serve as the request: every split starts from an empty copy
+        return previous.merge(await(engine.submit(distributedFS, previous.failedSplits(), previous.fileLength(),
+            previous.analytics())));
+    }
+
+    @Override
+    public void close() {
+        if (ownsEngine) {
+            engine.close();
+        }
+    }
+
+    private static WordCountResult await(CompletableFuture<WordCountResult> job) {
+        try {
+            return job.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Error finding max words per line", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error finding max words per line", e.getCause());
+        }
+    }
+
+    static int countWordsInLine(String line) {
+        if (line == null) {
             return 0;
         }
-        
-        // Split by one or more whitespace characters (\s+) and filter out empty strings
-        return (int) Arrays.stream(line.trim().split("\\s+"))
-                .filter(word -> !word.isEmpty())
-                .count();
+        byte[] bytes = line.getBytes(StandardCharsets.US_ASCII);
+        return LineScanner.countWords(bytes, 0, bytes.length);
     }
     
+    /**
+     * Counts the mock file, or the local file named by the first argument, which is memory-mapped
+     * and gets a line index next to it. A file ending in {@link BlockCompressedFS#EXTENSION} is read
+     * as block-compressed instead.
+     */
     public static void main(String[] args) {
         try {
-            // Set up a mock instance that will be used by DistributedFS.getInstance()
+            // Without an argument, use the mock instance returned by DistributedFS.getInstance()
             // The file content is mocked at the bottom of this file.
-            DistributedWordCount processor = new DistributedWordCount();
-            long startTime = System.currentTimeMillis();
-            
-            int maxWords = processor.findMaxWordsPerLine();
-            
-            long endTime = System.currentTimeMillis();
-            System.out.println("Maximum words per line: " + maxWords);
-            System.out.println("Total Processing time: " + (endTime - startTime) + " ms");
+            MappedFileDistributedFS localFile = args.length > 0 ? new MappedFileDistributedFS(Paths.get(args[0])) : null;
+            DistributedFS dfs = localFile != null ? localFile : DistributedFS.getInstance();
+            try (DistributedWordCount processor = new DistributedWordCount(dfs, WordCountConfig.defaults())) {
+                long startTime = System.currentTimeMillis();
+                
+                int maxWords;
+                if (localFile != null && args[0].endsWith(BlockCompressedFS.EXTENSION)) {
+                    WordCountResult result = processor.runCompressed(LineAnalytics.none());
+                    if (!result.isComplete()) {
+                        throw new RuntimeException("Error finding max words per line: incomplete result " + result);
+                    }
+                    maxWords = result.maxWords();
+                } else {
+                    maxWords = localFile != null
+                        ? processor.findMaxWordsPerLine(LineIndex.sidecarOf(localFile.path()))
+                        : processor.findMaxWordsPerLine();
+                }
+                
+                long endTime = System.currentTimeMillis();
+                System.out.println("Maximum words per line: " + maxWords);
+                System.out.println("Total Processing time: " + (endTime - startTime) + " ms");
+            } finally {
+                if (localFile != null) {
+                    localFile.close();
+                }
+            }
             
         } catch (Exception e) {
             System.err.println("Error processing file: " + e.getMessage());
@@ -260,6 +362,24 @@ class DistributedFSImpl implements DistributedFS {
         // Return a stream of the data from the offset to the end
         return new ByteArrayInputStream(mockData, start, mockData.length - start);
     }
+    
+    @Override
+    public CompletableFuture<byte[]> getData(long offset, int length) {
+        return getDataVectored(List.of(new FileRange(offset, length))).thenApply(results -> results.get(0));
+    }
+    
+    @Override
+    public CompletableFuture<List<byte[]>> getDataVectored(List<FileRange> ranges) {
+        // Simulate one 100ms round-trip for all the ranges, without blocking the caller
+        return CompletableFuture.supplyAsync(() -> {
+            List<byte[]> results = new ArrayList<>();
+            for (FileRange range : ranges) {
+                int start = (int) Math.min(range.offset(), mockData.length);
+                results.add(Arrays.copyOfRange(mockData, start, (int) Math.min(range.end(), mockData.length)));
+            }
+            return results;
+        }, CompletableFuture.delayedExecutor(100, TimeUnit.MILLISECONDS));
+    }
 }
 
 
@@ -0,0 +1,269 @@
+package org.example;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Cumulative instrumentation of a WordCountEngine, exported through JMX.
+ *
+ * Every finished job folds its {@link JobMetrics} in here; the counters are
+ * LongAdders so concurrent jobs never contend on them.
+ */
+final class EngineMetrics implements WordCountEngineMXBean {
+
+    private static final AtomicInteger ENGINE_IDS = new AtomicInteger();
+
+    private final IntSupplier activeJobs;
+    private final ReadGovernor reads;
+    private final LongAdder jobsCompleted = new LongAdder();
+    private final LongAdder incompleteJobs = new LongAdder();
+    private final LongAdder partitionsCompleted = new LongAdder();
+    private final LongAdder failedSplits = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder linesScanned = new LongAdder();
+    private final LongAdder dfsCalls = new LongAdder();
+    private final LongAdder speculativeAttempts = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder localPartitions = new LongAdder();
+    private final LongAdder nodeCacheHits = new LongAdder();
+    private final LongAdder nodeCacheMisses = new LongAdder();
+    private final ConcurrentHashMap<Integer, LongAdder> nodeBusyNanos = new ConcurrentHashMap<>();
+    private volatile JobMetrics lastJob = JobMetrics.empty();
+    private ObjectName registeredName;
+
+    EngineMetrics(IntSupplier activeJobs, ReadGovernor reads) {
+        this.activeJobs = activeJobs;
+        this.reads = reads;
+    }
+
+    void record(WordCountResult result) {
+        JobMetrics job = result.metrics();
+        jobsCompleted.increment();
+        if (!result.isComplete()) {
+            incompleteJobs.increment();
+        }
+        partitionsCompleted.add(job.partitions().size());
+        failedSplits.add(result.failedSplits().size());
+        bytesRead.add(job.bytesRead());
+        linesScanned.add(job.lines());
+        dfsCalls.add(job.dfsCalls());
+        speculativeAttempts.add(job.speculativeAttempts());
+        retries.add(job.retries());
+        localPartitions.add(job.localPartitions());
+        nodeCacheHits.add(job.cacheHits());
+        nodeCacheMisses.add(job.cacheMisses());
+        for (Map.Entry<Integer, Long> node : job.busyNanosByNode().entrySet()) {
+            nodeBusyNanos.computeIfAbsent(node.getKey(), id -> new LongAdder()).add(node.getValue());
+        }
+        lastJob = job;
+    }
+
+    JobMetrics lastJob() {
+        return lastJob;
+    }
+
+    /**
+     * Registers this object with the platform MBean server; failures are reported and otherwise ignored.
+     */
+    synchronized void register() {
+        try {
+            ObjectName name = new ObjectName("org.example:type=WordCountEngine,name=engine-" + ENGINE_IDS.incrementAndGet());
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+            registeredName = name;
+        } catch (JMException e) {
+            System.err.println("Could not register word count engine MBean: " + e);
+        }
+    }
+
+    synchronized void unregister() {
+        if (registeredName == null) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.unregisterMBean(registeredName);
+        } catch (JMException e) {
+            System.err.println("Could not unregister " + registeredName + ": " + e);
+        }
+        registeredName = null;
+    }
+
+    synchronized ObjectName objectName() {
+        return registeredName;
+    }
+
+    @Override
+    public int getActiveJobs() {
+        return activeJobs.getAsInt();
+    }
+
+    @Override
+    public long getJobsCompleted() {
+        return jobsCompleted.sum();
+    }
+
+    @Override
+    public long getIncompleteJobs() {
+        return incompleteJobs.sum();
+    }
+
+    @Override
+    public long getPartitionsCompleted() {
+        return partitionsCompleted.sum();
+    }
+
+    @Override
+    public long getFailedSplits() {
+        return failedSplits.sum();
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    @Override
+    public long getLinesScanned() {
+        return linesScanned.sum();
+    }
+
+    @Override
+    public long getDfsCalls() {
+        return dfsCalls.sum();
+    }
+
+    @Override
+    public long getSpeculativeAttempts() {
+        return speculativeAttempts.sum();
+    }
+
+    @Override
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    @Override
+    public long getLastJobWallMillis() {
+        return millis(lastJob.wallNanos());
+    }
+
+    @Override
+    public long getLastJobPartitionMillisP50() {
+        return millis(lastJob.partitionTime().p50());
+    }
+
+    @Override
+    public long getLastJobPartitionMillisP99() {
+        return millis(lastJob.partitionTime().p99());
+    }
+
+    @Override
+    public long getLastJobPartitionMillisMax() {
+        return millis(lastJob.partitionTime().max());
+    }
+
+    @Override
+    public long getLastJobQueueWaitMillisP99() {
+        return millis(lastJob.queueWait().p99());
+    }
+
+    @Override
+    public long getLastJobRemoteStartupMillisP99() {
+        return millis(lastJob.remoteStartup().p99());
+    }
+
+    @Override
+    public long getLastJobDfsLatencyMillisP50() {
+        return millis(lastJob.dfsLatency().p50());
+    }
+
+    @Override
+    public long getLastJobDfsLatencyMillisP99() {
+        return millis(lastJob.dfsLatency().p99());
+    }
+
+    @Override
+    public long getLastJobDfsLatencyMillisMax() {
+        return millis(lastJob.dfsLatency().max());
+    }
+
+    @Override
+    public long getLastJobComputeMillisP99() {
+        return millis(lastJob.compute().p99());
+    }
+
+    @Override
+    public long getLastJobAdmissionWaitMillisP99() {
+        return millis(lastJob.admissionWait().p99());
+    }
+
+    @Override
+    public long getReadBytesInFlight() {
+        return reads.bytesInFlight();
+    }
+
+    @Override
+    public long getReadAheadBytesInFlight() {
+        return reads.reservedBytesInFlight();
+    }
+
+    @Override
+    public long getPeakReadBytesInFlight() {
+        return reads.peakBytesInFlight();
+    }
+
+    @Override
+    public int getReadsInFlight() {
+        return reads.readsInFlight();
+    }
+
+    @Override
+    public long getReadAdmissionWaits() {
+        return reads.waits();
+    }
+
+    @Override
+    public long getReadAdmissionWaitMillis() {
+        return millis(reads.waitNanos());
+    }
+
+    @Override
+    public long getLocalPartitions() {
+        return localPartitions.sum();
+    }
+
+    @Override
+    public long getNodeCacheHits() {
+        return nodeCacheHits.sum();
+    }
+
+    @Override
+    public long getNodeCacheMisses() {
+        return nodeCacheMisses.sum();
+    }
+
+    @Override
+    public double getLastJobNodeCacheHitRate() {
+        return lastJob.cacheHitRate();
+    }
+
+    @Override
+    public Map<Integer, Long> getNodeBusyMillis() {
+        Map<Integer, Long> busy = new TreeMap<>();
+        nodeBusyNanos.forEach((node, nanos) -> busy.put(node, millis(nanos.sum())));
+        return busy;
+    }
+
+    private static long millis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+}
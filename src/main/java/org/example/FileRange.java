@@ -0,0 +1,35 @@
+package org.example;
+
+/**
+ * A byte range {@code [offset, offset + length)} of a file, for ranged and vectored reads.
+ */
+final class FileRange {
+
+    private final long offset;
+    private final int length;
+
+    FileRange(long offset, int length) {
+        if (offset < 0 || length < 0) {
+            throw new IllegalArgumentException("Invalid range " + offset + "+" + length);
+        }
+        this.offset = offset;
+        this.length = length;
+    }
+
+    long offset() {
+        return offset;
+    }
+
+    int length() {
+        return length;
+    }
+
+    long end() {
+        return offset + length;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + offset + ", " + end() + ")";
+    }
+}
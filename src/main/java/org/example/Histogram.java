@@ -0,0 +1,75 @@
+package org.example;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Distribution summary of a set of durations or sizes, using nearest-rank percentiles.
+ */
+final class Histogram {
+
+    private static final Histogram EMPTY = new Histogram(new long[0]);
+
+    private final long[] sorted;
+
+    private Histogram(long[] sorted) {
+        this.sorted = sorted;
+    }
+
+    static Histogram of(long[] values) {
+        if (values.length == 0) {
+            return EMPTY;
+        }
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return new Histogram(sorted);
+    }
+
+    int count() {
+        return sorted.length;
+    }
+
+    /**
+     * Smallest value such that at least {@code quantile} of all values are less than or equal to it; 0 when empty.
+     */
+    long percentile(double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(quantile * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)];
+    }
+
+    long p50() {
+        return percentile(0.5);
+    }
+
+    long p99() {
+        return percentile(0.99);
+    }
+
+    long max() {
+        return sorted.length == 0 ? 0 : sorted[sorted.length - 1];
+    }
+
+    long sum() {
+        long sum = 0;
+        for (long value : sorted) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    /**
+     * Formats the summary assuming the values are nanoseconds.
+     */
+    String toMillisString() {
+        return "{p50=" + TimeUnit.NANOSECONDS.toMillis(p50()) + "ms, p99=" + TimeUnit.NANOSECONDS.toMillis(p99())
+            + "ms, max=" + TimeUnit.NANOSECONDS.toMillis(max()) + "ms}";
+    }
+
+    @Override
+    public String toString() {
+        return "{count=" + count() + ", p50=" + p50() + ", p99=" + p99() + ", max=" + max() + "}";
+    }
+}
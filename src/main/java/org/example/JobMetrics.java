@@ -0,0 +1,189 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+/**
+ * Instrumentation of one word count job: the metrics of every completed split
+ * plus job-wide counters, summarised as p50/p99/max histograms and per-node totals.
+ */
+final class JobMetrics {
+
+    private static final JobMetrics EMPTY = new JobMetrics(Collections.emptyList(), 0, 0, 0);
+
+    private final List<PartitionMetrics> partitions;
+    private final long wallNanos;
+    private final int speculativeAttempts;
+    private final int retries;
+
+    JobMetrics(List<PartitionMetrics> partitions, long wallNanos, int speculativeAttempts, int retries) {
+        List<PartitionMetrics> copy = new ArrayList<>(partitions);
+        copy.sort(Comparator.comparingLong(m -> m.split().start()));
+        this.partitions = Collections.unmodifiableList(copy);
+        this.wallNanos = wallNanos;
+        this.speculativeAttempts = speculativeAttempts;
+        this.retries = retries;
+    }
+
+    /**
+     * Metrics of a result that was not produced by a tracked job.
+     */
+    static JobMetrics empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Combines the metrics of a job with those of a follow-up job over its failed splits.
+     */
+    JobMetrics plus(JobMetrics other) {
+        List<PartitionMetrics> all = new ArrayList<>(partitions);
+        all.addAll(other.partitions);
+        return new JobMetrics(all, wallNanos + other.wallNanos,
+            speculativeAttempts + other.speculativeAttempts, retries + other.retries);
+    }
+
+    List<PartitionMetrics> partitions() {
+        return partitions;
+    }
+
+    long wallNanos() {
+        return wallNanos;
+    }
+
+    int speculativeAttempts() {
+        return speculativeAttempts;
+    }
+
+    int retries() {
+        return retries;
+    }
+
+    long bytesRead() {
+        return histogram(PartitionMetrics::bytesRead).sum();
+    }
+
+    long lines() {
+        return histogram(PartitionMetrics::lines).sum();
+    }
+
+    int dfsCalls() {
+        return (int) histogram(PartitionMetrics::dfsCalls).sum();
+    }
+
+    /**
+     * Number of splits that ran on the service ID that completed them in an earlier job.
+     */
+    int localPartitions() {
+        int local = 0;
+        for (PartitionMetrics partition : partitions) {
+            if (partition.local()) {
+                local++;
+            }
+        }
+        return local;
+    }
+
+    long cacheHits() {
+        return histogram(PartitionMetrics::cacheHits).sum();
+    }
+
+    long cacheMisses() {
+        return histogram(PartitionMetrics::cacheMisses).sum();
+    }
+
+    /**
+     * Fraction of the blocks read through node-local caches that were cached, or 0 if none were.
+     */
+    double cacheHitRate() {
+        long hits = cacheHits();
+        long total = hits + cacheMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    Histogram queueWait() {
+        return histogram(PartitionMetrics::queueWaitNanos);
+    }
+
+    Histogram remoteStartup() {
+        return histogram(PartitionMetrics::remoteStartupNanos);
+    }
+
+    Histogram admissionWait() {
+        return histogram(PartitionMetrics::admissionWaitNanos);
+    }
+
+    Histogram dfsLatency() {
+        return histogram(PartitionMetrics::dfsLatencyNanos);
+    }
+
+    Histogram readWait() {
+        return histogram(PartitionMetrics::readWaitNanos);
+    }
+
+    Histogram compute() {
+        return histogram(PartitionMetrics::computeNanos);
+    }
+
+    Histogram partitionTime() {
+        return histogram(PartitionMetrics::totalNanos);
+    }
+
+    Histogram bytesPerPartition() {
+        return histogram(PartitionMetrics::bytesRead);
+    }
+
+    /**
+     * Splits that took more than {@code multiplier} times the median partition time, slowest first.
+     */
+    List<PartitionMetrics> stragglers(double multiplier) {
+        long threshold = (long) (partitionTime().p50() * multiplier);
+        List<PartitionMetrics> slow = new ArrayList<>();
+        for (PartitionMetrics partition : partitions) {
+            if (partition.totalNanos() > threshold) {
+                slow.add(partition);
+            }
+        }
+        slow.sort(Comparator.comparingLong(PartitionMetrics::totalNanos).reversed());
+        return slow;
+    }
+
+    /**
+     * Time each service ID spent on the completed splits of this job, by service ID.
+     */
+    Map<Integer, Long> busyNanosByNode() {
+        Map<Integer, Long> busy = new TreeMap<>();
+        for (PartitionMetrics partition : partitions) {
+            busy.merge(partition.serviceId(), partition.totalNanos(), Long::sum);
+        }
+        return busy;
+    }
+
+    private Histogram histogram(ToLongFunction<PartitionMetrics> metric) {
+        long[] values = new long[partitions.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = metric.applyAsLong(partitions.get(i));
+        }
+        return Histogram.of(values);
+    }
+
+    @Override
+    public String toString() {
+        return "JobMetrics{wall=" + TimeUnit.NANOSECONDS.toMillis(wallNanos) + "ms"
+            + ", partitions=" + partitions.size()
+            + ", bytes=" + bytesRead() + ", lines=" + lines()
+            + ", local=" + localPartitions() + ", cacheHitRate=" + String.format("%.2f", cacheHitRate())
+            + ", queueWait=" + queueWait().toMillisString()
+            + ", remoteStartup=" + remoteStartup().toMillisString()
+            + ", admissionWait=" + admissionWait().toMillisString()
+            + ", dfsLatency=" + dfsLatency().toMillisString()
+            + ", compute=" + compute().toMillisString()
+            + ", partitionTime=" + partitionTime().toMillisString()
+            + ", speculativeAttempts=" + speculativeAttempts + ", retries=" + retries + "}";
+    }
+}
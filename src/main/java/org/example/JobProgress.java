@@ -0,0 +1,100 @@
+package org.example;
+
+import java.util.function.Supplier;
+
+/**
+ * Snapshot of a running job: the result over the splits finished so far and how much of the file they cover.
+ *
+ * The max words of a snapshot is a lower bound of the exact answer, reached
+ * once the snapshot is final. The running totals are taken when the snapshot
+ * is; the full {@link #result()}, with its split lists and metrics, is only
+ * built once asked for.
+ */
+final class JobProgress {
+
+    private final long fileLength;
+    private final int maxWords;
+    private final int finishedSplits;
+    private final int totalSplits;
+    private final long coveredBytes;
+    private final long lines;
+    private Supplier<WordCountResult> resultSource;   // Null once the result is built
+    private WordCountResult result;
+
+    JobProgress(WordCountResult result, int totalSplits) {
+        this(result.fileLength(), result.maxWords(), result.completedSplits().size() + result.failedSplits().size(),
+            totalSplits, result.coveredBytes(), result.metrics().lines(), null);
+        this.result = result;
+    }
+
+    /**
+     * A snapshot of the given running totals, whose result comes from {@code resultSource} when first asked for.
+     */
+    JobProgress(long fileLength, int maxWords, int finishedSplits, int totalSplits, long coveredBytes, long lines,
+                Supplier<WordCountResult> resultSource) {
+        this.fileLength = fileLength;
+        this.maxWords = maxWords;
+        this.finishedSplits = finishedSplits;
+        this.totalSplits = totalSplits;
+        this.coveredBytes = coveredBytes;
+        this.lines = lines;
+        this.resultSource = resultSource;
+    }
+
+    /**
+     * Result over the splits finished so far; the splits not listed are still running or queued.
+     */
+    synchronized WordCountResult result() {
+        if (resultSource != null) {
+            result = resultSource.get();
+            resultSource = null;
+        }
+        return result;
+    }
+
+    int maxWords() {
+        return maxWords;
+    }
+
+    int finishedSplits() {
+        return finishedSplits;
+    }
+
+    int totalSplits() {
+        return totalSplits;
+    }
+
+    /**
+     * Whether every split has finished, so that {@link #result()} is the job's result.
+     */
+    boolean isFinal() {
+        return finishedSplits() == totalSplits;
+    }
+
+    /**
+     * Fraction of the bytes of the file that the completed splits cover.
+     */
+    double coverage() {
+        return fileLength == 0 ? 1 : (double) coveredBytes / fileLength;
+    }
+
+    /**
+     * Lines counted so far.
+     */
+    long lines() {
+        return lines;
+    }
+
+    /**
+     * Lines in the whole file, extrapolated from the lines per byte of the completed splits.
+     */
+    long estimatedTotalLines() {
+        return coveredBytes == 0 ? 0 : Math.round((double) lines * fileLength / coveredBytes);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("JobProgress{maxWords=%d, splits=%d/%d, coverage=%.1f%%, lines=%d}",
+            maxWords(), finishedSplits(), totalSplits, 100 * coverage(), lines());
+    }
+}
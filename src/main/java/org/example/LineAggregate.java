@@ -0,0 +1,31 @@
+package org.example;
+
+/**
+ * Mergeable per-line statistic, computed in the same pass as the word count.
+ *
+ * Each split folds its lines into its own instance (created with
+ * {@link #newEmpty()}), and the reduce phase merges the partial results.
+ * Retried splits are merged in after the others, so {@link #merge} must be
+ * associative and commutative, and merging an empty instance must not change
+ * the result.
+ *
+ * @param <A> the implementing type
+ */
+interface LineAggregate<A extends LineAggregate<A>> {
+
+    /**
+     * Folds in the line starting at byte {@code offset} of the file, with {@code words}
+     * words and {@code lineBytes} bytes, excluding the line break.
+     */
+    void accept(long offset, int words, long lineBytes);
+
+    /**
+     * Folds the partial result of another part of the file into this one.
+     */
+    void merge(A other);
+
+    /**
+     * A fresh, empty aggregate of the same kind and settings.
+     */
+    A newEmpty();
+}
@@ -0,0 +1,332 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * The built-in line aggregates.
+ */
+final class LineAggregates {
+
+    private LineAggregates() {
+    }
+
+    static MaxWords maxWords() {
+        return new MaxWords();
+    }
+
+    static TotalWords totalWords() {
+        return new TotalWords();
+    }
+
+    static LineCount lineCount() {
+        return new LineCount();
+    }
+
+    static WordsPerLineHistogram wordsPerLineHistogram() {
+        return new WordsPerLineHistogram();
+    }
+
+    static MaxLineBytes maxLineBytes() {
+        return new MaxLineBytes();
+    }
+
+    static TopLines topLines(int k) {
+        return new TopLines(k);
+    }
+
+    /**
+     * Maximum number of words on a single line.
+     */
+    static final class MaxWords implements LineAggregate<MaxWords> {
+        private int value;
+
+        @Override
+        public void accept(long offset, int words, long lineBytes) {
+            if (words > value) {
+                value = words;
+            }
+        }
+
+        @Override
+        public void merge(MaxWords other) {
+            value = Math.max(value, other.value);
+        }
+
+        @Override
+        public MaxWords newEmpty() {
+            return new MaxWords();
+        }
+
+        int value() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return "maxWords=" + value;
+        }
+    }
+
+    /**
+     * Number of words in the file.
+     */
+    static final class TotalWords implements LineAggregate<TotalWords> {
+        private long value;
+
+        @Override
+        public void accept(long offset, int words, long lineBytes) {
+            value += words;
+        }
+
+        @Override
+        public void merge(TotalWords other) {
+            value += other.value;
+        }
+
+        @Override
+        public TotalWords newEmpty() {
+            return new TotalWords();
+        }
+
+        long value() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return "totalWords=" + value;
+        }
+    }
+
+    /**
+     * Number of lines in the file, empty lines included.
+     */
+    static final class LineCount implements LineAggregate<LineCount> {
+        private long value;
+
+        @Override
+        public void accept(long offset, int words, long lineBytes) {
+            value++;
+        }
+
+        @Override
+        public void merge(LineCount other) {
+            value += other.value;
+        }
+
+        @Override
+        public LineCount newEmpty() {
+            return new LineCount();
+        }
+
+        long value() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return "lineCount=" + value;
+        }
+    }
+
+    /**
+     * Exact number of lines for every words-per-line value.
+     */
+    static final class WordsPerLineHistogram implements LineAggregate<WordsPerLineHistogram> {
+        private long[] counts = new long[64];
+
+        @Override
+        public void accept(long offset, int words, long lineBytes) {
+            if (words >= counts.length) {
+                counts = Arrays.copyOf(counts, Math.max(words + 1, counts.length * 2));
+            }
+            counts[words]++;
+        }
+
+        @Override
+        public void merge(WordsPerLineHistogram other) {
+            if (other.counts.length > counts.length) {
+                counts = Arrays.copyOf(counts, other.counts.length);
+            }
+            for (int words = 0; words < other.counts.length; words++) {
+                counts[words] += other.counts[words];
+            }
+        }
+
+        @Override
+        public WordsPerLineHistogram newEmpty() {
+            return new WordsPerLineHistogram();
+        }
+
+        /**
+         * Number of lines with exactly {@code words} words.
+         */
+        long lines(int words) {
+            return words < counts.length ? counts[words] : 0;
+        }
+
+        /**
+         * Non-zero buckets, by words per line.
+         */
+        Map<Integer, Long> asMap() {
+            Map<Integer, Long> map = new TreeMap<>();
+            for (int words = 0; words < counts.length; words++) {
+                if (counts[words] > 0) {
+                    map.put(words, counts[words]);
+                }
+            }
+            return Collections.unmodifiableMap(map);
+        }
+
+        @Override
+        public String toString() {
+            return "wordsPerLine=" + asMap();
+        }
+    }
+
+    /**
+     * Length in bytes of the longest line, excluding its line break.
+     */
+    static final class MaxLineBytes implements LineAggregate<MaxLineBytes> {
+        private long value;
+
+        @Override
+        public void accept(long offset, int words, long lineBytes) {
+            if (lineBytes > value) {
+                value = lineBytes;
+            }
+        }
+
+        @Override
+        public void merge(MaxLineBytes other) {
+            value = Math.max(value, other.value);
+        }
+
+        @Override
+        public MaxLineBytes newEmpty() {
+            return new MaxLineBytes();
+        }
+
+        long value() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return "maxLineBytes=" + value;
+        }
+    }
+
+    /**
+     * The {@code k} lines with the most words, with their byte offsets in the file.
+     *
+     * Every partial keeps a min-heap bounded to {@code k} entries, so memory does not
+     * grow with the file and merging partials costs O(k log k). Lines with the same
+     * number of words are ranked by offset, earliest first, which makes the result
+     * independent of how the file was split.
+     */
+    static final class TopLines implements LineAggregate<TopLines> {
+        // Worst line first: fewest words, then latest offset
+        private static final Comparator<Line> WORST_FIRST = Comparator.comparingInt(Line::words)
+            .thenComparing(Comparator.comparingLong(Line::offset).reversed());
+
+        private final int k;
+        private final PriorityQueue<Line> heap;
+
+        TopLines(int k) {
+            if (k <= 0) {
+                throw new IllegalArgumentException("k must be positive: " + k);
+            }
+            this.k = k;
+            this.heap = new PriorityQueue<>(Math.min(k, 1024) + 1, WORST_FIRST);
+        }
+
+        @Override
+        public void accept(long offset, int words, long lineBytes) {
+            // Most lines lose against a full heap: decide without allocating
+            if (heap.size() == k) {
+                Line worst = heap.peek();
+                if (words < worst.words() || (words == worst.words() && offset > worst.offset())) {
+                    return;
+                }
+            }
+            offer(new Line(offset, lineBytes, words));
+        }
+
+        @Override
+        public void merge(TopLines other) {
+            for (Line line : other.heap) {
+                offer(line);
+            }
+        }
+
+        @Override
+        public TopLines newEmpty() {
+            return new TopLines(k);
+        }
+
+        int k() {
+            return k;
+        }
+
+        /**
+         * The retained lines, most words first, ties by offset.
+         */
+        List<Line> lines() {
+            List<Line> lines = new ArrayList<>(heap);
+            lines.sort(WORST_FIRST.reversed());
+            return Collections.unmodifiableList(lines);
+        }
+
+        private void offer(Line line) {
+            heap.add(line);
+            if (heap.size() > k) {
+                heap.poll();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "topLines=" + lines();
+        }
+    }
+
+    /**
+     * A line of the file: its absolute byte offset, its length in bytes excluding the line break, and its words.
+     */
+    static final class Line {
+        private final long offset;
+        private final long length;
+        private final int words;
+
+        Line(long offset, long length, int words) {
+            this.offset = offset;
+            this.length = length;
+            this.words = words;
+        }
+
+        long offset() {
+            return offset;
+        }
+
+        long length() {
+            return length;
+        }
+
+        int words() {
+            return words;
+        }
+
+        @Override
+        public String toString() {
+            return words + " words @" + offset + "+" + length;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A set of {@link LineAggregate}s computed together in one pass over the file.
+ *
+ * The instance passed to a job is a request: every split gets an empty copy
+ * from {@link #newEmpty()}, and the job's result carries the merged totals.
+ * At most one aggregate of each class may be requested; look results up by
+ * class with {@link #get(Class)}.
+ */
+final class LineAnalytics {
+
+    private static final LineAnalytics NONE = new LineAnalytics(new LineAggregate<?>[0]);
+
+    private final LineAggregate<?>[] aggregates;
+
+    private LineAnalytics(LineAggregate<?>[] aggregates) {
+        this.aggregates = aggregates;
+    }
+
+    static LineAnalytics of(LineAggregate<?>... aggregates) {
+        for (int i = 0; i < aggregates.length; i++) {
+            for (int j = 0; j < i; j++) {
+                if (aggregates[i].getClass() == aggregates[j].getClass()) {
+                    throw new IllegalArgumentException("Aggregate requested twice: " + aggregates[i].getClass().getSimpleName());
+                }
+            }
+        }
+        return new LineAnalytics(aggregates.clone());
+    }
+
+    /**
+     * No aggregates: only the maximum words per line is computed.
+     */
+    static LineAnalytics none() {
+        return NONE;
+    }
+
+    boolean isEmpty() {
+        return aggregates.length == 0;
+    }
+
+    /**
+     * The requested aggregate of the given class.
+     *
+     * @throws IllegalArgumentException if it was not requested
+     */
+    <A extends LineAggregate<A>> A get(Class<A> type) {
+        for (LineAggregate<?> aggregate : aggregates) {
+            if (aggregate.getClass() == type) {
+                return type.cast(aggregate);
+            }
+        }
+        throw new IllegalArgumentException("Aggregate not requested: " + type.getSimpleName());
+    }
+
+    void accept(long offset, int words, long lineBytes) {
+        for (LineAggregate<?> aggregate : aggregates) {
+            aggregate.accept(offset, words, lineBytes);
+        }
+    }
+
+    /**
+     * Merges the aggregates of another part of the file, computed from the same request, into these.
+     */
+    void merge(LineAnalytics other) {
+        if (other.aggregates.length != aggregates.length) {
+            throw new IllegalArgumentException("Cannot merge different analytics requests");
+        }
+        for (int i = 0; i < aggregates.length; i++) {
+            if (aggregates[i].getClass() != other.aggregates[i].getClass()) {
+                throw new IllegalArgumentException("Cannot merge different analytics requests");
+            }
+            mergeInto(aggregates[i], other.aggregates[i]);
+        }
+    }
+
+    LineAnalytics newEmpty() {
+        if (aggregates.length == 0) {
+            return NONE;
+        }
+        List<LineAggregate<?>> empty = new ArrayList<>(aggregates.length);
+        for (LineAggregate<?> aggregate : aggregates) {
+            empty.add(aggregate.newEmpty());
+        }
+        return new LineAnalytics(empty.toArray(new LineAggregate<?>[0]));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <A extends LineAggregate<A>> void mergeInto(LineAggregate<?> target, LineAggregate<?> source) {
+        ((A) target).merge((A) source);
+    }
+
+    @Override
+    public String toString() {
+        return "LineAnalytics" + Arrays.toString(aggregates);
+    }
+}
@@ -0,0 +1,269 @@
+package org.example;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Sparse index of line starts, for planning line-aligned splits balanced by line count.
+ *
+ * The file is divided into buckets of {@code interval} bytes; for every bucket in
+ * which at least one line starts, the index holds the offset of the first such
+ * line and the number of lines starting in the bucket. Both merge exactly
+ * (minimum and sum), so the index is an ordinary {@link LineAggregate} that any
+ * job can build in the same pass as the word count. Its size is about
+ * {@code 24 * fileLength / interval} bytes.
+ *
+ * {@link #plan} cuts the file at indexed line starts so that every split holds
+ * roughly the same number of lines and owns exactly the lines inside it: no node
+ * probes for a line boundary, and no two nodes read the same long line.
+ *
+ * The index is kept next to the file (see {@link #sidecarOf(Path)}) and, for an
+ * append-only file, extended by rescanning from the start of its last bucket,
+ * the only one that can still gain lines.
+ */
+final class LineIndex implements LineAggregate<LineIndex> {
+
+    private static final int MAGIC = 0x57434c49; // "WCLI"
+    private static final int VERSION = 1;
+
+    private final long interval;
+    private long length;           // Bytes of the file covered, once known
+    private int size;
+    private long[] buckets = new long[16];
+    private long[] firstOffsets = new long[16];
+    private long[] lines = new long[16];
+    private long bucketEnd;        // End of the last bucket, for the in-order fast path
+
+    LineIndex(long interval) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("interval must be positive: " + interval);
+        }
+        this.interval = interval;
+    }
+
+    /**
+     * Where the index of {@code file} is kept.
+     */
+    static Path sidecarOf(Path file) {
+        return file.resolveSibling(file.getFileName() + ".lineidx");
+    }
+
+    @Override
+    public void accept(long offset, int words, long lineBytes) {
+        // Within a split, lines arrive in file order
+        if (size > 0 && offset < bucketEnd && offset >= firstOffsets[size - 1]) {
+            lines[size - 1]++;
+            return;
+        }
+        long bucket = offset / interval;
+        if (size > 0 && buckets[size - 1] == bucket) {
+            firstOffsets[size - 1] = Math.min(firstOffsets[size - 1], offset);
+            lines[size - 1]++;
+        } else if (size == 0 || buckets[size - 1] < bucket) {
+            append(bucket, offset, 1);
+        } else {
+            LineIndex one = newEmpty();
+            one.append(bucket, offset, 1);
+            merge(one);
+        }
+        bucketEnd = (buckets[size - 1] + 1) * interval;
+    }
+
+    @Override
+    public void merge(LineIndex other) {
+        if (other.interval != interval) {
+            throw new IllegalArgumentException("Cannot merge indexes with intervals " + interval + " and " + other.interval);
+        }
+        long[] ownBuckets = buckets;
+        long[] ownFirst = firstOffsets;
+        long[] ownLines = lines;
+        int ownSize = size;
+        buckets = new long[ownSize + other.size + 1];
+        firstOffsets = new long[buckets.length];
+        lines = new long[buckets.length];
+        size = 0;
+
+        int i = 0;
+        int j = 0;
+        while (i < ownSize || j < other.size) {
+            if (j == other.size || (i < ownSize && ownBuckets[i] < other.buckets[j])) {
+                append(ownBuckets[i], ownFirst[i], ownLines[i]);
+                i++;
+            } else if (i == ownSize || other.buckets[j] < ownBuckets[i]) {
+                append(other.buckets[j], other.firstOffsets[j], other.lines[j]);
+                j++;
+            } else {
+                append(ownBuckets[i], Math.min(ownFirst[i], other.firstOffsets[j]), ownLines[i] + other.lines[j]);
+                i++;
+                j++;
+            }
+        }
+        length = Math.max(length, other.length);
+        bucketEnd = size > 0 ? (buckets[size - 1] + 1) * interval : 0;
+    }
+
+    @Override
+    public LineIndex newEmpty() {
+        return new LineIndex(interval);
+    }
+
+    long interval() {
+        return interval;
+    }
+
+    /**
+     * Number of bytes of the file this index covers.
+     */
+    long length() {
+        return length;
+    }
+
+    /**
+     * Records that the index covers the first {@code length} bytes of the file.
+     */
+    void coverTo(long length) {
+        this.length = length;
+    }
+
+    /**
+     * Number of lines in the covered part of the file.
+     */
+    long lineCount() {
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            total += lines[i];
+        }
+        return total;
+    }
+
+    /**
+     * Number of indexed line starts.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Offset of the first line of the last bucket: scanning from there extends the index to a grown file.
+     */
+    long resumeOffset() {
+        return size > 0 ? firstOffsets[size - 1] : 0;
+    }
+
+    /**
+     * A copy without the last bucket, to be merged with a rescan from {@link #resumeOffset()}.
+     */
+    LineIndex withoutLastBucket() {
+        LineIndex copy = newEmpty();
+        for (int i = 0; i < size - 1; i++) {
+            copy.append(buckets[i], firstOffsets[i], lines[i]);
+        }
+        copy.length = resumeOffset();
+        return copy;
+    }
+
+    /**
+     * Line-aligned splits over a file of {@code fileLength} bytes, as many as byte
+     * splits would be, each holding about the same number of lines. The part of the
+     * file past the index goes to the last split.
+     */
+    List<Split> plan(long fileLength, int numNodes, WordCountConfig config) {
+        long splitSize = SplitPlanner.splitSize(fileLength, numNodes, config);
+        long targetSplits = Math.max(1, (fileLength + splitSize - 1) / splitSize);
+        long linesPerSplit = Math.max(1, (lineCount() + targetSplits - 1) / targetSplits);
+
+        List<Split> splits = new ArrayList<>();
+        long start = 0;
+        long linesInSplit = 0;
+        for (int i = 0; i < size && firstOffsets[i] < fileLength; i++) {
+            if (linesInSplit >= linesPerSplit && firstOffsets[i] > start) {
+                splits.add(new Split(splits.size(), start, firstOffsets[i], true));
+                start = firstOffsets[i];
+                linesInSplit = 0;
+            }
+            linesInSplit += lines[i];
+        }
+        if (start < fileLength) {
+            splits.add(new Split(splits.size(), start, fileLength, true));
+        }
+        return splits;
+    }
+
+    /**
+     * Writes the index to {@code path}, replacing it atomically.
+     */
+    void save(Path path) {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(interval);
+                out.writeLong(length);
+                out.writeInt(size);
+                for (int i = 0; i < size; i++) {
+                    out.writeLong(buckets[i]);
+                    out.writeLong(firstOffsets[i]);
+                    out.writeLong(lines[i]);
+                }
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error saving line index to " + path, e);
+        }
+    }
+
+    /**
+     * Reads an index written by {@link #save(Path)}, or returns null if there is none or it is unreadable.
+     */
+    static LineIndex load(Path path) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                System.err.println("Ignoring " + path + ": not a line index of version " + VERSION);
+                return null;
+            }
+            LineIndex index = new LineIndex(in.readLong());
+            index.length = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                index.append(in.readLong(), in.readLong(), in.readLong());
+            }
+            return index;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Ignoring unreadable line index " + path + ": " + e);
+            return null;
+        }
+    }
+
+    private void append(long bucket, long firstOffset, long lineCount) {
+        if (size == buckets.length) {
+            buckets = Arrays.copyOf(buckets, size * 2);
+            firstOffsets = Arrays.copyOf(firstOffsets, size * 2);
+            lines = Arrays.copyOf(lines, size * 2);
+        }
+        buckets[size] = bucket;
+        firstOffsets[size] = firstOffset;
+        lines[size] = lineCount;
+        size++;
+        bucketEnd = (bucket + 1) * interval;
+    }
+
+    @Override
+    public String toString() {
+        return "LineIndex{interval=" + interval + ", length=" + length + ", entries=" + size
+            + ", lines=" + lineCount() + "}";
+    }
+}
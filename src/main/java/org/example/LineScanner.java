@@ -0,0 +1,209 @@
+package org.example;
+
+/**
+ * Allocation-free, byte-level line scanner.
+ *
+ * Counts whitespace-delimited words per line in a single pass over raw ASCII
+ * bytes, carrying its state across buffer boundaries so callers can feed it
+ * arbitrary chunks straight from a DistributedFS stream.
+ *
+ * Whitespace is the same set matched by the regex class \s
+ * (space, \t, \n, \u000B, \f, \r); '\n' and '\r' additionally end a line,
+ * mirroring BufferedReader.readLine(). For the maximum, a "\r\n" pair may be
+ * treated as two line breaks: the empty line in between never affects it.
+ *
+ * Every other byte is part of a word, control characters included. The
+ * line-based counter this replaced also trimmed every character up to ' ' off
+ * both ends of a line first, so a control character at the start or end of a
+ * line was not a word there, while it was one in the middle: a line holding
+ * only "\u0001" used to have no words and now has one. Text has no such
+ * bytes, and one classification for the whole line keeps the kernels simple.
+ *
+ * The plain scan runs on the fastest {@link ScanKernel} available, which
+ * may classify a whole vector of bytes per step.
+ *
+ * Besides the maximum, every line can be handed to a {@link LineAnalytics}
+ * sink with its file offset, word count and length in bytes. With a sink,
+ * "\r\n" is a single line break, so line counts and histograms are exact.
+ */
+final class LineScanner {
+
+    private static final boolean[] WHITESPACE = ScanKernels.Scalar.WHITESPACE;
+    private static final boolean[] LINE_BREAK = ScanKernels.Scalar.LINE_BREAK;
+    private static final ScanKernel KERNEL = ScanKernels.best();
+
+    private final LineAnalytics sink;
+    private final ScanKernel kernel;
+    private final ScanKernel.State state = new ScanKernel.State();
+    private boolean pendingLine;   // Bytes seen since the last line break
+    // Tracked for the sink only
+    private boolean afterCr;       // The last byte scanned was '\r': a '\n' right after it is part of that break
+    private long lineBytes;        // Bytes of the current line so far, excluding the line break
+    private long position;         // File offset of the next byte to scan
+    private long lineOffset;       // File offset of the current line
+
+    LineScanner() {
+        this(null);
+    }
+
+    /**
+     * Creates a scanner that also feeds every line to {@code sink}, if not null.
+     */
+    LineScanner(LineAnalytics sink) {
+        this(sink, KERNEL);
+    }
+
+    /**
+     * Creates a scanner whose plain scan runs on {@code kernel}.
+     */
+    LineScanner(LineAnalytics sink, ScanKernel kernel) {
+        this.sink = sink;
+        this.kernel = kernel;
+    }
+
+    /**
+     * Scans {@code len} bytes of {@code buf} starting at {@code off}.
+     */
+    void scan(byte[] buf, int off, int len) {
+        if (len <= 0) {
+            return;
+        }
+        if (sink != null) {
+            scanLines(buf, off, len);
+            return;
+        }
+
+        kernel.scan(buf, off, len, state);
+        this.pendingLine = !LINE_BREAK[buf[off + len - 1] & 0xFF];
+    }
+
+    /**
+     * The same scan, also passing every line's word count and length to the sink.
+     * Kept apart so that the sink call and the "\r\n" tracking, which only matter
+     * for the aggregates, do not slow down the plain scan.
+     */
+    private void scanLines(byte[] buf, int off, int len) {
+        final ScanKernel.State state = this.state;
+        boolean inWord = state.inWord;
+        int words = state.words;
+        int max = state.maxWords;
+        long lines = state.lines;
+        long carried = this.lineBytes;
+        long lineOffset = this.lineOffset;
+        final long base = position - off;   // File offset of buf[0]
+        // Index of the last '\r' seen, so "\r\n" is recognised without reading back into the buffer
+        int crAt = afterCr ? off - 1 : Integer.MIN_VALUE;
+        final LineAnalytics sink = this.sink;
+
+        final int end = off + len;
+        int lineStart = off;
+        for (int i = off; i < end; i++) {
+            int b = buf[i] & 0xFF;
+            if (WHITESPACE[b]) {
+                inWord = false;
+                if (LINE_BREAK[b]) {
+                    // The '\n' of "\r\n" does not end another line
+                    if (b == '\r' || crAt != i - 1) {
+                        if (words > max) {
+                            max = words;
+                        }
+                        lines++;
+                        sink.accept(lineOffset, words, carried + (i - lineStart));
+                        words = 0;
+                        carried = 0;
+                    }
+                    if (b == '\r') {
+                        crAt = i;
+                    }
+                    lineStart = i + 1;
+                    lineOffset = base + lineStart;
+                }
+            } else if (!inWord) {
+                inWord = true;
+                words++;
+            }
+        }
+
+        state.inWord = inWord;
+        state.words = words;
+        state.maxWords = max;
+        state.lines = lines;
+        this.lineBytes = carried + (end - lineStart);
+        this.lineOffset = lineOffset;
+        this.position = base + end;
+        int last = buf[end - 1] & 0xFF;
+        this.pendingLine = !LINE_BREAK[last];
+        this.afterCr = last == '\r';
+    }
+
+    /**
+     * Tells the scanner that the stream it is about to scan follows {@code lineBreak},
+     * so that the '\n' of a "\r\n" split across the two is not taken for an empty line.
+     */
+    void resumeAfterLineBreak(byte lineBreak) {
+        afterCr = lineBreak == '\r';
+    }
+
+    /**
+     * Sets the file offset of the next byte to be scanned, which must start a line; 0 by default.
+     * Only used to report line offsets to the sink.
+     */
+    void startAt(long offset) {
+        position = offset;
+        lineOffset = offset;
+    }
+
+    /**
+     * Closes the pending line, if any. Call once after the last chunk so a
+     * final line without a trailing newline is counted.
+     */
+    void finish() {
+        if (state.words > state.maxWords) {
+            state.maxWords = state.words;
+        }
+        if (pendingLine) {
+            state.lines++;
+            if (sink != null) {
+                sink.accept(lineOffset, state.words, lineBytes);
+            }
+        }
+        state.words = 0;
+        lineBytes = 0;
+        pendingLine = false;
+        state.inWord = false;
+    }
+
+    int maxWords() {
+        return state.maxWords;
+    }
+
+    /**
+     * Number of lines scanned so far, including, after {@link #finish()}, a final unterminated line.
+     * Without a sink each line break counts, so "\r\n" counts twice.
+     */
+    long lines() {
+        return state.lines;
+    }
+
+    static boolean isWhitespace(byte b) {
+        return WHITESPACE[b & 0xFF];
+    }
+
+    static boolean isLineBreak(byte b) {
+        return LINE_BREAK[b & 0xFF];
+    }
+
+    /**
+     * Counts the words in a single line held in {@code buf[off, off + len)}.
+     */
+    static int countWords(byte[] buf, int off, int len) {
+        return KERNEL.countWords(buf, off, len);
+    }
+
+    /**
+     * Index of the first line break in {@code buf[off, off + len)}, or -1.
+     */
+    static int indexOfLineBreak(byte[] buf, int off, int len) {
+        return KERNEL.indexOfLineBreak(buf, off, len);
+    }
+}
@@ -0,0 +1,157 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * DistributedFS over a local file, memory-mapped for realistic large-file runs.
+ *
+ * A MappedByteBuffer is indexed by int, so the file is mapped as a sequence of
+ * segments of at most {@link #DEFAULT_SEGMENT_SIZE} bytes and offsets are
+ * resolved to a segment and a position within it, which keeps files past 2 GB
+ * readable. getData streams copy straight from the mapped pages into the
+ * caller's buffer: there is no intermediate heap copy of the file.
+ *
+ * The file is treated as immutable; its length is fixed when it is opened.
+ */
+final class MappedFileDistributedFS implements DistributedFS, AutoCloseable {
+
+    static final int DEFAULT_SEGMENT_SIZE = 1 << 30;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final long fileLength;
+    private final int segmentSize;
+    private final MappedByteBuffer[] segments;
+
+    MappedFileDistributedFS(Path path) throws IOException {
+        this(path, DEFAULT_SEGMENT_SIZE);
+    }
+
+    MappedFileDistributedFS(Path path, int segmentSize) throws IOException {
+        if (segmentSize <= 0) {
+            throw new IllegalArgumentException("segmentSize must be positive: " + segmentSize);
+        }
+        this.path = path;
+        this.segmentSize = segmentSize;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            this.fileLength = channel.size();
+            int count = (int) ((fileLength + segmentSize - 1) / segmentSize);
+            this.segments = new MappedByteBuffer[count];
+            for (int i = 0; i < count; i++) {
+                long position = (long) i * segmentSize;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                    Math.min(segmentSize, fileLength - position));
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public long fileLength() {
+        return fileLength;
+    }
+
+    @Override
+    public InputStream getData(long offset) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("offset must not be negative: " + offset);
+        }
+        return new MappedStream(offset);
+    }
+
+    Path path() {
+        return path;
+    }
+
+    /**
+     * Closes the file. Mapped segments stay valid until they are garbage collected.
+     */
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MappedFileDistributedFS{" + path + ", " + fileLength + " bytes, " + segments.length + " segments}";
+    }
+
+    /**
+     * Sequential stream over the mapped segments, starting at an arbitrary long offset.
+     */
+    private final class MappedStream extends InputStream {
+        private int segmentIndex;
+        private ByteBuffer current;   // Private view of segments[segmentIndex], or null past end of file
+
+        MappedStream(long offset) {
+            if (offset >= fileLength) {
+                return;
+            }
+            segmentIndex = (int) (offset / segmentSize);
+            current = segments[segmentIndex].duplicate();
+            current.position((int) (offset - (long) segmentIndex * segmentSize));
+        }
+
+        @Override
+        public int read() {
+            if (!advance()) {
+                return -1;
+            }
+            return current.get() & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!advance()) {
+                return -1;
+            }
+            int n = Math.min(len, current.remaining());
+            current.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            long skipped = 0;
+            while (skipped < n && advance()) {
+                int step = (int) Math.min(n - skipped, current.remaining());
+                current.position(current.position() + step);
+                skipped += step;
+            }
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return current == null ? 0 : current.remaining();
+        }
+
+        /**
+         * Moves to the next segment once the current one is drained; false at end of file.
+         */
+        private boolean advance() {
+            while (current != null && !current.hasRemaining()) {
+                segmentIndex++;
+                current = segmentIndex < segments.length ? segments[segmentIndex].duplicate() : null;
+            }
+            return current != null;
+        }
+    }
+}
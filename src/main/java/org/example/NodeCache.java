@@ -0,0 +1,247 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Block cache local to one service ID, kept across jobs.
+ *
+ * Holds full blocks of {@code blockSize} bytes of any number of files, keyed
+ * by their {@link SplitLocality#id file ID} rather than by a reference that would
+ * keep the file alive, and evicts the least recently used once
+ * {@code capacityBytes} are cached. Blocks of a file that is gone are never hit
+ * again and age out. A
+ * partition reads through {@link #reader}, which serves cached blocks from
+ * memory and fetches the others from the job's own source, with its read-ahead
+ * and admission, keeping one source stream open across consecutive misses.
+ * Every block is counted as a hit or a miss in the partition's recorder.
+ *
+ * Misses read whole blocks, so a cold partition reads up to a block more on
+ * either side of its range. The partial block at the end of a file is never
+ * cached, so the blocks of an append-only file stay valid as it grows; drop a
+ * rewritten file with {@link #invalidate}.
+ */
+final class NodeCache {
+
+    private final int blockSize;
+    private final long capacityBytes;
+
+    // Access-ordered: iteration starts at the least recently used block
+    private final LinkedHashMap<Key, byte[]> blocks = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+
+    NodeCache(int blockSize, long capacityBytes) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("blockSize must be positive: " + blockSize);
+        }
+        if (capacityBytes < 0) {
+            throw new IllegalArgumentException("capacityBytes must not be negative: " + capacityBytes);
+        }
+        this.blockSize = blockSize;
+        this.capacityBytes = capacityBytes;
+    }
+
+    /**
+     * A view of {@code file} that reads through this cache, fetching misses from {@code source}
+     * and counting hits and misses into {@code recorder}. Used by one partition at a time.
+     */
+    DistributedFS reader(long fileId, DistributedFS source, PartitionMetrics.Recorder recorder) {
+        return new Reader(fileId, source, recorder);
+    }
+
+    /**
+     * Drops the cached blocks of file {@code fileId}, for example after it was rewritten.
+     */
+    synchronized void invalidate(long fileId) {
+        Iterator<Map.Entry<Key, byte[]>> entries = blocks.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Key, byte[]> entry = entries.next();
+            if (entry.getKey().fileId == fileId) {
+                cachedBytes -= entry.getValue().length;
+                entries.remove();
+            }
+        }
+    }
+
+    synchronized long cachedBytes() {
+        return cachedBytes;
+    }
+
+    private synchronized byte[] lookup(Key key) {
+        return blocks.get(key);
+    }
+
+    private synchronized void store(Key key, byte[] block) {
+        if (block.length > capacityBytes || blocks.containsKey(key)) {
+            return;
+        }
+        Iterator<byte[]> eldest = blocks.values().iterator();
+        while (cachedBytes + block.length > capacityBytes && eldest.hasNext()) {
+            cachedBytes -= eldest.next().length;
+            eldest.remove();
+        }
+        blocks.put(key, block);
+        cachedBytes += block.length;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "NodeCache{blocks=" + blocks.size() + ", cachedBytes=" + cachedBytes + "/" + capacityBytes + "}";
+    }
+
+    /**
+     * A block of a file.
+     */
+    private static final class Key {
+        final long fileId;
+        final long index;
+
+        Key(long fileId, long index) {
+            this.fileId = fileId;
+            this.index = index;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return fileId == other.fileId && index == other.index;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Long.hashCode(fileId) + Long.hashCode(index);
+        }
+    }
+
+    private final class Reader implements DistributedFS {
+        private final long fileId;
+        private final DistributedFS source;
+        private final PartitionMetrics.Recorder recorder;
+
+        Reader(long fileId, DistributedFS source, PartitionMetrics.Recorder recorder) {
+            this.fileId = fileId;
+            this.source = source;
+            this.recorder = recorder;
+        }
+
+        @Override
+        public long fileLength() {
+            return source.fileLength();
+        }
+
+        @Override
+        public InputStream getData(long offset) {
+            return new CachedStream(this, offset);
+        }
+    }
+
+    /**
+     * Sequential stream over cached blocks, falling back to a source stream on a miss.
+     */
+    private final class CachedStream extends InputStream {
+        private final Reader reader;
+        private long position;
+        private byte[] current;
+        private long currentIndex;
+        private int currentPosition;
+        private InputStream sourceStream;   // Open source stream, positioned at sourcePosition
+        private long sourcePosition;
+
+        CachedStream(Reader reader, long offset) {
+            this.reader = reader;
+            this.position = offset;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if ((current == null || currentPosition == current.length) && !loadBlock()) {
+                return -1;
+            }
+            int n = Math.min(len, current.length - currentPosition);
+            System.arraycopy(current, currentPosition, b, off, n);
+            currentPosition += n;
+            position += n;
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            closeSource();
+        }
+
+        /**
+         * Points {@code current} at the block containing {@code position}; false at end of file.
+         */
+        private boolean loadBlock() throws IOException {
+            long index = position / blockSize;
+            if (current != null && index == currentIndex) {
+                return false; // The partial block at the end of the file is used up
+            }
+            int skip = (int) (position - index * blockSize);
+            Key key = new Key(reader.fileId, index);
+
+            byte[] block = lookup(key);
+            if (block != null) {
+                reader.recorder.cacheHit();
+            } else {
+                block = readFromSource(index);
+                if (block.length == 0) {
+                    return false;
+                }
+                reader.recorder.cacheMiss();
+                if (block.length == blockSize) {
+                    store(key, block);
+                }
+            }
+            if (block.length <= skip) {
+                return false;
+            }
+            current = block;
+            currentIndex = index;
+            currentPosition = skip;
+            return true;
+        }
+
+        /**
+         * Reads block {@code index} from the source, reusing the open stream when it is already there.
+         */
+        private byte[] readFromSource(long index) throws IOException {
+            long blockStart = index * blockSize;
+            if (sourceStream != null && sourcePosition != blockStart) {
+                closeSource();
+            }
+            if (sourceStream == null) {
+                sourceStream = reader.source.getData(blockStart);
+                sourcePosition = blockStart;
+            }
+            byte[] bytes = sourceStream.readNBytes(blockSize);
+            sourcePosition += bytes.length;
+            return bytes;
+        }
+
+        private void closeSource() throws IOException {
+            if (sourceStream != null) {
+                try {
+                    sourceStream.close();
+                } finally {
+                    sourceStream = null;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package org.example;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The remote service IDs of an engine, each lent to one attempt at a time.
+ *
+ * Every job and batch takes its nodes through its own {@link Queue}, and all of
+ * them share this pool, so two jobs never run on the same node at once and a
+ * node that a job sees as free is free across the engine. A request for a node
+ * is a future: a request that finds no suitable node free waits in its queue
+ * without holding a thread, and is completed by whichever thread returns one.
+ *
+ * A returned node goes to a request that prefers it, if there is one, and
+ * otherwise to the next queue in turn with a request it suits. Queues running
+ * side by side therefore get an equal share of the nodes, a job of thousands of
+ * splits cannot starve one submitted after it, and a job running alone gets
+ * every node. Within a queue, requests are served in order.
+ *
+ * A request can prefer a node, which it waits for up to a given time, or avoid
+ * one, which it takes only if no other node frees up within that time; after
+ * that it takes any node. A request whose future is cancelled is dropped.
+ */
+final class NodePool {
+
+    private final int numNodes;
+    private final ScheduledExecutorService timer;
+
+    // Guarded by this
+    private final ArrayDeque<Integer> freeNodes = new ArrayDeque<>();
+    // Queues with requests that any free node may suit, in turn order
+    private final ArrayDeque<Queue> ready = new ArrayDeque<>();
+    // Requests waiting for one node in particular, by that node
+    private final Map<Integer, ArrayDeque<Request>> preferring = new HashMap<>();
+
+    /**
+     * A pool of the service IDs 1 to {@code numNodes}, which waits out the preferences of requests on {@code timer}.
+     */
+    NodePool(int numNodes, ScheduledExecutorService timer) {
+        if (numNodes <= 0) {
+            throw new IllegalArgumentException("numNodes must be positive: " + numNodes);
+        }
+        this.numNodes = numNodes;
+        this.timer = timer;
+        for (int nodeId = 1; nodeId <= numNodes; nodeId++) {
+            freeNodes.add(nodeId);
+        }
+    }
+
+    int size() {
+        return numNodes;
+    }
+
+    /**
+     * A new queue of requests, which takes its turns from now on.
+     */
+    Queue newQueue() {
+        return new Queue();
+    }
+
+    synchronized int freeNodes() {
+        return freeNodes.size();
+    }
+
+    /**
+     * Takes a free node without waiting, or returns 0 if there is none. No request is waiting for a free node,
+     * so this takes nothing a request could have had.
+     */
+    synchronized int poll() {
+        Integer nodeId = freeNodes.poll();
+        return nodeId != null ? nodeId : 0;
+    }
+
+    /**
+     * Returns {@code nodeId}, handing it to a waiting request if one suits it.
+     */
+    void release(int nodeId) {
+        synchronized (this) {
+            freeNodes.add(nodeId);
+        }
+        dispatch();
+    }
+
+    /**
+     * Hands free nodes to the requests they suit, completing their futures outside the lock.
+     */
+    private void dispatch() {
+        while (true) {
+            Request request;
+            synchronized (this) {
+                request = match();
+                if (request == null) {
+                    return;
+                }
+            }
+            if (!request.node.complete(request.grantedNode)) {
+                // Cancelled meanwhile: the node goes to the next request
+                synchronized (this) {
+                    freeNodes.addFirst(request.grantedNode);
+                }
+            }
+        }
+    }
+
+    /**
+     * Grants a free node to the request it suits best and returns that request, or returns null.
+     */
+    private Request match() {
+        // A request waiting for one of the free nodes in particular goes first
+        for (Iterator<Integer> free = freeNodes.iterator(); free.hasNext(); ) {
+            int nodeId = free.next();
+            ArrayDeque<Request> waiting = preferring.get(nodeId);
+            if (waiting == null) {
+                continue;
+            }
+            Request request = waiting.poll();
+            while (request != null && !request.pending()) {
+                request = waiting.poll();
+            }
+            if (waiting.isEmpty()) {
+                preferring.remove(nodeId);
+            }
+            if (request != null) {
+                free.remove();
+                request.grantedNode = nodeId;
+                return request;
+            }
+        }
+
+        // Otherwise the queues take turns
+        for (int turns = ready.size(); turns > 0 && !freeNodes.isEmpty(); turns--) {
+            Queue queue = ready.poll();
+            Request matched = null;
+            for (Iterator<Request> requests = queue.requests.iterator(); requests.hasNext(); ) {
+                Request request = requests.next();
+                if (!request.pending()) {
+                    requests.remove();
+                    continue;
+                }
+                int nodeId = firstSuited(request);
+                if (nodeId != 0) {
+                    requests.remove();
+                    freeNodes.remove(nodeId);
+                    request.grantedNode = nodeId;
+                    matched = request;
+                    break;
+                }
+            }
+            if (queue.requests.isEmpty()) {
+                queue.ready = false;
+            } else {
+                ready.add(queue);
+            }
+            if (matched != null) {
+                return matched;
+            }
+        }
+        return null;
+    }
+
+    private int firstSuited(Request request) {
+        for (int nodeId : freeNodes) {
+            if (request.suits(nodeId)) {
+                return nodeId;
+            }
+        }
+        return 0;
+    }
+
+    private void enqueue(Request request) {
+        Queue queue = request.queue;
+        queue.requests.add(request);
+        if (!queue.ready) {
+            queue.ready = true;
+            ready.add(queue);
+        }
+    }
+
+    /**
+     * Lets {@code request} take any node from now on.
+     */
+    private void relax(Request request) {
+        synchronized (this) {
+            if (!request.pending() || request.relaxed) {
+                return;
+            }
+            request.relaxed = true;
+            if (!request.avoid) {
+                // Until now it only waited for its preferred node
+                enqueue(request);
+            }
+        }
+        dispatch();
+    }
+
+    /**
+     * The requests of one job or batch, served in order.
+     */
+    final class Queue {
+        // Guarded by NodePool.this
+        private final ArrayDeque<Request> requests = new ArrayDeque<>();
+        private boolean ready;
+
+        private Queue() {
+        }
+
+        /**
+         * Completes with any node once one is free.
+         */
+        CompletableFuture<Integer> acquire() {
+            return request(0, false, 0);
+        }
+
+        /**
+         * Completes with {@code nodeId} once it is free, or with any node once {@code waitMillis} have passed.
+         */
+        CompletableFuture<Integer> acquirePreferred(int nodeId, long waitMillis) {
+            return request(nodeId, false, waitMillis);
+        }
+
+        /**
+         * Completes with any node but {@code nodeId} once one is free, or with any node at all once
+         * {@code waitMillis} have passed.
+         */
+        CompletableFuture<Integer> acquireAvoiding(int nodeId, long waitMillis) {
+            return request(nodeId, true, numNodes > 1 ? waitMillis : 0);
+        }
+
+        private CompletableFuture<Integer> request(int nodeId, boolean avoid, long waitMillis) {
+            Request request = new Request(this, nodeId, avoid);
+            synchronized (NodePool.this) {
+                if (nodeId > 0 && !avoid) {
+                    preferring.computeIfAbsent(nodeId, id -> new ArrayDeque<>()).add(request);
+                } else {
+                    enqueue(request);
+                }
+            }
+            dispatch();
+            if (nodeId > 0 && !request.node.isDone()) {
+                relaxLater(request, waitMillis);
+            }
+            return request.node;
+        }
+
+        private void relaxLater(Request request, long waitMillis) {
+            if (waitMillis > 0) {
+                try {
+                    ScheduledFuture<?> relax = timer.schedule(() -> relax(request), waitMillis, TimeUnit.MILLISECONDS);
+                    request.node.whenComplete((nodeId, error) -> relax.cancel(false));
+                    return;
+                } catch (RejectedExecutionException e) {
+                    // The timer is shut down: there is nothing to wait for
+                }
+            }
+            relax(request);
+        }
+    }
+
+    private static final class Request {
+        final Queue queue;
+        final CompletableFuture<Integer> node = new CompletableFuture<>();
+        final int nodeId;       // The node preferred or avoided, or 0
+        final boolean avoid;
+        // Guarded by the pool
+        boolean relaxed;        // Suits any node from now on
+        int grantedNode;        // The node handed to the request, or 0
+
+        Request(Queue queue, int nodeId, boolean avoid) {
+            this.queue = queue;
+            this.nodeId = nodeId;
+            this.avoid = avoid;
+        }
+
+        boolean pending() {
+            return grantedNode == 0 && !node.isDone();
+        }
+
+        boolean suits(int candidate) {
+            if (nodeId == 0 || relaxed) {
+                return true;
+            }
+            return avoid ? candidate != nodeId : candidate == nodeId;
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package org.example;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timings and volumes of the attempt that produced one split's result.
+ *
+ * Durations are in nanoseconds. Queue wait runs from job start until the
+ * attempt got a service ID (including any retry backoff), admission wait is the
+ * time the attempt waited for read budget (see {@link ReadGovernor}), remote startup from
+ * the RemoteExecutor call until the task started on the node, DFS latency is
+ * the time spent in getData calls, read wait the time blocked reading the
+ * returned streams and compute the time spent scanning. Cache hits and misses
+ * count the blocks read through the node's {@link NodeCache}, if any.
+ */
+final class PartitionMetrics {
+
+    private final Split split;
+    private final int serviceId;
+    private final int maxWords;
+    private final long queueWaitNanos;
+    private final long remoteStartupNanos;
+    private final long admissionWaitNanos;
+    private final int dfsCalls;
+    private final long dfsLatencyNanos;
+    private final long readWaitNanos;
+    private final long computeNanos;
+    private final long totalNanos;
+    private final long bytesRead;
+    private final long lines;
+    private final boolean reachedEndOfFile;
+    private final boolean local;
+    private final long cacheHits;
+    private final long cacheMisses;
+    private final LineAnalytics analytics;
+
+    private PartitionMetrics(Recorder recorder, int maxWords, LineAnalytics analytics, long totalNanos) {
+        this.split = recorder.split;
+        this.serviceId = recorder.serviceId;
+        this.maxWords = maxWords;
+        this.queueWaitNanos = recorder.queueWaitNanos;
+        this.remoteStartupNanos = recorder.remoteStartupNanos;
+        this.admissionWaitNanos = recorder.admissionWaitNanos;
+        this.dfsCalls = recorder.dfsCalls;
+        this.dfsLatencyNanos = recorder.dfsLatencyNanos;
+        this.readWaitNanos = recorder.readWaitNanos;
+        this.computeNanos = recorder.computeNanos;
+        this.totalNanos = totalNanos;
+        this.bytesRead = recorder.bytesRead;
+        this.lines = recorder.lines;
+        this.reachedEndOfFile = recorder.reachedEndOfFile;
+        this.local = recorder.local;
+        this.cacheHits = recorder.cacheHits;
+        this.cacheMisses = recorder.cacheMisses;
+        this.analytics = analytics;
+    }
+
+    Split split() {
+        return split;
+    }
+
+    int serviceId() {
+        return serviceId;
+    }
+
+    int maxWords() {
+        return maxWords;
+    }
+
+    long queueWaitNanos() {
+        return queueWaitNanos;
+    }
+
+    long remoteStartupNanos() {
+        return remoteStartupNanos;
+    }
+
+    long admissionWaitNanos() {
+        return admissionWaitNanos;
+    }
+
+    int dfsCalls() {
+        return dfsCalls;
+    }
+
+    long dfsLatencyNanos() {
+        return dfsLatencyNanos;
+    }
+
+    long readWaitNanos() {
+        return readWaitNanos;
+    }
+
+    long computeNanos() {
+        return computeNanos;
+    }
+
+    /**
+     * Time from the start of the attempt until its result was available, excluding the queue wait.
+     */
+    long totalNanos() {
+        return totalNanos;
+    }
+
+    long bytesRead() {
+        return bytesRead;
+    }
+
+    long lines() {
+        return lines;
+    }
+
+    /**
+     * Whether the read ran into the end of the file, in which case appending to the file may change this result.
+     */
+    boolean reachedEndOfFile() {
+        return reachedEndOfFile;
+    }
+
+    /**
+     * Whether the split ran on the service ID that completed it in an earlier job.
+     */
+    boolean local() {
+        return local;
+    }
+
+    long cacheHits() {
+        return cacheHits;
+    }
+
+    long cacheMisses() {
+        return cacheMisses;
+    }
+
+    /**
+     * This split's partial line aggregates.
+     */
+    LineAnalytics analytics() {
+        return analytics;
+    }
+
+    @Override
+    public String toString() {
+        return "PartitionMetrics{" + split + " on node " + serviceId + (local ? " (local)" : "")
+            + ", queueWait=" + millis(queueWaitNanos) + "ms"
+            + ", remoteStartup=" + millis(remoteStartupNanos) + "ms"
+            + ", admissionWait=" + millis(admissionWaitNanos) + "ms"
+            + ", dfs=" + dfsCalls + " calls/" + millis(dfsLatencyNanos) + "ms"
+            + ", readWait=" + millis(readWaitNanos) + "ms"
+            + ", compute=" + millis(computeNanos) + "ms"
+            + ", total=" + millis(totalNanos) + "ms"
+            + ", bytes=" + bytesRead + ", lines=" + lines
+            + ", cache=" + cacheHits + " hits/" + cacheMisses + " misses}";
+    }
+
+    private static long millis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    /**
+     * Collects the measurements of one attempt. Used by a single thread at a time;
+     * the hot path only records once per buffer, never per byte.
+     */
+    static final class Recorder {
+        private final Split split;
+        private final int serviceId;
+        private final long queueWaitNanos;
+        private final long startNanos;
+        private long remoteStartupNanos;
+        private long admissionWaitNanos;
+        private int dfsCalls;
+        private long dfsLatencyNanos;
+        private long readWaitNanos;
+        private long computeNanos;
+        private long bytesRead;
+        private long lines;
+        private boolean reachedEndOfFile;
+        private boolean local;
+        private long cacheHits;
+        private long cacheMisses;
+
+        Recorder(Split split, int serviceId, long queueWaitNanos) {
+            this.split = split;
+            this.serviceId = serviceId;
+            this.queueWaitNanos = queueWaitNanos;
+            this.startNanos = System.nanoTime();
+        }
+
+        /**
+         * A recorder for reads that are not part of a tracked job.
+         */
+        static Recorder discarding() {
+            return new Recorder(null, 0, 0);
+        }
+
+        void remoteStarted() {
+            remoteStartupNanos = System.nanoTime() - startNanos;
+        }
+
+        void admissionWait(long nanos) {
+            admissionWaitNanos += nanos;
+        }
+
+        void dfsCall(long nanos) {
+            dfsCalls++;
+            dfsLatencyNanos += nanos;
+        }
+
+        void read(int bytes, long nanos) {
+            if (bytes > 0) {
+                bytesRead += bytes;
+            } else if (bytes < 0) {
+                reachedEndOfFile = true;
+            }
+            readWaitNanos += nanos;
+        }
+
+        void compute(long nanos) {
+            computeNanos += nanos;
+        }
+
+        void ranLocally() {
+            local = true;
+        }
+
+        void cacheHit() {
+            cacheHits++;
+        }
+
+        void cacheMiss() {
+            cacheMisses++;
+        }
+
+        void scanned(LineScanner scanner) {
+            lines = scanner.lines();
+        }
+
+        PartitionMetrics finish(int maxWords) {
+            return finish(maxWords, LineAnalytics.none());
+        }
+
+        PartitionMetrics finish(int maxWords, LineAnalytics analytics) {
+            return new PartitionMetrics(this, maxWords, analytics, System.nanoTime() - startNanos);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+
+/**
+ * Streams one partition of a DistributedFS file through a fixed-size buffer.
+ *
+ * A partition owns every line that starts inside it. The reader opens a single
+ * stream at the partition start, skips the partial first line inline (it is
+ * owned by the previous partition), scans up to the partition end and then keeps
+ * going until the line that straddles the boundary is complete. That is one
+ * getData round-trip per partition and one buffer of {@code bufferSize} bytes
+ * of memory, regardless of how large the partition is.
+ *
+ * Nothing is read past the partition end while looking for the first line
+ * start, and the straddling line is read in chunks that start at
+ * {@link #FIRST_TAIL_READ} bytes and double, so a small partition inside a long
+ * line reads only its range, and a partition reads about a line past its end
+ * rather than a whole buffer.
+ */
+final class PartitionReader {
+
+    // First read past the partition end: enough for the rest of a typical line
+    static final int FIRST_TAIL_READ = 256;
+
+    private final DistributedFS dfs;
+    private final byte[] buffer;
+
+    PartitionReader(DistributedFS dfs, int bufferSize) {
+        this.dfs = dfs;
+        this.buffer = new byte[bufferSize];
+    }
+
+    /**
+     * Scans the lines owned by the partition {@code [startOffset, endOffset)} into {@code scanner}.
+     * The first partition owns the line at offset 0; every other partition owns
+     * the lines starting in {@code (startOffset, endOffset]}.
+     */
+    void read(long startOffset, long endOffset, LineScanner scanner) throws IOException {
+        read(startOffset, endOffset, scanner, PartitionMetrics.Recorder.discarding());
+    }
+
+    /**
+     * Like {@link #read(long, long, LineScanner)}, recording DFS latency, read wait,
+     * scan time and volumes into {@code recorder}.
+     */
+    void read(long startOffset, long endOffset, LineScanner scanner, PartitionMetrics.Recorder recorder)
+            throws IOException {
+        long callStart = System.nanoTime();
+        InputStream stream = dfs.getData(startOffset);
+        recorder.dfsCall(System.nanoTime() - callStart);
+
+        try (InputStream is = stream) {
+            long remaining = endOffset - startOffset;
+            int n = 0;
+            int pos = 0;
+
+            // --- CRITICAL BOUNDARY HANDLING ---
+            // Skip the partial first line without a separate probe round-trip
+            if (startOffset > 0) {
+                int lineEnd = -1;
+                while (lineEnd < 0) {
+                    if ((n = fill(is, recorder, (int) Math.min(buffer.length, remaining))) == -1) {
+                        return; // No line starts in this partition
+                    }
+                    lineEnd = indexOfLineBreak(buffer, 0, n);
+                    if (lineEnd < 0) {
+                        remaining -= n;
+                        if (remaining <= 0) {
+                            return; // No line starts in this partition's range: it owns no lines
+                        }
+                    }
+                }
+                // The reads stayed within the range, so the first owned line starts at the end at the latest
+                scanner.resumeAfterLineBreak(buffer[lineEnd]);
+                pos = lineEnd + 1;
+                remaining -= pos;
+            }
+            scanner.startAt(endOffset - remaining);
+
+            // Bytes inside the partition, starting with what is left of the boundary buffer
+            while (true) {
+                if (pos < n) {
+                    int inRange = (int) Math.min(n - pos, remaining);
+                    scan(scanner, recorder, pos, inRange);
+                    remaining -= inRange;
+                    pos += inRange;
+                }
+                if (remaining == 0 || pos < n) {
+                    break;
+                }
+                if ((n = fill(is, recorder, (int) Math.min(buffer.length, remaining))) == -1) {
+                    return; // End of file inside the partition
+                }
+                pos = 0;
+            }
+
+            // The line that straddles (or starts exactly at) the partition end
+            int tailRead = Math.min(buffer.length, FIRST_TAIL_READ);
+            while (true) {
+                if (pos < n) {
+                    int lineEnd = indexOfLineBreak(buffer, pos, n - pos);
+                    if (lineEnd >= 0) {
+                        scan(scanner, recorder, pos, lineEnd + 1 - pos);
+                        break;
+                    }
+                    scan(scanner, recorder, pos, n - pos);
+                }
+                if ((n = fill(is, recorder, tailRead)) == -1) {
+                    break;
+                }
+                pos = 0;
+                tailRead = (int) Math.min(buffer.length, 2L * tailRead);
+            }
+        } finally {
+            scanner.finish();
+            recorder.scanned(scanner);
+        }
+    }
+
+    /**
+     * Scans exactly the bytes {@code [startOffset, endOffset)}, which must both be line starts
+     * (or the end of the file), as cut by a {@link LineIndex}: there is no partial first line
+     * to skip and no line to finish past the end.
+     */
+    void readAligned(long startOffset, long endOffset, LineScanner scanner, PartitionMetrics.Recorder recorder)
+            throws IOException {
+        long callStart = System.nanoTime();
+        InputStream stream = dfs.getData(startOffset);
+        recorder.dfsCall(System.nanoTime() - callStart);
+
+        try (InputStream is = stream) {
+            scanner.startAt(startOffset);
+            long remaining = endOffset - startOffset;
+            while (remaining > 0) {
+                int n = fill(is, recorder, (int) Math.min(buffer.length, remaining));
+                if (n == -1) {
+                    return; // The file is shorter than the index says
+                }
+                scan(scanner, recorder, 0, n);
+                remaining -= n;
+            }
+        } finally {
+            scanner.finish();
+            recorder.scanned(scanner);
+        }
+    }
+
+    /**
+     * Reads the next chunk into the buffer, giving up if the task was cancelled
+     * (for example because a speculative duplicate already finished).
+     */
+    private int fill(InputStream is, PartitionMetrics.Recorder recorder, int len) throws IOException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Partition read cancelled");
+        }
+        long start = System.nanoTime();
+        int n = is.read(buffer, 0, len);
+        recorder.read(n, System.nanoTime() - start);
+        return n;
+    }
+
+    private void scan(LineScanner scanner, PartitionMetrics.Recorder recorder, int off, int len) {
+        long start = System.nanoTime();
+        scanner.scan(buffer, off, len);
+        recorder.compute(System.nanoTime() - start);
+    }
+
+    static int indexOfLineBreak(byte[] buf, int off, int len) {
+        return LineScanner.indexOfLineBreak(buf, off, len);
+    }
+}
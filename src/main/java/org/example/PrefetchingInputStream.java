@@ -0,0 +1,220 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Read-ahead stream over a DistributedFS file.
+ *
+ * Keeps up to {@code depth} block fetches in flight ahead of the consumer, each
+ * one a separate ranged getData call issued from the fetch executor, so network time for the
+ * next blocks overlaps with the consumer's work on the current one. Buffered
+ * memory is bounded by {@code depth * blockSize}.
+ *
+ * With a {@link ReadGovernor}, only the block being consumed and the next one
+ * are fetched unconditionally; every further block is fetched only if the
+ * governor can reserve its bytes right now, and returns them once consumed.
+ * Reserved read-ahead takes no read slot from the governor.
+ *
+ * Read-ahead stops at the {@code end} of the range the reader is after, such as
+ * a partition. Past it, blocks are only fetched once the reader asks for them,
+ * starting at {@link #TAIL_BLOCK_SIZE} bytes and doubling, so finishing the line
+ * that straddles the end costs about that line. A closed stream issues no
+ * further reads; budget held by fetches still in flight returns when they settle.
+ */
+final class PrefetchingInputStream extends InputStream {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    // First fetch past the end of the range, for the rest of a straddling line
+    static final int TAIL_BLOCK_SIZE = 8 * 1024;
+
+    private final DistributedFS dfs;
+    private final long fileLength;
+    private final int blockSize;
+    private final int depth;
+    private final Executor executor;
+    private final ReadGovernor governor;
+    private final ArrayDeque<CompletableFuture<byte[]>> pending = new ArrayDeque<>();
+    // Whether each pending block, and the current one, holds budget from the governor
+    private final ArrayDeque<Boolean> admitted = new ArrayDeque<>();
+
+    private long nextFetchOffset;
+    // Read-ahead goes up to here; past the end of the range it moves on as the reader asks for more
+    private long fetchLimit;
+    private int tailBlockSize;
+    private byte[] current = EMPTY;
+    private boolean currentAdmitted;
+    private int position;
+    // Read by fetches that have not been issued yet
+    private volatile boolean closed;
+
+    PrefetchingInputStream(DistributedFS dfs, long offset, long fileLength, int blockSize, int depth, Executor executor) {
+        this(dfs, offset, fileLength, fileLength, blockSize, depth, executor, ReadGovernor.unlimited());
+    }
+
+    /**
+     * A stream from {@code offset} that reads ahead up to {@code end} only.
+     */
+    PrefetchingInputStream(DistributedFS dfs, long offset, long end, long fileLength, int blockSize, int depth,
+                           Executor executor, ReadGovernor governor) {
+        if (blockSize <= 0 || depth <= 0) {
+            throw new IllegalArgumentException("blockSize and depth must be positive: " + blockSize + ", " + depth);
+        }
+        this.dfs = dfs;
+        this.fileLength = fileLength;
+        this.blockSize = blockSize;
+        this.depth = depth;
+        this.executor = executor;
+        this.governor = governor;
+        this.nextFetchOffset = offset;
+        this.fetchLimit = Math.min(end, fileLength);
+        this.tailBlockSize = Math.min(TAIL_BLOCK_SIZE, blockSize);
+        fill();
+    }
+
+    /**
+     * Wraps {@code dfs} so that every getData call returns a read-ahead stream.
+     * The read-ahead depth is capped so that one stream never buffers more than {@code maxBufferedBytes}.
+     */
+    static DistributedFS over(DistributedFS dfs, long fileLength, int blockSize, int depth, long maxBufferedBytes,
+                              Executor executor) {
+        return over(dfs, fileLength, fileLength, blockSize, depth, maxBufferedBytes, executor, ReadGovernor.unlimited());
+    }
+
+    /**
+     * Like {@link #over(DistributedFS, long, int, int, long, Executor)}, reading ahead no further than {@code end}
+     * and within the budget of {@code governor}.
+     */
+    static DistributedFS over(DistributedFS dfs, long end, long fileLength, int blockSize, int depth,
+                              long maxBufferedBytes, Executor executor, ReadGovernor governor) {
+        int cappedDepth = (int) Math.max(1, Math.min(depth, maxBufferedBytes / blockSize));
+        return new DistributedFS() {
+            @Override
+            public long fileLength() {
+                return fileLength;
+            }
+
+            @Override
+            public InputStream getData(long offset) {
+                return new PrefetchingInputStream(dfs, offset, end, fileLength, blockSize, cappedDepth, executor,
+                    governor);
+            }
+
+            @Override
+            public CompletableFuture<byte[]> getData(long offset, int length) {
+                return dfs.getData(offset, length);
+            }
+
+            @Override
+            public CompletableFuture<List<byte[]>> getDataVectored(List<FileRange> ranges) {
+                return dfs.getDataVectored(ranges);
+            }
+        };
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (position == current.length && !nextBlock()) {
+            return -1;
+        }
+        int n = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        releaseCurrent();
+        for (CompletableFuture<byte[]> fetch : pending) {
+            // Fetches not issued yet never will be; the others hold their budget until their bytes are in
+            if (admitted.poll()) {
+                fetch.whenComplete((data, error) -> governor.releaseReserved(blockSize));
+            }
+        }
+        pending.clear();
+        admitted.clear();
+    }
+
+    private boolean nextBlock() throws IOException {
+        if (pending.isEmpty() && !closed && nextFetchOffset < fileLength) {
+            // Past the end of the range: fetch only what the reader asks for
+            fetchLimit = Math.min(fileLength, nextFetchOffset + tailBlockSize);
+            tailBlockSize = (int) Math.min(blockSize, 2L * tailBlockSize);
+            fill();
+        }
+        CompletableFuture<byte[]> fetch = pending.poll();
+        if (fetch == null || closed) {
+            return false;
+        }
+        releaseCurrent();
+        currentAdmitted = admitted.poll();
+        // Keep the pipeline full before waiting on the head
+        fill();
+        try {
+            current = fetch.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Read-ahead cancelled");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            throw new IOException("Read-ahead fetch failed", cause);
+        }
+        position = 0;
+        return current.length > 0;
+    }
+
+    private void releaseCurrent() {
+        if (currentAdmitted) {
+            governor.releaseReserved(blockSize);
+            currentAdmitted = false;
+        }
+        current = EMPTY;
+        position = 0;
+    }
+
+    private void fill() {
+        while (pending.size() < depth && nextFetchOffset < fetchLimit) {
+            // The next block is part of the reader's working set; later ones need free budget
+            boolean fetchAdmitted = !pending.isEmpty();
+            if (fetchAdmitted && !governor.tryReserve(blockSize)) {
+                return;
+            }
+            admitted.add(fetchAdmitted);
+            long blockOffset = nextFetchOffset;
+            int length = (int) Math.min(blockSize, fetchLimit - blockOffset);
+            // A backend with asynchronous ranged reads only holds the executor thread to issue the call
+            pending.add(CompletableFuture.supplyAsync(
+                    () -> closed ? CompletableFuture.completedFuture(EMPTY) : dfs.getData(blockOffset, length), executor)
+                .thenCompose(fetch -> fetch));
+            nextFetchOffset += length;
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package org.example;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Handle on a job that reports its running result while it runs.
+ *
+ * Every time a split finishes, the result over the splits finished so far is
+ * published as a {@link JobProgress}, in completion order, to the job's
+ * listener and to {@link #latest()}. The last progress, which is final,
+ * is published before {@link #result()} completes.
+ *
+ * Publishing is cheap for the thread that finished the split: the running
+ * totals are updated in place, a progress shares the split lists of the job
+ * instead of copying them, its line analytics are only merged once its result
+ * is asked for, outside the job's lock, and the listener is called one progress at a time
+ * on the notification executor, never on a dispatch thread or under the job's
+ * lock. The engine scans the splits of a progressive job with a line sink, so
+ * that a "\r\n" is one line break and the line counts are exact.
+ *
+ * With a sample fraction configured, the engine scans line-aligned splits in a
+ * seeded random order, and {@link #estimate()} completes as soon as the leading
+ * sample has finished or the sample budget has run out: an early answer over a
+ * spread of the file, together with its coverage. The job then goes on to the
+ * exact answer unless it is cancelled, in which case the splits that have not
+ * finished are reported as failed and can still be scanned later with
+ * {@link DistributedWordCount#retryFailed(WordCountResult)}.
+ */
+final class ProgressiveJob {
+
+    private final Consumer<JobProgress> listener;
+    private final Executor notifier;
+    private final CompletableFuture<JobProgress> estimate = new CompletableFuture<>();
+    private final CompletableFuture<WordCountResult> result = new CompletableFuture<>();
+    private final long startNanos = System.nanoTime();
+
+    // Guarded by this
+    private long fileLength;
+    private int totalSplits;
+    private LineAnalytics emptyAnalytics;
+    private int maxWords;
+    private long coveredBytes;
+    private long lines;
+    private final AppendOnlyList<Split> completed = new AppendOnlyList<>();
+    private final AppendOnlyList<Split> failed = new AppendOnlyList<>();
+    private final AppendOnlyList<PartitionMetrics> partitions = new AppendOnlyList<>();
+    private final Set<Integer> sample = new HashSet<>();
+    private int sampleFinished;
+    private volatile JobProgress latest;
+    // The analytics of the first partitions merged, kept to build later results from; never modified
+    private volatile MergedAnalytics lastMerged;
+    private Runnable canceller;
+    private boolean cancelled;
+
+    // Guarded by notifications: what is left to hand to the listener, in order
+    private final Queue<Runnable> notifications = new ArrayDeque<>();
+    private boolean notifying;
+
+    /**
+     * A job that calls {@code listener}, unless it is null, on {@code notifier}.
+     */
+    ProgressiveJob(Consumer<JobProgress> listener, Executor notifier) {
+        this.listener = listener;
+        this.notifier = notifier;
+    }
+
+    /**
+     * Completes when the sample has been scanned or its budget has run out, and at the latest with the exact result.
+     */
+    CompletableFuture<JobProgress> estimate() {
+        return estimate;
+    }
+
+    CompletableFuture<WordCountResult> result() {
+        return result;
+    }
+
+    /**
+     * The most recent progress, or null while the splits are being planned.
+     */
+    JobProgress latest() {
+        return latest;
+    }
+
+    /**
+     * Stops scanning: the splits that have not finished are cancelled and reported as failed.
+     */
+    void cancel() {
+        Runnable stop;
+        synchronized (this) {
+            cancelled = true;
+            stop = canceller;
+        }
+        if (stop != null) {
+            stop.run();
+        }
+    }
+
+    /**
+     * Called by the engine once the splits are planned, in the order they are scanned;
+     * the first {@code sampleSize} of them are the sample.
+     */
+    synchronized void start(long fileLength, List<Split> splits, int sampleSize, LineAnalytics analytics) {
+        this.fileLength = fileLength;
+        this.totalSplits = splits.size();
+        this.emptyAnalytics = analytics.newEmpty();
+        for (Split split : splits.subList(0, sampleSize)) {
+            sample.add(split.index());
+        }
+        latest = snapshot();
+    }
+
+    /**
+     * Registers how to stop the scan, running it right away if the job was already cancelled.
+     */
+    void onCancel(Runnable canceller) {
+        synchronized (this) {
+            this.canceller = canceller;
+            if (!cancelled) {
+                return;
+            }
+        }
+        canceller.run();
+    }
+
+    void completed(PartitionMetrics partition) {
+        JobProgress progress;
+        synchronized (this) {
+            maxWords = Math.max(maxWords, partition.maxWords());
+            coveredBytes += partition.split().length();
+            lines += partition.lines();
+            completed.add(partition.split());
+            partitions.add(partition);
+            progress = publish(partition.split());
+        }
+        deliver(progress);
+    }
+
+    void failed(Split split) {
+        JobProgress progress;
+        synchronized (this) {
+            failed.add(split);
+            progress = publish(split);
+        }
+        deliver(progress);
+    }
+
+    /**
+     * Completes the estimate with the progress so far, when the sample budget has run out.
+     */
+    void estimateNow() {
+        JobProgress progress = latest;
+        if (progress != null) {
+            estimate.complete(progress);
+        }
+    }
+
+    /**
+     * Completes the job once the listener has seen every progress.
+     */
+    void finish(WordCountResult jobResult, Throwable error) {
+        enqueue(() -> {
+            if (error != null) {
+                estimate.completeExceptionally(error);
+                result.completeExceptionally(error);
+                return;
+            }
+            estimate.complete(new JobProgress(jobResult, totalSplits()));
+            result.complete(jobResult);
+        });
+        drain();
+    }
+
+    private synchronized int totalSplits() {
+        return totalSplits;
+    }
+
+    /**
+     * Makes the next progress the latest and queues it for the listener; returns it if it completes the sample.
+     */
+    private JobProgress publish(Split split) {
+        JobProgress progress = snapshot();
+        latest = progress;
+        if (listener != null) {
+            enqueue(() -> {
+                try {
+                    listener.accept(progress);
+                } catch (RuntimeException e) {
+                    // A faulty listener must not fail the job
+                    System.err.println("Error in progress listener: " + e);
+                }
+            });
+        }
+        return sample.contains(split.index()) && ++sampleFinished == sample.size() ? progress : null;
+    }
+
+    private void deliver(JobProgress sampled) {
+        if (sampled != null) {
+            estimate.complete(sampled);
+        }
+        drain();
+    }
+
+    private void enqueue(Runnable notification) {
+        synchronized (notifications) {
+            notifications.add(notification);
+        }
+    }
+
+    /**
+     * Runs the queued notifications on the notifier, one at a time, unless that is already happening.
+     */
+    private void drain() {
+        synchronized (notifications) {
+            if (notifying || notifications.isEmpty()) {
+                return;
+            }
+            notifying = true;
+        }
+        notifier.execute(() -> {
+            while (true) {
+                Runnable next;
+                synchronized (notifications) {
+                    next = notifications.poll();
+                    if (next == null) {
+                        notifying = false;
+                        return;
+                    }
+                }
+                next.run();
+            }
+        });
+    }
+
+    private JobProgress snapshot() {
+        List<Split> completedSoFar = completed.view();
+        List<Split> failedSoFar = failed.view();
+        List<PartitionMetrics> partitionsSoFar = partitions.view();
+        long wallNanos = System.nanoTime() - startNanos;
+        long fileLength = this.fileLength;
+        int maxWords = this.maxWords;
+        return new JobProgress(fileLength, maxWords, completedSoFar.size() + failedSoFar.size(), totalSplits,
+            coveredBytes, lines, () -> new WordCountResult(fileLength, maxWords, completedSoFar, failedSoFar,
+                merge(partitionsSoFar), new JobMetrics(partitionsSoFar, wallNanos, 0, 0)));
+    }
+
+    /**
+     * The analytics of {@code partitions}, a prefix of the completed partitions, merged; builds on the last
+     * merge when that covers fewer of them. Called without the lock.
+     */
+    private LineAnalytics merge(List<PartitionMetrics> partitions) {
+        MergedAnalytics base = lastMerged;
+        LineAnalytics analytics = emptyAnalytics.newEmpty();
+        int from = 0;
+        if (base != null && base.partitions <= partitions.size()) {
+            analytics.merge(base.analytics);
+            from = base.partitions;
+        }
+        for (PartitionMetrics partition : partitions.subList(from, partitions.size())) {
+            analytics.merge(partition.analytics());
+        }
+        if (from < partitions.size()) {
+            // The result owns its analytics, so the base for later merges is a copy
+            LineAnalytics copy = analytics.newEmpty();
+            copy.merge(analytics);
+            lastMerged = new MergedAnalytics(partitions.size(), copy);
+        }
+        return analytics;
+    }
+
+    private static final class MergedAnalytics {
+        final int partitions;
+        final LineAnalytics analytics;
+
+        MergedAnalytics(int partitions, LineAnalytics analytics) {
+            this.partitions = partitions;
+            this.analytics = analytics;
+        }
+    }
+
+    /**
+     * A list that only grows, whose views stay valid as it does: elements are never overwritten,
+     * and a view only covers the elements added before it was taken.
+     */
+    private static final class AppendOnlyList<T> {
+        private Object[] elements = new Object[16];
+        private int size;
+
+        void add(T element) {
+            if (size == elements.length) {
+                // Views keep the old array, whose elements are all still in place
+                elements = Arrays.copyOf(elements, 2 * size);
+            }
+            elements[size++] = element;
+        }
+
+        @SuppressWarnings("unchecked")
+        List<T> view() {
+            return Collections.unmodifiableList(Arrays.asList((T[]) elements).subList(0, size));
+        }
+    }
+}
@@ -0,0 +1,381 @@
+package org.example;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admission control for DFS reads: caps the bytes buffered by reads and the
+ * number of reads in flight.
+ *
+ * A partition is admitted before it takes a node, with the bytes of its
+ * minimum working set (its read buffer and, with read-ahead, two blocks), and
+ * holds them until it is done. When the budget is used up it waits instead of
+ * adding to the heap, so a budget smaller than the working set of all the
+ * partitions that could run throttles them rather than running out of memory.
+ * Waiting holds no thread: {@link #admit(long)} returns a future, completed in
+ * arrival order by whichever thread returns enough budget. A single request
+ * larger than the budget is admitted once nothing else is in flight.
+ *
+ * Read-ahead beyond the working set only reserves bytes that are free right
+ * now, with {@link #tryReserve(long)}, so under pressure streams simply read
+ * ahead less. Reserved bytes count against the byte budget but take no read
+ * slot: a partition's read-ahead never keeps another partition from starting
+ * under the read limit.
+ *
+ * Governors nest: a job's governor admits a read only within its own limits and
+ * then within those of its parent, the engine's governor shared by all jobs.
+ * Waiting time is recorded for tuning the budget against throughput.
+ */
+final class ReadGovernor {
+
+    private final ReadGovernor parent;
+    private final long maxBytes;
+    private final int maxReads;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // Guarded by lock
+    private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+    private long bytes;             // Held by admitted reads
+    private long reservedBytes;     // Held by read-ahead
+    private int reads;
+    private long peakBytes;
+    private int peakReads;
+    private long admissions;
+    private long waits;
+    private long waitNanos;
+    private long declined;
+
+    /**
+     * A governor allowing {@code maxBytes} buffered bytes and {@code maxReads} reads at once, within the
+     * limits of {@code parent} unless that is null; a limit of 0 means unlimited.
+     */
+    ReadGovernor(long maxBytes, int maxReads, ReadGovernor parent) {
+        if (maxBytes < 0 || maxReads < 0) {
+            throw new IllegalArgumentException("Limits must not be negative: " + maxBytes + ", " + maxReads);
+        }
+        this.parent = parent;
+        this.maxBytes = maxBytes == 0 ? Long.MAX_VALUE : maxBytes;
+        this.maxReads = maxReads == 0 ? Integer.MAX_VALUE : maxReads;
+    }
+
+    /**
+     * A governor that admits everything and only keeps the statistics.
+     */
+    static ReadGovernor unlimited() {
+        return new ReadGovernor(0, 0, null);
+    }
+
+    /**
+     * Admits one more read with {@code bytes} buffered bytes once it fits. The future completes with the time
+     * spent waiting; cancelling it withdraws the request, or returns the read if it was admitted meanwhile.
+     */
+    CompletableFuture<Long> admit(long bytes) {
+        CompletableFuture<Long> own = acquire(bytes);
+        if (parent == null) {
+            return own;
+        }
+        CompletableFuture<Long> admitted = new CompletableFuture<>();
+        own.whenComplete((waited, error) -> {
+            if (error != null) {
+                admitted.completeExceptionally(error);
+                return;
+            }
+            CompletableFuture<Long> outer = parent.admit(bytes);
+            admitted.whenComplete((result, withdrawn) -> outer.cancel(false));
+            outer.whenComplete((outerWaited, outerError) -> {
+                if (outerError != null) {
+                    releaseOwn(bytes);
+                    admitted.completeExceptionally(outerError);
+                } else if (!admitted.complete(waited + outerWaited)) {
+                    release(bytes);
+                }
+            });
+        });
+        admitted.whenComplete((result, withdrawn) -> own.cancel(false));
+        return admitted;
+    }
+
+    /**
+     * Takes one more read with {@code bytes} buffered bytes only if it fits right now, ahead of no waiting read.
+     */
+    boolean tryAdmit(long bytes) {
+        lock.lock();
+        try {
+            if (hasWaiters() || !fits(bytes)) {
+                declined++;
+                return false;
+            }
+            take(bytes);
+        } finally {
+            lock.unlock();
+        }
+        if (parent != null && !parent.tryAdmit(bytes)) {
+            releaseOwn(bytes);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns a read admitted with {@code bytes} buffered bytes.
+     */
+    void release(long bytes) {
+        releaseOwn(bytes);
+        if (parent != null) {
+            parent.release(bytes);
+        }
+    }
+
+    /**
+     * Reserves {@code bytes} of read-ahead only if they fit in the byte budget right now, ahead of no
+     * waiting read. Reserved bytes take no read slot.
+     */
+    boolean tryReserve(long bytes) {
+        lock.lock();
+        try {
+            if (hasWaiters() || this.bytes + reservedBytes + clamp(bytes) > maxBytes) {
+                declined++;
+                return false;
+            }
+            reservedBytes += clamp(bytes);
+            peakBytes = Math.max(peakBytes, this.bytes + reservedBytes);
+        } finally {
+            lock.unlock();
+        }
+        if (parent != null && !parent.tryReserve(bytes)) {
+            unreserveOwn(bytes);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns {@code bytes} reserved with {@link #tryReserve(long)}.
+     */
+    void releaseReserved(long bytes) {
+        unreserveOwn(bytes);
+        if (parent != null) {
+            parent.releaseReserved(bytes);
+        }
+    }
+
+    /**
+     * Bytes held by admitted reads and reserved read-ahead.
+     */
+    long bytesInFlight() {
+        lock.lock();
+        try {
+            return bytes + reservedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Bytes reserved by read-ahead.
+     */
+    long reservedBytesInFlight() {
+        lock.lock();
+        try {
+            return reservedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int readsInFlight() {
+        lock.lock();
+        try {
+            return reads;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long peakBytesInFlight() {
+        lock.lock();
+        try {
+            return peakBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int peakReadsInFlight() {
+        lock.lock();
+        try {
+            return peakReads;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Number of reads admitted with {@link #admit(long)}.
+     */
+    long admissions() {
+        lock.lock();
+        try {
+            return admissions;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Number of admissions that had to wait for budget.
+     */
+    long waits() {
+        lock.lock();
+        try {
+            return waits;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long waitNanos() {
+        lock.lock();
+        try {
+            return waitNanos;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Number of {@link #tryAdmit(long)} and {@link #tryReserve(long)} calls turned down, such as read-ahead
+     * blocks not fetched.
+     */
+    long declined() {
+        lock.lock();
+        try {
+            return declined;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private CompletableFuture<Long> acquire(long bytes) {
+        lock.lock();
+        try {
+            admissions++;
+            if (!hasWaiters() && fits(bytes)) {
+                take(bytes);
+                return CompletableFuture.completedFuture(0L);
+            }
+            waits++;
+            Waiter waiter = new Waiter(bytes);
+            waiters.add(waiter);
+            return waiter.admitted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void releaseOwn(long bytes) {
+        List<Waiter> granted;
+        lock.lock();
+        try {
+            this.bytes -= clamp(bytes);
+            this.reads--;
+            granted = grantWaiters();
+        } finally {
+            lock.unlock();
+        }
+        complete(granted);
+    }
+
+    private void unreserveOwn(long bytes) {
+        List<Waiter> granted;
+        lock.lock();
+        try {
+            reservedBytes -= clamp(bytes);
+            granted = grantWaiters();
+        } finally {
+            lock.unlock();
+        }
+        complete(granted);
+    }
+
+    /**
+     * Admits the waiters that fit now, in arrival order; their futures are completed outside the lock.
+     */
+    private List<Waiter> grantWaiters() {
+        List<Waiter> granted = new ArrayList<>();
+        while (hasWaiters() && fits(waiters.peek().bytes)) {
+            Waiter waiter = waiters.poll();
+            take(waiter.bytes);
+            waiter.waitedNanos = System.nanoTime() - waiter.startNanos;
+            waitNanos += waiter.waitedNanos;
+            granted.add(waiter);
+        }
+        return granted;
+    }
+
+    private void complete(List<Waiter> granted) {
+        for (Waiter waiter : granted) {
+            if (!waiter.admitted.complete(waiter.waitedNanos)) {
+                // Withdrawn meanwhile
+                releaseOwn(waiter.bytes);
+            }
+        }
+    }
+
+    /**
+     * Whether a read is waiting, dropping the withdrawn ones at the head of the queue.
+     */
+    private boolean hasWaiters() {
+        while (!waiters.isEmpty() && waiters.peek().admitted.isDone()) {
+            waiters.poll();
+        }
+        return !waiters.isEmpty();
+    }
+
+    private boolean fits(long bytes) {
+        if (reads == 0) {
+            return true;
+        }
+        return reads < maxReads && this.bytes + reservedBytes + clamp(bytes) <= maxBytes;
+    }
+
+    private void take(long bytes) {
+        this.bytes += clamp(bytes);
+        this.reads++;
+        peakBytes = Math.max(peakBytes, this.bytes + reservedBytes);
+        peakReads = Math.max(peakReads, reads);
+    }
+
+    private long clamp(long bytes) {
+        return Math.min(bytes, maxBytes);
+    }
+
+    @Override
+    public String toString() {
+        lock.lock();
+        try {
+            return "ReadGovernor{bytes=" + (bytes + reservedBytes) + "/"
+                + (maxBytes == Long.MAX_VALUE ? "unlimited" : maxBytes) + " (read-ahead " + reservedBytes + ")"
+                + ", reads=" + reads + "/" + (maxReads == Integer.MAX_VALUE ? "unlimited" : maxReads)
+                + ", waits=" + waits + "/" + admissions + " (" + TimeUnit.NANOSECONDS.toMillis(waitNanos) + "ms)"
+                + ", declined=" + declined + "}";
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class Waiter {
+        final long bytes;
+        final long startNanos = System.nanoTime();
+        final CompletableFuture<Long> admitted = new CompletableFuture<>();
+        long waitedNanos;       // Guarded by lock
+
+        Waiter(long bytes) {
+            this.bytes = bytes;
+        }
+    }
+}
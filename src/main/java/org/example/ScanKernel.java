@@ -0,0 +1,38 @@
+package org.example;
+
+/**
+ * The byte-classification loops behind {@link LineScanner} and {@link PartitionReader}.
+ *
+ * Whitespace and line breaks are the sets documented on {@link LineScanner}.
+ * Every implementation must produce exactly the same results as
+ * {@link ScanKernels#SCALAR}; {@link ScanKernels#best()} picks the fastest one
+ * available at runtime.
+ */
+interface ScanKernel {
+
+    /**
+     * Scans {@code len} bytes of {@code buf} starting at {@code off}, continuing from and updating {@code state}.
+     * Every line break ends a line, so "\r\n" ends two.
+     */
+    void scan(byte[] buf, int off, int len, State state);
+
+    /**
+     * Counts the words in {@code buf[off, off + len)}.
+     */
+    int countWords(byte[] buf, int off, int len);
+
+    /**
+     * Index of the first line break in {@code buf[off, off + len)}, or -1.
+     */
+    int indexOfLineBreak(byte[] buf, int off, int len);
+
+    /**
+     * Scan state carried from one chunk to the next.
+     */
+    final class State {
+        boolean inWord;   // The last byte scanned was part of a word
+        int words;        // Words on the current line so far
+        int maxWords;     // Maximum over the lines ended so far
+        long lines;       // Line breaks seen
+    }
+}
@@ -0,0 +1,129 @@
+package org.example;
+
+/**
+ * The available scan kernels.
+ *
+ * {@link #SCALAR} classifies one byte at a time through lookup tables and works
+ * everywhere. {@link #VECTOR} classifies a whole vector of bytes per step with
+ * the incubating Vector API; it is only built on Java 17+ and only usable when
+ * the JVM was started with {@code --add-modules jdk.incubator.vector}, so it is
+ * looked up at runtime and is null otherwise.
+ *
+ * {@link #best()} only picks the vector kernel on Java 21+: before that, turning
+ * a vector mask into bits is not intrinsified and the vector kernel is slower
+ * than the scalar one. The system property {@code org.example.scanKernel}
+ * ({@code scalar} or {@code vector}) overrides the choice.
+ */
+final class ScanKernels {
+
+    static final String KERNEL_PROPERTY = "org.example.scanKernel";
+
+    static final ScanKernel SCALAR = new Scalar();
+
+    static final ScanKernel VECTOR = loadVectorKernel();
+
+    private static final ScanKernel BEST = choose(System.getProperty(KERNEL_PROPERTY), Runtime.version().feature());
+
+    private ScanKernels() {
+    }
+
+    /**
+     * The kernel for this JVM: the vector one where it is available and fast, else the scalar one.
+     */
+    static ScanKernel best() {
+        return BEST;
+    }
+
+    static ScanKernel choose(String requested, int javaVersion) {
+        if ("scalar".equals(requested) || VECTOR == null) {
+            return SCALAR;
+        }
+        return "vector".equals(requested) || javaVersion >= 21 ? VECTOR : SCALAR;
+    }
+
+    private static ScanKernel loadVectorKernel() {
+        try {
+            // Loaded reflectively: the class is missing from builds on Java 11, and
+            // fails to link without the incubator module
+            Class<?> kernel = Class.forName("org.example.VectorScanKernel");
+            return (ScanKernel) kernel.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * One byte at a time through lookup tables.
+     */
+    static final class Scalar implements ScanKernel {
+
+        static final boolean[] WHITESPACE = new boolean[256];
+        static final boolean[] LINE_BREAK = new boolean[256];
+
+        static {
+            for (char c : new char[] {' ', '\t', '\n', '\u000B', '\f', '\r'}) {
+                WHITESPACE[c] = true;
+            }
+            LINE_BREAK['\n'] = true;
+            LINE_BREAK['\r'] = true;
+        }
+
+        @Override
+        public void scan(byte[] buf, int off, int len, State state) {
+            boolean inWord = state.inWord;
+            int words = state.words;
+            int max = state.maxWords;
+            long lines = state.lines;
+
+            final int end = off + len;
+            for (int i = off; i < end; i++) {
+                int b = buf[i] & 0xFF;
+                if (WHITESPACE[b]) {
+                    inWord = false;
+                    if (LINE_BREAK[b]) {
+                        if (words > max) {
+                            max = words;
+                        }
+                        words = 0;
+                        lines++;
+                    }
+                } else if (!inWord) {
+                    inWord = true;
+                    words++;
+                }
+            }
+
+            state.inWord = inWord;
+            state.words = words;
+            state.maxWords = max;
+            state.lines = lines;
+        }
+
+        @Override
+        public int countWords(byte[] buf, int off, int len) {
+            boolean inWord = false;
+            int words = 0;
+            final int end = off + len;
+            for (int i = off; i < end; i++) {
+                if (WHITESPACE[buf[i] & 0xFF]) {
+                    inWord = false;
+                } else if (!inWord) {
+                    inWord = true;
+                    words++;
+                }
+            }
+            return words;
+        }
+
+        @Override
+        public int indexOfLineBreak(byte[] buf, int off, int len) {
+            final int end = off + len;
+            for (int i = off; i < end; i++) {
+                if (LINE_BREAK[buf[i] & 0xFF]) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package org.example;
+
+/**
+ * A contiguous byte range {@code [start, end)} of the input file processed as one remote task.
+ *
+ * A byte split owns the lines starting in {@code (start, end]} (the first one also
+ * owns offset 0), so it skips its partial first line and finishes the line that
+ * straddles its end. A line-aligned split, cut at line starts from a
+ * {@link LineIndex}, owns exactly the lines in {@code [start, end)}.
+ */
+final class Split {
+
+    private final int index;
+    private final long start;
+    private final long end;
+    private final boolean lineAligned;
+
+    Split(int index, long start, long end) {
+        this(index, start, end, false);
+    }
+
+    Split(int index, long start, long end, boolean lineAligned) {
+        if (start < 0 || end < start) {
+            throw new IllegalArgumentException("Invalid split range [" + start + ", " + end + ")");
+        }
+        this.index = index;
+        this.start = start;
+        this.end = end;
+        this.lineAligned = lineAligned;
+    }
+
+    int index() {
+        return index;
+    }
+
+    long start() {
+        return start;
+    }
+
+    long end() {
+        return end;
+    }
+
+    long length() {
+        return end - start;
+    }
+
+    boolean lineAligned() {
+        return lineAligned;
+    }
+
+    @Override
+    public String toString() {
+        return "Split#" + index + "[" + start + ", " + end + (lineAligned ? "), line-aligned" : ")");
+    }
+}
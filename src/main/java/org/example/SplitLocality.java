@@ -0,0 +1,116 @@
+package org.example;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Remembers which service ID last read each block of a file, so that later
+ * jobs over the same file can send a split back to the node whose
+ * {@link NodeCache} holds most of its blocks.
+ *
+ * Placements are kept per block of {@code blockSize} bytes, the block size of
+ * the node caches, not per split: an appended file keeps its blocks, while the
+ * boundaries of derived splits move with its length. A file that got shorter
+ * was rewritten: its placements are forgotten.
+ *
+ * Files are identified by their DistributedFS instance, and entries go away
+ * with it. Each file also gets an ID that is never reused, which node caches
+ * key their blocks by so that they do not keep the file alive.
+ */
+final class SplitLocality {
+
+    private final int blockSize;
+    private final Map<Object, Placements> files = new WeakHashMap<>();
+    private long nextId = 1;
+
+    SplitLocality(int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("blockSize must be positive: " + blockSize);
+        }
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * The ID of the file, the same for as long as its DistributedFS is in use.
+     */
+    synchronized long id(Object file) {
+        return placements(file).id;
+    }
+
+    /**
+     * Records that the file is {@code fileLength} bytes long, returning false if it was longer
+     * before, in which case its placements are forgotten.
+     */
+    synchronized boolean observe(Object file, long fileLength) {
+        Placements placements = placements(file);
+        boolean unchanged = fileLength >= placements.fileLength;
+        if (!unchanged) {
+            placements.nodes = new int[0];
+        }
+        placements.fileLength = fileLength;
+        return unchanged;
+    }
+
+    /**
+     * The service ID that last read the most blocks of {@code split}, or 0 if there is none.
+     */
+    synchronized int preferredNode(Object file, Split split) {
+        Placements placements = files.get(file);
+        if (placements == null || split.length() <= 0) {
+            return 0;
+        }
+        long first = split.start() / blockSize;
+        long last = Math.min((split.end() - 1) / blockSize, placements.nodes.length - 1L);
+        Map<Integer, Integer> blocksByNode = new HashMap<>();
+        int preferred = 0;
+        int mostBlocks = 0;
+        for (long block = first; block <= last; block++) {
+            int nodeId = placements.nodes[(int) block];
+            if (nodeId == 0) {
+                continue;
+            }
+            int blocks = blocksByNode.merge(nodeId, 1, Integer::sum);
+            if (blocks > mostBlocks) {
+                preferred = nodeId;
+                mostBlocks = blocks;
+            }
+        }
+        return preferred;
+    }
+
+    /**
+     * Records that {@code nodeId} read the blocks of {@code split}.
+     */
+    synchronized void record(Object file, Split split, int nodeId) {
+        if (split.length() <= 0) {
+            return;
+        }
+        long first = split.start() / blockSize;
+        long last = (split.end() - 1) / blockSize;
+        if (last >= Integer.MAX_VALUE - 8) {
+            return; // Beyond what an array can track
+        }
+        Placements placements = placements(file);
+        if (last >= placements.nodes.length) {
+            placements.nodes = Arrays.copyOf(placements.nodes, (int) Math.max(last + 1,
+                Math.min(Integer.MAX_VALUE - 8, 2L * placements.nodes.length)));
+        }
+        Arrays.fill(placements.nodes, (int) first, (int) last + 1, nodeId);
+    }
+
+    private Placements placements(Object file) {
+        return files.computeIfAbsent(file, f -> new Placements(nextId++));
+    }
+
+    private static final class Placements {
+        final long id;
+        int[] nodes = new int[0];   // By block index; 0 where no node has read the block
+        long fileLength;
+
+        Placements(long id) {
+            this.id = id;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Cuts a file into byte-range splits.
+ *
+ * The file is cut into many more splits than there are nodes so that fast nodes
+ * can pull more work than slow ones. Unless a split size is configured, it is
+ * derived: the file gets enough splits for each to take about the target split
+ * duration at the assumed per-node scan rate, and never fewer than
+ * {@code oversplitFactor} splits per node, so that small files still balance,
+ * unless that would make them smaller than the minimum split size: every split
+ * costs a node startup and a DFS round-trip, which a few bytes of scanning
+ * cannot pay back. A file under the minimum split size is a single split.
+ *
+ * Byte splits make every partition probe for its first line. With
+ * {@link #alignToLines} the probes for all the boundaries go out together in one
+ * vectored read instead, and the splits become line-aligned.
+ */
+final class SplitPlanner {
+
+    private SplitPlanner() {
+    }
+
+    static long splitSize(long fileLength, int numNodes, WordCountConfig config) {
+        if (config.splitSize() > 0) {
+            return config.splitSize();
+        }
+        long targetBytes = Math.max(1,
+            config.assumedScanBytesPerSecond() / 1000 * config.targetSplitDurationMillis());
+        long splits = Math.max((long) config.oversplitFactor() * numNodes, (fileLength + targetBytes - 1) / targetBytes);
+        // Rounded down: only the last split may be shorter than the minimum
+        splits = Math.max(1, Math.min(splits, fileLength / config.minSplitSize()));
+        return Math.max(1, (fileLength + splits - 1) / splits);
+    }
+
+    static List<Split> plan(long fileLength, int numNodes, WordCountConfig config) {
+        return plan(0, fileLength, 0, numNodes, config);
+    }
+
+    /**
+     * Cuts {@code [fromOffset, fileLength)} only, numbering the splits from {@code firstIndex};
+     * the split size is derived from the length of that range.
+     */
+    static List<Split> plan(long fromOffset, long fileLength, int firstIndex, int numNodes, WordCountConfig config) {
+        long splitSize = splitSize(fileLength - fromOffset, numNodes, config);
+        List<Split> splits = new ArrayList<>();
+        for (long start = fromOffset; start < fileLength; start += splitSize) {
+            splits.add(new Split(firstIndex + splits.size(), start, Math.min(fileLength, start + splitSize)));
+        }
+        return splits;
+    }
+
+    /**
+     * Cuts {@code [0, fileLength)} into splits of {@code splitSize} bytes, the last one shorter.
+     */
+    static List<Split> cut(long fileLength, long splitSize) {
+        List<Split> splits = new ArrayList<>();
+        for (long start = 0; start < fileLength; start += splitSize) {
+            splits.add(new Split(splits.size(), start, Math.min(fileLength, start + splitSize)));
+        }
+        return splits;
+    }
+
+    /**
+     * Moves the boundaries between {@code splits} to line starts, reading {@code probeBytes} at
+     * every boundary in a single vectored read, and returns line-aligned splits. A boundary with
+     * no line start in its probe, inside a line longer than the probe, is dropped and its two
+     * splits are merged.
+     */
+    static CompletableFuture<List<Split>> alignToLines(DistributedFS dfs, List<Split> splits, long fileLength,
+                                                       int probeBytes) {
+        List<FileRange> probes = new ArrayList<>();
+        for (int i = 1; i < splits.size(); i++) {
+            // From the byte before the boundary: a line break there means a line starts right at it
+            probes.add(new FileRange(splits.get(i).start() - 1, probeBytes));
+        }
+        CompletableFuture<List<byte[]>> windows = probes.isEmpty()
+            ? CompletableFuture.completedFuture(List.of())
+            : dfs.getDataVectored(probes);
+        return windows.thenApply(read -> {
+            List<Split> aligned = new ArrayList<>();
+            if (splits.isEmpty()) {
+                return aligned;
+            }
+            long start = splits.get(0).start();
+            for (int i = 0; i < probes.size(); i++) {
+                long lineStart = lineStart(read.get(i), probes.get(i).offset());
+                if (lineStart > start && lineStart < fileLength) {
+                    aligned.add(new Split(splits.get(0).index() + aligned.size(), start, lineStart, true));
+                    start = lineStart;
+                }
+            }
+            aligned.add(new Split(splits.get(0).index() + aligned.size(), start, fileLength, true));
+            return aligned;
+        });
+    }
+
+    /**
+     * Offset of the line starting after the first line break in {@code window}, or -1 if that is not in the window.
+     */
+    private static long lineStart(byte[] window, long windowOffset) {
+        int lineBreak = LineScanner.indexOfLineBreak(window, 0, window.length);
+        if (lineBreak < 0) {
+            return -1;
+        }
+        if (window[lineBreak] == '\r') {
+            if (lineBreak + 1 == window.length) {
+                // The '\n' of a "\r\n" may follow just past the window
+                return -1;
+            }
+            if (window[lineBreak + 1] == '\n') {
+                lineBreak++;
+            }
+        }
+        return windowOffset + lineBreak + 1;
+    }
+}
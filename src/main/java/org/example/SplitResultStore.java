@@ -0,0 +1,234 @@
+package org.example;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Per-split results of earlier jobs over an append-only file, so that a rerun
+ * only scans what was appended since.
+ *
+ * A checkpoint covers a prefix {@code [0, frontier)} of the file and holds the
+ * byte range and max words of every split in it. Those results are final for as
+ * long as the prefix is unchanged: every line the splits own ends with a line
+ * break inside the prefix. The split holding the last, unterminated line of the
+ * file read up to the end of the file, so it is never checkpointed and is
+ * scanned again together with the appended bytes.
+ *
+ * The prefix is identified by a CRC32 fingerprint of its first and last
+ * {@link #FINGERPRINT_BYTES} bytes, which costs two small reads to verify. A file
+ * that shrank or whose fingerprint changed was rewritten and is scanned from
+ * scratch.
+ *
+ * A store lives in memory, or is persisted to a file that is replaced
+ * atomically on every save and survives restarts.
+ */
+final class SplitResultStore {
+
+    static final int FINGERPRINT_BYTES = 4096;
+
+    private static final int MAGIC = 0x57435352; // "WCSR"
+    private static final int VERSION = 1;
+
+    private final Path path;
+    private Checkpoint checkpoint;
+    private boolean loaded;
+
+    /**
+     * A store that only lives as long as this instance.
+     */
+    SplitResultStore() {
+        this.path = null;
+        this.loaded = true;
+    }
+
+    /**
+     * A store persisted to {@code path}, which is read on first use if it exists.
+     */
+    SplitResultStore(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * The saved checkpoint, or null if there is none or the persisted one is unreadable.
+     */
+    synchronized Checkpoint load() {
+        if (!loaded) {
+            checkpoint = read(path);
+            loaded = true;
+        }
+        return checkpoint;
+    }
+
+    synchronized void save(Checkpoint checkpoint) {
+        if (path != null) {
+            write(path, checkpoint);
+        }
+        this.checkpoint = checkpoint;
+        this.loaded = true;
+    }
+
+    /**
+     * Forgets the checkpoint, so that the next run scans the whole file.
+     */
+    synchronized void clear() {
+        if (path != null) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error deleting " + path, e);
+            }
+        }
+        checkpoint = null;
+        loaded = true;
+    }
+
+    /**
+     * CRC32 of the first and last {@link #FINGERPRINT_BYTES} bytes of {@code [0, length)}.
+     */
+    static long fingerprint(DistributedFS dfs, long length) throws IOException {
+        CRC32 crc = new CRC32();
+        int head = (int) Math.min(FINGERPRINT_BYTES, length);
+        update(crc, dfs, 0, head);
+        // Ranges that fit in two windows are read in one piece
+        long tailStart = Math.max(head, length - FINGERPRINT_BYTES);
+        update(crc, dfs, tailStart, (int) (length - tailStart));
+        return crc.getValue();
+    }
+
+    private static void update(CRC32 crc, DistributedFS dfs, long offset, int length) throws IOException {
+        if (length == 0) {
+            return;
+        }
+        try (InputStream is = dfs.getData(offset)) {
+            byte[] bytes = is.readNBytes(length);
+            if (bytes.length < length) {
+                throw new IOException("File ends before offset " + (offset + length));
+            }
+            crc.update(bytes);
+        }
+    }
+
+    private static Checkpoint read(Path path) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                System.err.println("Ignoring " + path + ": not a split result store of version " + VERSION);
+                return null;
+            }
+            long frontier = in.readLong();
+            long fingerprint = in.readLong();
+            int count = in.readInt();
+            List<SplitResult> splits = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                Split split = new Split(in.readInt(), in.readLong(), in.readLong());
+                splits.add(new SplitResult(split, in.readInt()));
+            }
+            return new Checkpoint(frontier, fingerprint, splits);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Ignoring unreadable split result store " + path + ": " + e);
+            return null;
+        }
+    }
+
+    private static void write(Path path, Checkpoint checkpoint) {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(checkpoint.frontier());
+                out.writeLong(checkpoint.fingerprint());
+                out.writeInt(checkpoint.splits().size());
+                for (SplitResult result : checkpoint.splits()) {
+                    out.writeInt(result.split().index());
+                    out.writeLong(result.split().start());
+                    out.writeLong(result.split().end());
+                    out.writeInt(result.maxWords());
+                }
+            }
+            // Readers see either the old checkpoint or the new one, never a torn write
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error saving split results to " + path, e);
+        }
+    }
+
+    /**
+     * Final results of the splits covering {@code [0, frontier)}, in file order.
+     */
+    static final class Checkpoint {
+        private final long frontier;
+        private final long fingerprint;
+        private final List<SplitResult> splits;
+
+        Checkpoint(long frontier, long fingerprint, List<SplitResult> splits) {
+            this.frontier = frontier;
+            this.fingerprint = fingerprint;
+            this.splits = Collections.unmodifiableList(new ArrayList<>(splits));
+        }
+
+        long frontier() {
+            return frontier;
+        }
+
+        long fingerprint() {
+            return fingerprint;
+        }
+
+        List<SplitResult> splits() {
+            return splits;
+        }
+
+        int maxWords() {
+            int maxWords = 0;
+            for (SplitResult result : splits) {
+                maxWords = Math.max(maxWords, result.maxWords());
+            }
+            return maxWords;
+        }
+
+        /**
+         * Whether the first {@code frontier} bytes of a file of {@code fileLength} bytes are still the checkpointed ones.
+         */
+        boolean matches(DistributedFS dfs, long fileLength) throws IOException {
+            return fileLength >= frontier && SplitResultStore.fingerprint(dfs, frontier) == fingerprint;
+        }
+
+        @Override
+        public String toString() {
+            return "Checkpoint{frontier=" + frontier + ", splits=" + splits.size() + "}";
+        }
+    }
+
+    static final class SplitResult {
+        private final Split split;
+        private final int maxWords;
+
+        SplitResult(Split split, int maxWords) {
+            this.split = split;
+            this.maxWords = maxWords;
+        }
+
+        Split split() {
+            return split;
+        }
+
+        int maxWords() {
+            return maxWords;
+        }
+    }
+}
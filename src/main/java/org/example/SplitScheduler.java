@@ -0,0 +1,420 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+/**
+ * Hands splits to whichever remote service ID becomes free.
+ *
+ * Each split requests a service ID from a {@link NodePool}, in order, and is
+ * handed to the local executor only once the pool grants it one, so no local
+ * thread ever waits for a node. A split returns its node when it finishes, so
+ * a node that completes its split quickly immediately pulls the next one
+ * instead of waiting for a statically assigned range. A split submitted with a
+ * preferred service ID, the one that processed it last time, waits up to the
+ * configured locality wait for that node to be free before taking any free
+ * node. The pool may be shared with other schedulers, which then take turns at
+ * its nodes.
+ *
+ * With a {@link ReadGovernor}, every attempt is admitted for its read working
+ * set before it requests a node, so a split waiting for read budget never
+ * holds a node that another split could use.
+ *
+ * With speculative execution enabled, a monitor tracks the runtime of every
+ * split. Once the configured fraction of splits has finished, a split running
+ * longer than the multiplier times the median runtime gets a duplicate attempt
+ * on a spare service ID. Duplicates run on their own executor, never queued
+ * behind pending splits, and take the spare node only once they start.
+ * Whichever attempt finishes first wins and the other is cancelled by
+ * interrupting its local thread.
+ *
+ * A failed split is retried after an exponential backoff, on a different
+ * service ID if one frees up within another backoff period, up to a per-split
+ * retry limit and a per-job retry budget. Only
+ * when those are exhausted does the split's future fail.
+ */
+final class SplitScheduler implements AutoCloseable {
+
+    private final NodePool nodes;
+    private final NodePool.Queue queue;
+    private final ReadGovernor reads;
+    private final long attemptBytes;
+    private final WordCountConfig config;
+    private final List<TrackedSplit<?>> splits = new CopyOnWriteArrayList<>();
+    private final List<Long> completedDurationsNanos = Collections.synchronizedList(new ArrayList<>());
+    private final ScheduledExecutorService timer;
+    private final ExecutorService duplicates;
+    private final boolean ownsExecutors;
+    private final ScheduledFuture<?> speculationTask;
+    private int speculativeAttempts;
+    private int retries;
+
+    /**
+     * Creates a scheduler with service IDs 1 to {@code numNodes} of its own.
+     */
+    SplitScheduler(int numNodes, WordCountConfig config) {
+        this(numNodes, config, Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "split-scheduler-timer");
+            thread.setDaemon(true);
+            return thread;
+        }), Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "split-scheduler-duplicate");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    private SplitScheduler(int numNodes, WordCountConfig config, ScheduledExecutorService timer,
+                           ExecutorService duplicates) {
+        this(new NodePool(numNodes, timer), ReadGovernor.unlimited(), 0, config, timer, duplicates, true);
+    }
+
+    /**
+     * Creates a scheduler that takes its service IDs from the shared {@code nodes}
+     * once {@code reads} admits {@code attemptBytes} for an attempt, drives retry
+     * backoff and straggler checks on a shared timer and runs duplicate attempts
+     * on {@code duplicates}, none of which it shuts down on {@link #close()}.
+     */
+    SplitScheduler(NodePool nodes, ReadGovernor reads, long attemptBytes, WordCountConfig config,
+                   ScheduledExecutorService timer, ExecutorService duplicates) {
+        this(nodes, reads, attemptBytes, config, timer, duplicates, false);
+    }
+
+    private SplitScheduler(NodePool nodes, ReadGovernor reads, long attemptBytes, WordCountConfig config,
+                           ScheduledExecutorService timer, ExecutorService duplicates, boolean ownsExecutors) {
+        this.nodes = nodes;
+        this.queue = nodes.newQueue();
+        this.reads = reads;
+        this.attemptBytes = attemptBytes;
+        this.config = config;
+        this.timer = timer;
+        this.duplicates = duplicates;
+        this.ownsExecutors = ownsExecutors;
+
+        if (config.speculativeExecution()) {
+            long interval = config.speculationIntervalMillis();
+            this.speculationTask = timer.scheduleWithFixedDelay(this::speculate, interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            this.speculationTask = null;
+        }
+    }
+
+    <T> CompletableFuture<T> submit(Split split, BiFunction<Integer, Split, T> task, Executor executor) {
+        return submit(split, 0, task, executor);
+    }
+
+    /**
+     * Submits a split that prefers to run on {@code preferredNodeId}, unless that is 0.
+     */
+    <T> CompletableFuture<T> submit(Split split, int preferredNodeId, BiFunction<Integer, Split, T> task,
+                                    Executor executor) {
+        return submit(split, preferredNodeId, (nodeId, s, admissionWaitNanos) -> task.apply(nodeId, s), executor);
+    }
+
+    /**
+     * Submits a split that prefers to run on {@code preferredNodeId}, unless that is 0, with a task that is told
+     * how long each attempt waited for read admission.
+     */
+    <T> CompletableFuture<T> submit(Split split, int preferredNodeId, SplitTask<T> task, Executor executor) {
+        TrackedSplit<T> tracked = new TrackedSplit<>(split, task, executor);
+        splits.add(tracked);
+        tracked.runOn(() -> preferredNodeId > 0
+            ? queue.acquirePreferred(preferredNodeId, config.localityWaitMillis())
+            : queue.acquire());
+        return tracked.result;
+    }
+
+    /**
+     * Number of duplicate attempts launched so far.
+     */
+    synchronized int speculativeAttempts() {
+        return speculativeAttempts;
+    }
+
+    /**
+     * Number of retries of failed attempts launched so far.
+     */
+    synchronized int retries() {
+        return retries;
+    }
+
+    /**
+     * Stops the timer and cancels every split that has not finished yet, withdrawing its pending node request.
+     */
+    @Override
+    public void close() {
+        if (speculationTask != null) {
+            speculationTask.cancel(false);
+        }
+        if (ownsExecutors) {
+            timer.shutdownNow();
+            duplicates.shutdown();
+        }
+        for (TrackedSplit<?> tracked : splits) {
+            tracked.cancel();
+        }
+    }
+
+    /**
+     * Returns the service ID and the read admission of a finished attempt.
+     */
+    private void releaseAttempt(int nodeId) {
+        nodes.release(nodeId);
+        reads.release(attemptBytes);
+    }
+
+    /**
+     * Takes back a duplicate attempt that found no spare node when it started.
+     */
+    private synchronized void duplicateAbandoned() {
+        speculativeAttempts--;
+    }
+
+    private synchronized boolean takeRetryBudget() {
+        if (retries >= config.retryBudget()) {
+            return false;
+        }
+        retries++;
+        return true;
+    }
+
+    private void speculate() {
+        int total = splits.size();
+        List<Long> durations;
+        synchronized (completedDurationsNanos) {
+            durations = new ArrayList<>(completedDurationsNanos);
+        }
+        if (total == 0 || durations.size() < Math.max(1, Math.ceil(config.speculationQuantile() * total))) {
+            return;
+        }
+
+        Collections.sort(durations);
+        long median = durations.get(durations.size() / 2);
+        long thresholdNanos = Math.max((long) (median * config.speculationMultiplier()),
+            TimeUnit.MILLISECONDS.toNanos(config.speculationMinRuntimeMillis()));
+        long now = System.nanoTime();
+
+        for (TrackedSplit<?> tracked : splits) {
+            if (!tracked.isStraggler(now, thresholdNanos)) {
+                continue;
+            }
+            synchronized (this) {
+                if (speculativeAttempts >= config.maxSpeculativeAttempts()) {
+                    return;
+                }
+                // Only spare nodes are used; never wait for a node to speculate
+                if (nodes.freeNodes() == 0) {
+                    return;
+                }
+                speculativeAttempts++;
+            }
+            // Outside the scheduler's lock, which a finishing attempt takes while holding its split's
+            try {
+                tracked.launchDuplicate();
+            } catch (RejectedExecutionException e) {
+                duplicateAbandoned();
+                return; // The scheduler is closing
+            }
+        }
+    }
+
+    /**
+     * The work of one attempt at a split on service ID {@code nodeId}, after waiting {@code admissionWaitNanos}
+     * for read admission.
+     */
+    interface SplitTask<T> {
+        T run(int nodeId, Split split, long admissionWaitNanos);
+    }
+
+    private final class TrackedSplit<T> {
+        final Split split;
+        final SplitTask<T> task;
+        final Executor executor;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final List<Attempt> attempts = new ArrayList<>();
+        // The read admission or node request of the attempt about to start
+        CompletableFuture<?> pendingRequest;
+        long startNanos;
+        int runningAttempts;
+        int failedAttempts;
+        boolean speculated;
+
+        TrackedSplit(Split split, SplitTask<T> task, Executor executor) {
+            this.split = split;
+            this.task = task;
+            this.executor = executor;
+        }
+
+        synchronized boolean isStraggler(long now, long thresholdNanos) {
+            return !result.isDone() && !speculated && startNanos != 0 && now - startNanos > thresholdNanos;
+        }
+
+        synchronized void launchDuplicate() {
+            duplicates.execute(() -> {
+                // Never wait to speculate: only read budget and a node that are spare right now
+                boolean admitted = reads.tryAdmit(attemptBytes);
+                int nodeId = admitted ? nodes.poll() : 0;
+                if (nodeId == 0) {
+                    if (admitted) {
+                        reads.release(attemptBytes);
+                    }
+                    // The spare node or budget went to a pending split first; speculate again later
+                    synchronized (this) {
+                        speculated = false;
+                    }
+                    duplicateAbandoned();
+                    return;
+                }
+                run(nodeId, 0, true);
+            });
+            speculated = true;
+        }
+
+        synchronized void cancel() {
+            result.cancel(false);
+            if (pendingRequest != null) {
+                pendingRequest.cancel(false);
+            }
+            for (Attempt attempt : attempts) {
+                attempt.cancel();
+            }
+        }
+
+        /**
+         * Runs an attempt on the local executor once it is admitted for its reads and then granted the node
+         * it requests from {@code nodeRequest}. Neither wait holds a thread.
+         */
+        void runOn(Supplier<CompletableFuture<Integer>> nodeRequest) {
+            CompletableFuture<Long> admission = reads.admit(attemptBytes);
+            track(admission);
+            admission.thenAccept(admissionWaitNanos -> {
+                if (result.isDone()) {
+                    reads.release(attemptBytes);
+                    return;
+                }
+                CompletableFuture<Integer> node = nodeRequest.get();
+                track(node);
+                node.whenComplete((nodeId, withdrawn) -> {
+                    if (withdrawn != null) {
+                        reads.release(attemptBytes);
+                        return;
+                    }
+                    try {
+                        executor.execute(() -> run(nodeId, admissionWaitNanos, false));
+                    } catch (RejectedExecutionException e) {
+                        releaseAttempt(nodeId);
+                        result.completeExceptionally(e);
+                    }
+                });
+            });
+        }
+
+        /**
+         * Keeps {@code request} to be withdrawn on {@link #cancel()}, withdrawing it right away if the split is
+         * done already. One granted regardless is returned by the attempt it starts.
+         */
+        private synchronized void track(CompletableFuture<?> request) {
+            pendingRequest = request;
+            if (result.isDone()) {
+                request.cancel(false);
+            }
+        }
+
+        private void retry(int failedNodeId) {
+            long backoff = config.retryBackoffMillis() << Math.min(failedAttempts - 1, 16);
+            timer.schedule(() -> {
+                if (!result.isDone()) {
+                    runOn(() -> queue.acquireAvoiding(failedNodeId, config.retryBackoffMillis()));
+                }
+            }, backoff, TimeUnit.MILLISECONDS);
+        }
+
+        private boolean tryRetry(int failedNodeId) {
+            try {
+                retry(failedNodeId);
+                return true;
+            } catch (RejectedExecutionException e) {
+                return false; // The scheduler is closing
+            }
+        }
+
+        void run(int nodeId, long admissionWaitNanos, boolean speculative) {
+            Attempt attempt = new Attempt(Thread.currentThread());
+            synchronized (this) {
+                if (result.isDone()) {
+                    releaseAttempt(nodeId);
+                    return;
+                }
+                if (!speculative) {
+                    startNanos = System.nanoTime();
+                }
+                attempts.add(attempt);
+                runningAttempts++;
+            }
+
+            Throwable failure = null;
+            T value = null;
+            try {
+                value = task.run(nodeId, split, admissionWaitNanos);
+            } catch (Throwable t) {
+                failure = t;
+            } finally {
+                attempt.finish();
+                // Drop an interrupt that cancelled this attempt before the thread is reused
+                Thread.interrupted();
+                releaseAttempt(nodeId);
+            }
+
+            synchronized (this) {
+                runningAttempts--;
+                if (failure == null) {
+                    if (result.complete(value)) {
+                        completedDurationsNanos.add(System.nanoTime() - startNanos);
+                        // First finisher wins: cancel the losers
+                        for (Attempt other : attempts) {
+                            other.cancel();
+                        }
+                    }
+                } else if (runningAttempts == 0 && !result.isDone()) {
+                    failedAttempts++;
+                    if (failedAttempts <= config.maxSplitRetries() && takeRetryBudget() && tryRetry(nodeId)) {
+                        // Not a straggler while it waits for the backoff to expire
+                        startNanos = 0;
+                    } else {
+                        result.completeExceptionally(failure);
+                    }
+                }
+            }
+        }
+    }
+
+    private static final class Attempt {
+        private Thread thread;
+
+        Attempt(Thread thread) {
+            this.thread = thread;
+        }
+
+        synchronized void cancel() {
+            if (thread != null) {
+                thread.interrupt();
+            }
+        }
+
+        synchronized void finish() {
+            thread = null;
+        }
+    }
+}
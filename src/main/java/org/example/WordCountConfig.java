@@ -0,0 +1,667 @@
+package org.example;
+
+/**
+ * Tuning knobs for a word count job.
+ *
+ * Instances are immutable; use {@link #builder()} to override the defaults.
+ */
+final class WordCountConfig {
+
+    static final int DEFAULT_READ_BUFFER_SIZE = 64 * 1024;
+    static final int DEFAULT_READ_AHEAD_BLOCK_SIZE = 1024 * 1024;
+    static final int DEFAULT_NODE_CACHE_BLOCK_SIZE = 256 * 1024;
+    static final long DEFAULT_READ_AHEAD_MAX_BYTES = 16L * 1024 * 1024;
+    static final long DEFAULT_LINE_INDEX_INTERVAL = 1024 * 1024;
+    static final long DEFAULT_TARGET_SPLIT_DURATION_MILLIS = 2000;
+    static final long DEFAULT_ASSUMED_SCAN_BYTES_PER_SECOND = 100L * 1024 * 1024;
+    static final int DEFAULT_OVERSPLIT_FACTOR = 4;
+    static final long DEFAULT_MIN_SPLIT_SIZE = 64 * 1024;
+    static final double DEFAULT_SPECULATION_QUANTILE = 0.75;
+    static final double DEFAULT_SPECULATION_MULTIPLIER = 1.5;
+    static final int DEFAULT_MAX_SPECULATIVE_ATTEMPTS = 10;
+    static final long DEFAULT_SPECULATION_INTERVAL_MILLIS = 50;
+    static final int DEFAULT_MAX_SPLIT_RETRIES = 3;
+    static final int DEFAULT_RETRY_BUDGET = 100;
+    static final long DEFAULT_RETRY_BACKOFF_MILLIS = 100;
+
+    private final DispatchMode dispatchMode;
+    private final int dispatchThreads;
+    private final int readBufferSize;
+    private final int readAheadDepth;
+    private final int readAheadBlockSize;
+    private final long readAheadMaxBytes;
+    private final long splitSize;
+    private final long targetSplitDurationMillis;
+    private final long assumedScanBytesPerSecond;
+    private final boolean speculativeExecution;
+    private final double speculationQuantile;
+    private final double speculationMultiplier;
+    private final long speculationMinRuntimeMillis;
+    private final int maxSpeculativeAttempts;
+    private final long speculationIntervalMillis;
+    private final int maxSplitRetries;
+    private final int retryBudget;
+    private final long retryBackoffMillis;
+    private final long jobDeadlineMillis;
+    private final boolean registerMBean;
+    private final long lineIndexInterval;
+    private final int boundaryProbeBytes;
+    private final double sampleFraction;
+    private final long sampleSeed;
+    private final long sampleBudgetMillis;
+    private final long readBudgetBytes;
+    private final int maxConcurrentReads;
+    private final long jobReadBudgetBytes;
+    private final int jobMaxConcurrentReads;
+    private final long localityWaitMillis;
+    private final long nodeCacheBytes;
+    private final int nodeCacheBlockSize;
+    private final int oversplitFactor;
+    private final long minSplitSize;
+
+    private WordCountConfig(Builder builder) {
+        this.dispatchMode = builder.dispatchMode;
+        this.dispatchThreads = builder.dispatchThreads;
+        this.readBufferSize = builder.readBufferSize;
+        this.readAheadDepth = builder.readAheadDepth;
+        this.readAheadBlockSize = builder.readAheadBlockSize;
+        this.readAheadMaxBytes = builder.readAheadMaxBytes;
+        this.splitSize = builder.splitSize;
+        this.targetSplitDurationMillis = builder.targetSplitDurationMillis;
+        this.assumedScanBytesPerSecond = builder.assumedScanBytesPerSecond;
+        this.speculativeExecution = builder.speculativeExecution;
+        this.speculationQuantile = builder.speculationQuantile;
+        this.speculationMultiplier = builder.speculationMultiplier;
+        this.speculationMinRuntimeMillis = builder.speculationMinRuntimeMillis;
+        this.maxSpeculativeAttempts = builder.maxSpeculativeAttempts;
+        this.speculationIntervalMillis = builder.speculationIntervalMillis;
+        this.maxSplitRetries = builder.maxSplitRetries;
+        this.retryBudget = builder.retryBudget;
+        this.retryBackoffMillis = builder.retryBackoffMillis;
+        this.jobDeadlineMillis = builder.jobDeadlineMillis;
+        this.registerMBean = builder.registerMBean;
+        this.lineIndexInterval = builder.lineIndexInterval;
+        this.boundaryProbeBytes = builder.boundaryProbeBytes;
+        this.sampleFraction = builder.sampleFraction;
+        this.sampleSeed = builder.sampleSeed;
+        this.sampleBudgetMillis = builder.sampleBudgetMillis;
+        this.readBudgetBytes = builder.readBudgetBytes;
+        this.maxConcurrentReads = builder.maxConcurrentReads;
+        this.jobReadBudgetBytes = builder.jobReadBudgetBytes;
+        this.jobMaxConcurrentReads = builder.jobMaxConcurrentReads;
+        this.localityWaitMillis = builder.localityWaitMillis;
+        this.nodeCacheBytes = builder.nodeCacheBytes;
+        this.nodeCacheBlockSize = builder.nodeCacheBlockSize;
+        this.oversplitFactor = builder.oversplitFactor;
+        this.minSplitSize = builder.minSplitSize;
+    }
+
+    static WordCountConfig defaults() {
+        return builder().build();
+    }
+
+    static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Whether an engine waits on remote calls from a fixed thread pool or from virtual threads.
+     */
+    DispatchMode dispatchMode() {
+        return dispatchMode;
+    }
+
+    /**
+     * Number of local threads a {@link DispatchMode#FIXED_POOL} engine uses to wait on outstanding
+     * remote calls, shared by all its jobs.
+     */
+    int dispatchThreads() {
+        return dispatchThreads;
+    }
+
+    /**
+     * Size of the reusable buffer each node streams its partition through.
+     * Peak memory per partition is bounded by this value, not by the partition size.
+     */
+    int readBufferSize() {
+        return readBufferSize;
+    }
+
+    /**
+     * Number of block fetches each partition keeps in flight ahead of its scanner, or 0 to read
+     * the partition as one plain stream.
+     */
+    int readAheadDepth() {
+        return readAheadDepth;
+    }
+
+    /**
+     * Size of one read-ahead fetch.
+     */
+    int readAheadBlockSize() {
+        return readAheadBlockSize;
+    }
+
+    /**
+     * Upper bound on the bytes one partition buffers ahead; caps the effective read-ahead depth.
+     */
+    long readAheadMaxBytes() {
+        return readAheadMaxBytes;
+    }
+
+    /**
+     * Fixed split size in bytes, or 0 to derive it from the file length and
+     * {@link #targetSplitDurationMillis()}.
+     */
+    long splitSize() {
+        return splitSize;
+    }
+
+    /**
+     * How long one split should take to scan when the split size is derived automatically.
+     */
+    long targetSplitDurationMillis() {
+        return targetSplitDurationMillis;
+    }
+
+    /**
+     * Expected scan rate of a single node, used to turn the target split duration into bytes.
+     */
+    long assumedScanBytesPerSecond() {
+        return assumedScanBytesPerSecond;
+    }
+
+    /**
+     * Whether straggling splits get a duplicate attempt on a spare service ID.
+     */
+    boolean speculativeExecution() {
+        return speculativeExecution;
+    }
+
+    /**
+     * Fraction of splits that must have finished before any split is speculated.
+     */
+    double speculationQuantile() {
+        return speculationQuantile;
+    }
+
+    /**
+     * A split is a straggler once it has run this many times longer than the median finished split.
+     */
+    double speculationMultiplier() {
+        return speculationMultiplier;
+    }
+
+    /**
+     * Lower bound on the straggler threshold, so very short jobs are never speculated.
+     */
+    long speculationMinRuntimeMillis() {
+        return speculationMinRuntimeMillis;
+    }
+
+    /**
+     * Maximum number of duplicate attempts launched per job.
+     */
+    int maxSpeculativeAttempts() {
+        return maxSpeculativeAttempts;
+    }
+
+    /**
+     * How often running splits are checked for stragglers.
+     */
+    long speculationIntervalMillis() {
+        return speculationIntervalMillis;
+    }
+
+    /**
+     * How many times a failed split is retried on another service ID before it is reported as failed.
+     */
+    int maxSplitRetries() {
+        return maxSplitRetries;
+    }
+
+    /**
+     * Total number of retries a single job may spend across all of its splits.
+     */
+    int retryBudget() {
+        return retryBudget;
+    }
+
+    /**
+     * Delay before the first retry of a split; doubled for every further retry.
+     */
+    long retryBackoffMillis() {
+        return retryBackoffMillis;
+    }
+
+    /**
+     * Wall-clock limit for a job, or 0 for none. Splits still running at the
+     * deadline are cancelled and reported as failed.
+     */
+    long jobDeadlineMillis() {
+        return jobDeadlineMillis;
+    }
+
+    /**
+     * Whether the engine registers its {@link WordCountEngineMXBean} with the platform MBean server.
+     */
+    boolean registerMBean() {
+        return registerMBean;
+    }
+
+    /**
+     * Bytes per bucket of a newly built {@link LineIndex}: the index holds at most one line start per bucket.
+     */
+    long lineIndexInterval() {
+        return lineIndexInterval;
+    }
+
+    /**
+     * Bytes read at every split boundary, in one vectored read before the job starts, to move the
+     * boundaries to line starts; 0 to let every partition probe for its first line while reading.
+     */
+    int boundaryProbeBytes() {
+        return boundaryProbeBytes;
+    }
+
+    /**
+     * Fraction of the splits of a progressive job that are scanned first, in a seeded random order,
+     * for its estimate; 0 to scan the splits in file order.
+     */
+    double sampleFraction() {
+        return sampleFraction;
+    }
+
+    /**
+     * Seed of the random order in which a progressive job samples splits.
+     */
+    long sampleSeed() {
+        return sampleSeed;
+    }
+
+    /**
+     * Time after which a progressive job reports its estimate even if the sample is not finished;
+     * 0 to wait for the whole sample.
+     */
+    long sampleBudgetMillis() {
+        return sampleBudgetMillis;
+    }
+
+    /**
+     * Bytes that the reads of all the jobs of an engine may buffer at once; 0 for no limit.
+     * Partitions over budget wait, see {@link ReadGovernor}.
+     */
+    long readBudgetBytes() {
+        return readBudgetBytes;
+    }
+
+    /**
+     * DFS reads that all the jobs of an engine may have in flight at once; 0 for no limit.
+     * Read-ahead fetches do not count as reads; their bytes count against the byte budget.
+     */
+    int maxConcurrentReads() {
+        return maxConcurrentReads;
+    }
+
+    /**
+     * Bytes that the reads of a single job may buffer at once; 0 for no limit.
+     */
+    long jobReadBudgetBytes() {
+        return jobReadBudgetBytes;
+    }
+
+    /**
+     * DFS reads that a single job may have in flight at once; 0 for no limit.
+     */
+    int jobMaxConcurrentReads() {
+        return jobMaxConcurrentReads;
+    }
+
+    /**
+     * How long a split waits for the service ID that last processed it before taking any free
+     * node; 0 takes that node only if it is free at once.
+     */
+    long localityWaitMillis() {
+        return localityWaitMillis;
+    }
+
+    /**
+     * Bytes of file data that every service ID keeps in its node-local cache across jobs;
+     * 0 disables the caches.
+     */
+    long nodeCacheBytes() {
+        return nodeCacheBytes;
+    }
+
+    /**
+     * Size of the blocks held in node-local caches.
+     */
+    int nodeCacheBlockSize() {
+        return nodeCacheBlockSize;
+    }
+
+    /**
+     * Minimum number of splits per node when the split size is derived automatically.
+     */
+    int oversplitFactor() {
+        return oversplitFactor;
+    }
+
+    /**
+     * Smallest split a derived split size may produce, so that a small file gets fewer splits\nthan the oversplit factor asks for rather than splits of a few bytes.
+     */
+    long minSplitSize() {
+        return minSplitSize;
+    }
+
+    static final class Builder {
+        private DispatchMode dispatchMode = DispatchMode.FIXED_POOL;
+        private int dispatchThreads = WordCountEngine.DEFAULT_DISPATCH_THREADS;
+        private int readBufferSize = DEFAULT_READ_BUFFER_SIZE;
+        private int readAheadDepth = 0;
+        private int readAheadBlockSize = DEFAULT_READ_AHEAD_BLOCK_SIZE;
+        private long readAheadMaxBytes = DEFAULT_READ_AHEAD_MAX_BYTES;
+        private long splitSize = 0;
+        private long targetSplitDurationMillis = DEFAULT_TARGET_SPLIT_DURATION_MILLIS;
+        private long assumedScanBytesPerSecond = DEFAULT_ASSUMED_SCAN_BYTES_PER_SECOND;
+        private boolean speculativeExecution = false;
+        private double speculationQuantile = DEFAULT_SPECULATION_QUANTILE;
+        private double speculationMultiplier = DEFAULT_SPECULATION_MULTIPLIER;
+        private long speculationMinRuntimeMillis = 0;
+        private int maxSpeculativeAttempts = DEFAULT_MAX_SPECULATIVE_ATTEMPTS;
+        private long speculationIntervalMillis = DEFAULT_SPECULATION_INTERVAL_MILLIS;
+        private int maxSplitRetries = DEFAULT_MAX_SPLIT_RETRIES;
+        private int retryBudget = DEFAULT_RETRY_BUDGET;
+        private long retryBackoffMillis = DEFAULT_RETRY_BACKOFF_MILLIS;
+        private long jobDeadlineMillis = 0;
+        private boolean registerMBean = true;
+        private long lineIndexInterval = DEFAULT_LINE_INDEX_INTERVAL;
+        private int boundaryProbeBytes = 0;
+        private double sampleFraction = 0;
+        private long sampleSeed = 0;
+        private long sampleBudgetMillis = 0;
+        private long readBudgetBytes = 0;
+        private int maxConcurrentReads = 0;
+        private long jobReadBudgetBytes = 0;
+        private int jobMaxConcurrentReads = 0;
+        private long localityWaitMillis = 0;
+        private long nodeCacheBytes = 0;
+        private int nodeCacheBlockSize = DEFAULT_NODE_CACHE_BLOCK_SIZE;
+        private int oversplitFactor = DEFAULT_OVERSPLIT_FACTOR;
+        private long minSplitSize = DEFAULT_MIN_SPLIT_SIZE;
+
+        private Builder() {
+        }
+
+        Builder dispatchMode(DispatchMode dispatchMode) {
+            if (dispatchMode == null) {
+                throw new IllegalArgumentException("dispatchMode must not be null");
+            }
+            this.dispatchMode = dispatchMode;
+            return this;
+        }
+
+        Builder dispatchThreads(int dispatchThreads) {
+            if (dispatchThreads <= 0) {
+                throw new IllegalArgumentException("dispatchThreads must be positive: " + dispatchThreads);
+            }
+            this.dispatchThreads = dispatchThreads;
+            return this;
+        }
+
+        Builder readBufferSize(int readBufferSize) {
+            if (readBufferSize <= 0) {
+                throw new IllegalArgumentException("readBufferSize must be positive: " + readBufferSize);
+            }
+            this.readBufferSize = readBufferSize;
+            return this;
+        }
+
+        Builder readAheadDepth(int readAheadDepth) {
+            if (readAheadDepth < 0) {
+                throw new IllegalArgumentException("readAheadDepth must not be negative: " + readAheadDepth);
+            }
+            this.readAheadDepth = readAheadDepth;
+            return this;
+        }
+
+        Builder readAheadBlockSize(int readAheadBlockSize) {
+            if (readAheadBlockSize <= 0) {
+                throw new IllegalArgumentException("readAheadBlockSize must be positive: " + readAheadBlockSize);
+            }
+            this.readAheadBlockSize = readAheadBlockSize;
+            return this;
+        }
+
+        Builder readAheadMaxBytes(long readAheadMaxBytes) {
+            if (readAheadMaxBytes <= 0) {
+                throw new IllegalArgumentException("readAheadMaxBytes must be positive: " + readAheadMaxBytes);
+            }
+            this.readAheadMaxBytes = readAheadMaxBytes;
+            return this;
+        }
+
+        Builder splitSize(long splitSize) {
+            if (splitSize < 0) {
+                throw new IllegalArgumentException("splitSize must not be negative: " + splitSize);
+            }
+            this.splitSize = splitSize;
+            return this;
+        }
+
+        Builder targetSplitDurationMillis(long targetSplitDurationMillis) {
+            if (targetSplitDurationMillis <= 0) {
+                throw new IllegalArgumentException(
+                    "targetSplitDurationMillis must be positive: " + targetSplitDurationMillis);
+            }
+            this.targetSplitDurationMillis = targetSplitDurationMillis;
+            return this;
+        }
+
+        Builder assumedScanBytesPerSecond(long assumedScanBytesPerSecond) {
+            if (assumedScanBytesPerSecond <= 0) {
+                throw new IllegalArgumentException(
+                    "assumedScanBytesPerSecond must be positive: " + assumedScanBytesPerSecond);
+            }
+            this.assumedScanBytesPerSecond = assumedScanBytesPerSecond;
+            return this;
+        }
+
+        Builder speculativeExecution(boolean speculativeExecution) {
+            this.speculativeExecution = speculativeExecution;
+            return this;
+        }
+
+        Builder speculationQuantile(double speculationQuantile) {
+            if (speculationQuantile < 0 || speculationQuantile > 1) {
+                throw new IllegalArgumentException("speculationQuantile must be in [0, 1]: " + speculationQuantile);
+            }
+            this.speculationQuantile = speculationQuantile;
+            return this;
+        }
+
+        Builder speculationMultiplier(double speculationMultiplier) {
+            if (speculationMultiplier < 1) {
+                throw new IllegalArgumentException("speculationMultiplier must be at least 1: " + speculationMultiplier);
+            }
+            this.speculationMultiplier = speculationMultiplier;
+            return this;
+        }
+
+        Builder speculationMinRuntimeMillis(long speculationMinRuntimeMillis) {
+            if (speculationMinRuntimeMillis < 0) {
+                throw new IllegalArgumentException(
+                    "speculationMinRuntimeMillis must not be negative: " + speculationMinRuntimeMillis);
+            }
+            this.speculationMinRuntimeMillis = speculationMinRuntimeMillis;
+            return this;
+        }
+
+        Builder maxSpeculativeAttempts(int maxSpeculativeAttempts) {
+            if (maxSpeculativeAttempts < 0) {
+                throw new IllegalArgumentException("maxSpeculativeAttempts must not be negative: " + maxSpeculativeAttempts);
+            }
+            this.maxSpeculativeAttempts = maxSpeculativeAttempts;
+            return this;
+        }
+
+        Builder speculationIntervalMillis(long speculationIntervalMillis) {
+            if (speculationIntervalMillis <= 0) {
+                throw new IllegalArgumentException(
+                    "speculationIntervalMillis must be positive: " + speculationIntervalMillis);
+            }
+            this.speculationIntervalMillis = speculationIntervalMillis;
+            return this;
+        }
+
+        Builder maxSplitRetries(int maxSplitRetries) {
+            if (maxSplitRetries < 0) {
+                throw new IllegalArgumentException("maxSplitRetries must not be negative: " + maxSplitRetries);
+            }
+            this.maxSplitRetries = maxSplitRetries;
+            return this;
+        }
+
+        Builder retryBudget(int retryBudget) {
+            if (retryBudget < 0) {
+                throw new IllegalArgumentException("retryBudget must not be negative: " + retryBudget);
+            }
+            this.retryBudget = retryBudget;
+            return this;
+        }
+
+        Builder retryBackoffMillis(long retryBackoffMillis) {
+            if (retryBackoffMillis < 0) {
+                throw new IllegalArgumentException("retryBackoffMillis must not be negative: " + retryBackoffMillis);
+            }
+            this.retryBackoffMillis = retryBackoffMillis;
+            return this;
+        }
+
+        Builder jobDeadlineMillis(long jobDeadlineMillis) {
+            if (jobDeadlineMillis < 0) {
+                throw new IllegalArgumentException("jobDeadlineMillis must not be negative: " + jobDeadlineMillis);
+            }
+            this.jobDeadlineMillis = jobDeadlineMillis;
+            return this;
+        }
+
+        Builder registerMBean(boolean registerMBean) {
+            this.registerMBean = registerMBean;
+            return this;
+        }
+
+        Builder lineIndexInterval(long lineIndexInterval) {
+            if (lineIndexInterval <= 0) {
+                throw new IllegalArgumentException("lineIndexInterval must be positive: " + lineIndexInterval);
+            }
+            this.lineIndexInterval = lineIndexInterval;
+            return this;
+        }
+
+        Builder boundaryProbeBytes(int boundaryProbeBytes) {
+            if (boundaryProbeBytes < 0) {
+                throw new IllegalArgumentException("boundaryProbeBytes must not be negative: " + boundaryProbeBytes);
+            }
+            this.boundaryProbeBytes = boundaryProbeBytes;
+            return this;
+        }
+
+        Builder sampleFraction(double sampleFraction) {
+            if (!(sampleFraction >= 0 && sampleFraction <= 1)) {
+                throw new IllegalArgumentException("sampleFraction must be between 0 and 1: " + sampleFraction);
+            }
+            this.sampleFraction = sampleFraction;
+            return this;
+        }
+
+        Builder sampleSeed(long sampleSeed) {
+            this.sampleSeed = sampleSeed;
+            return this;
+        }
+
+        Builder sampleBudgetMillis(long sampleBudgetMillis) {
+            if (sampleBudgetMillis < 0) {
+                throw new IllegalArgumentException("sampleBudgetMillis must not be negative: " + sampleBudgetMillis);
+            }
+            this.sampleBudgetMillis = sampleBudgetMillis;
+            return this;
+        }
+
+        Builder readBudgetBytes(long readBudgetBytes) {
+            if (readBudgetBytes < 0) {
+                throw new IllegalArgumentException("readBudgetBytes must not be negative: " + readBudgetBytes);
+            }
+            this.readBudgetBytes = readBudgetBytes;
+            return this;
+        }
+
+        Builder maxConcurrentReads(int maxConcurrentReads) {
+            if (maxConcurrentReads < 0) {
+                throw new IllegalArgumentException("maxConcurrentReads must not be negative: " + maxConcurrentReads);
+            }
+            this.maxConcurrentReads = maxConcurrentReads;
+            return this;
+        }
+
+        Builder jobReadBudgetBytes(long jobReadBudgetBytes) {
+            if (jobReadBudgetBytes < 0) {
+                throw new IllegalArgumentException("jobReadBudgetBytes must not be negative: " + jobReadBudgetBytes);
+            }
+            this.jobReadBudgetBytes = jobReadBudgetBytes;
+            return this;
+        }
+
+        Builder jobMaxConcurrentReads(int jobMaxConcurrentReads) {
+            if (jobMaxConcurrentReads < 0) {
+                throw new IllegalArgumentException("jobMaxConcurrentReads must not be negative: " + jobMaxConcurrentReads);
+            }
+            this.jobMaxConcurrentReads = jobMaxConcurrentReads;
+            return this;
+        }
+
+        Builder localityWaitMillis(long localityWaitMillis) {
+            if (localityWaitMillis < 0) {
+                throw new IllegalArgumentException("localityWaitMillis must not be negative: " + localityWaitMillis);
+            }
+            this.localityWaitMillis = localityWaitMillis;
+            return this;
+        }
+
+        Builder nodeCacheBytes(long nodeCacheBytes) {
+            if (nodeCacheBytes < 0) {
+                throw new IllegalArgumentException("nodeCacheBytes must not be negative: " + nodeCacheBytes);
+            }
+            this.nodeCacheBytes = nodeCacheBytes;
+            return this;
+        }
+
+        Builder nodeCacheBlockSize(int nodeCacheBlockSize) {
+            if (nodeCacheBlockSize <= 0) {
+                throw new IllegalArgumentException("nodeCacheBlockSize must be positive: " + nodeCacheBlockSize);
+            }
+            this.nodeCacheBlockSize = nodeCacheBlockSize;
+            return this;
+        }
+
+        Builder oversplitFactor(int oversplitFactor) {
+            if (oversplitFactor <= 0) {
+                throw new IllegalArgumentException("oversplitFactor must be positive: " + oversplitFactor);
+            }
+            this.oversplitFactor = oversplitFactor;
+            return this;
+        }
+
+        Builder minSplitSize(long minSplitSize) {
+            if (minSplitSize <= 0) {
+                throw new IllegalArgumentException("minSplitSize must be positive: " + minSplitSize);
+            }
+            this.minSplitSize = minSplitSize;
+            return this;
+        }
+
+        WordCountConfig build() {
+            return new WordCountConfig(this);
+        }
+    }
+}
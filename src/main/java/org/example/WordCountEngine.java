@@ -0,0 +1,873 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Long-lived word count engine.
+ *
+ * Created once and shared: every job submitted to the engine runs its splits on
+ * the same bounded pool of local dispatch threads and the same RemoteExecutor,
+ * so a query pays neither for spawning threads nor for allocating executors.
+ * Every job and batch takes its service IDs from the engine's one
+ * {@link NodePool}, so no two of them run on the same node at once, and a split
+ * is handed to a pool thread only once the pool has granted it a node: no
+ * pool thread waits for a node, and any number of jobs can be in flight.
+ * The pool is either a fixed set of platform threads or, with
+ * {@link DispatchMode#VIRTUAL_THREADS}, a virtual thread per remote call.
+ *
+ * {@link #close()} is orderly: new jobs are rejected, jobs already submitted
+ * run to completion, then the threads are released.
+ *
+ * Every job is instrumented: its result carries per-split {@link JobMetrics},
+ * and the engine keeps cumulative {@link EngineMetrics}, exported as a JMX
+ * MBean unless disabled in the config.
+ *
+ * Jobs over append-only files can be run incrementally against a
+ * {@link SplitResultStore}: splits that are final in an earlier checkpoint are
+ * reused and only the bytes after it are scanned. With a {@link LineIndex},
+ * jobs run on line-aligned splits balanced by line count.
+ *
+ * A {@link ProgressiveJob} publishes its running result as every split
+ * finishes and, when sampling is configured, an early estimate from a seeded
+ * random sample of line-aligned splits before the exact answer.
+ *
+ * A batch job counts many files at once, packing small files and splits of
+ * large ones into shared tasks, which the {@link SplitScheduler} runs like the
+ * splits of a job: with read admission, locality, retries, speculation and the
+ * job deadline.
+ *
+ * Reads are admitted by a {@link ReadGovernor} per job, nested in one for the
+ * whole engine, so that the buffered bytes and concurrent DFS reads stay within
+ * the configured limits; over budget, partitions wait instead of failing. A
+ * partition is admitted before it requests a node, so one waiting for budget
+ * holds neither a node nor a thread.
+ *
+ * A {@link BlockCompressedFS block-compressed} file is split at its compressed
+ * blocks: each node fetches only the compressed bytes of its own blocks and
+ * inflates them as it scans.
+ *
+ * The engine remembers which service ID read each block of a file
+ * ({@link SplitLocality}) and sends a split to the node that read most of its
+ * blocks on later jobs, where the node's {@link NodeCache} may still hold them;
+ * every job reports its locality and cache hit rate.
+ */
+final class WordCountEngine implements AutoCloseable {
+
+    // Total number of available compute nodes (1 to 100 inclusive)
+    static final int NUM_NODES = 100;
+
+    // The local thread pool should match the number of remote nodes to maximize parallelism
+    static final int DEFAULT_DISPATCH_THREADS = NUM_NODES;
+
+    private static final long IDLE_THREAD_KEEP_ALIVE_SECONDS = 30;
+
+    // Probe per boundary when a sampled job aligns its splits and no probe size is configured
+    static final int DEFAULT_SAMPLE_PROBE_BYTES = 64 * 1024;
+
+    private final WordCountConfig config;
+    private final RemoteExecutor<Integer> remoteExecutor;
+    private final ExecutorService dispatchPool;
+    private final ExecutorService prefetchPool;
+    private final ExecutorService speculationPool;
+    private final ExecutorService progressPool;
+    private final ScheduledExecutorService timer;
+    private final NodePool nodes;
+    private final Set<CompletableFuture<?>> activeJobs = ConcurrentHashMap.newKeySet();
+    private final ReadGovernor readGovernor;
+    private final SplitLocality locality;
+    private final NodeCache[] nodeCaches;   // By service ID, or null without node caches
+    private final EngineMetrics metrics;
+    private boolean closed;
+
+    WordCountEngine(WordCountConfig config) {
+        this(config, new RemoteExecutor<>());
+    }
+
+    WordCountEngine(WordCountConfig config, RemoteExecutor<Integer> remoteExecutor) {
+        this.config = config;
+        this.remoteExecutor = remoteExecutor;
+        this.dispatchPool = createDispatchPool(config);
+        // Read-ahead fetches get their own threads: they must never queue behind the splits waiting on them
+        this.prefetchPool = config.dispatchMode() == DispatchMode.VIRTUAL_THREADS && DispatchMode.virtualThreadsSupported()
+            ? DispatchMode.newVirtualThreadExecutor()
+            : Executors.newCachedThreadPool(daemonThreads("word-count-prefetch"));
+        // So do duplicate attempts: a straggler's duplicate starts while its spare node is still free
+        this.speculationPool = config.dispatchMode() == DispatchMode.VIRTUAL_THREADS
+                && DispatchMode.virtualThreadsSupported()
+            ? DispatchMode.newVirtualThreadExecutor()
+            : Executors.newCachedThreadPool(daemonThreads("word-count-speculation"));
+        // Progress listeners run on neither: a slow listener must not hold up the splits
+        this.progressPool = Executors.newCachedThreadPool(daemonThreads("word-count-progress"));
+        this.timer = Executors.newSingleThreadScheduledExecutor(daemonThreads("word-count-timer"));
+        this.nodes = new NodePool(NUM_NODES, timer);
+        this.readGovernor = new ReadGovernor(config.readBudgetBytes(), config.maxConcurrentReads(), null);
+        this.locality = new SplitLocality(config.nodeCacheBlockSize());
+        this.nodeCaches = config.nodeCacheBytes() > 0 ? new NodeCache[NUM_NODES + 1] : null;
+        if (nodeCaches != null) {
+            for (int nodeId = 1; nodeId <= NUM_NODES; nodeId++) {
+                nodeCaches[nodeId] = new NodeCache(config.nodeCacheBlockSize(), config.nodeCacheBytes());
+            }
+        }
+        this.metrics = new EngineMetrics(this::activeJobs, readGovernor);
+        if (config.registerMBean()) {
+            metrics.register();
+        }
+    }
+
+    WordCountConfig config() {
+        return config;
+    }
+
+    EngineMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * The governor admitting the reads of all jobs.
+     */
+    ReadGovernor readGovernor() {
+        return readGovernor;
+    }
+
+    /**
+     * The cache of service ID {@code nodeId}, or null without node caches.
+     */
+    NodeCache nodeCache(int nodeId) {
+        return nodeCaches != null ? nodeCaches[nodeId] : null;
+    }
+
+    /**
+     * Submits a job over the whole file.
+     */
+    CompletableFuture<WordCountResult> submit(DistributedFS dfs) {
+        return submit(dfs, LineAnalytics.none());
+    }
+
+    /**
+     * Submits a job over the whole file that also computes the requested line aggregates in the same pass.
+     */
+    CompletableFuture<WordCountResult> submit(DistributedFS dfs, LineAnalytics analytics) {
+        return track(() -> CompletableFuture
+            // Blocking call (100 ms on first call)
+            .supplyAsync(dfs::fileLength, dispatchPool)
+            // Cut the file into many more splits than nodes; free nodes pull the next split
+            .thenCompose(fileLength -> plan(dfs, fileLength, config.boundaryProbeBytes())
+                .thenCompose(splits -> runSplits(dfs, splits, fileLength, analytics))));
+    }
+
+    /**
+     * Submits a job over the whole file that publishes its running result to {@code listener}, which may be
+     * null, as every split finishes. With a sample fraction configured, the splits are line-aligned and
+     * scanned in a seeded random order, so that the job's estimate covers a spread of the file.
+     */
+    ProgressiveJob submitProgressive(DistributedFS dfs, LineAnalytics analytics, Consumer<JobProgress> listener) {
+        ProgressiveJob job = new ProgressiveJob(listener, progressPool);
+        boolean sampled = config.sampleFraction() > 0;
+        int probeBytes = config.boundaryProbeBytes() > 0 || !sampled
+            ? config.boundaryProbeBytes()
+            : DEFAULT_SAMPLE_PROBE_BYTES;
+        CompletableFuture<WordCountResult> result = track(() -> CompletableFuture
+            .supplyAsync(dfs::fileLength, dispatchPool)
+            .thenCompose(fileLength -> plan(dfs, fileLength, probeBytes)
+                .thenCompose(planned -> {
+                    List<Split> splits = new ArrayList<>(planned);
+                    int sampleSize = 0;
+                    if (sampled) {
+                        // Splits are dispatched in list order: the sample goes first
+                        Collections.shuffle(splits, new Random(config.sampleSeed()));
+                        sampleSize = (int) Math.ceil(config.sampleFraction() * splits.size());
+                    }
+                    job.start(fileLength, splits, sampleSize, analytics);
+                    if (sampleSize > 0 && config.sampleBudgetMillis() > 0) {
+                        ScheduledFuture<?> budget =
+                            timer.schedule(job::estimateNow, config.sampleBudgetMillis(), TimeUnit.MILLISECONDS);
+                        job.result().whenComplete((r, e) -> budget.cancel(false));
+                    }
+                    return runSplits(dfs, splits, fileLength, analytics, job);
+                })));
+        result.whenComplete(job::finish);
+        return job;
+    }
+
+    /**
+     * Submits a job over the given splits only, for example the failed splits of an earlier result.
+     */
+    CompletableFuture<WordCountResult> submit(DistributedFS dfs, List<Split> splits, long fileLength,
+                                              LineAnalytics analytics) {
+        return track(() -> runSplits(dfs, splits, fileLength, analytics));
+    }
+
+    /**
+     * Submits a job over the whole file on line-aligned splits planned from {@code index}.
+     * A file shorter than the index was rewritten, and is cut into byte splits instead.
+     */
+    CompletableFuture<WordCountResult> submit(DistributedFS dfs, LineIndex index, LineAnalytics analytics) {
+        return track(() -> CompletableFuture
+            .supplyAsync(dfs::fileLength, dispatchPool)
+            .thenCompose(fileLength -> {
+                if (fileLength < index.length()) {
+                    System.err.println("File is shorter than " + index + ", planning byte splits");
+                    return runSplits(dfs, SplitPlanner.plan(fileLength, NUM_NODES, config), fileLength, analytics);
+                }
+                return runSplits(dfs, index.plan(fileLength, NUM_NODES, config), fileLength, analytics);
+            }));
+    }
+
+    /**
+     * Submits a job that extends {@code index} to the current end of the file by rescanning from the start of
+     * its last bucket; the extended index is in the result's analytics. A file shorter than the index was
+     * rewritten, and is indexed from scratch.
+     */
+    CompletableFuture<WordCountResult> submitIndexUpdate(DistributedFS dfs, LineIndex index) {
+        return track(() -> CompletableFuture
+            .supplyAsync(dfs::fileLength, dispatchPool)
+            .thenCompose(fileLength -> {
+                LineIndex kept = fileLength >= index.length() ? index.withoutLastBucket() : index.newEmpty();
+                // A byte split that starts one byte early owns the line starting at the resume offset
+                List<Split> splits = SplitPlanner.plan(Math.max(0, kept.length() - 1), fileLength, 0, NUM_NODES, config);
+                return runSplits(dfs, splits, fileLength, LineAnalytics.of(index.newEmpty()))
+                    .thenApply(result -> {
+                        LineIndex updated = result.analytics().get(LineIndex.class);
+                        updated.merge(kept);
+                        updated.coverTo(fileLength);
+                        return result;
+                    });
+            }));
+    }
+
+    /**
+     * Submits a job that reuses the split results checkpointed in {@code store} and only scans the rest of the
+     * file, then checkpoints the splits that are now final. A file that no longer matches the checkpoint is
+     * scanned from scratch.
+     */
+    CompletableFuture<WordCountResult> submitIncremental(DistributedFS dfs, SplitResultStore store) {
+        return track(() -> CompletableFuture
+            .supplyAsync(() -> resume(dfs, store), dispatchPool)
+            .thenCompose(resumed -> runSplits(dfs, resumed.tail, resumed.fileLength, LineAnalytics.none())
+                .thenApplyAsync(tailResult -> checkpoint(dfs, store, resumed, tailResult), dispatchPool)));
+    }
+
+    /**
+     * Submits one job over many files, named by the keys of {@code files}. The files are cut into splits of
+     * the size planned for their total length, and consecutive small files and splits are packed into tasks
+     * of about that size, so that a node's startup is paid once per task instead of once per file.
+     */
+    CompletableFuture<BatchResult> submitBatch(Map<String, DistributedFS> files, LineAnalytics analytics) {
+        return track(() -> {
+            long batchStartNanos = System.nanoTime();
+            ReadGovernor reads = newJobGovernor();
+            List<CompletableFuture<BatchFile>> planned = new ArrayList<>();
+            for (Map.Entry<String, DistributedFS> file : files.entrySet()) {
+                // Blocking calls (100 ms on first call), made concurrently
+                planned.add(CompletableFuture.supplyAsync(() -> new BatchFile(file.getKey(), file.getValue(),
+                    file.getValue().fileLength(), analytics), dispatchPool));
+            }
+            return CompletableFuture.allOf(planned.toArray(new CompletableFuture<?>[0]))
+                .thenCompose(ignored -> {
+                    List<BatchFile> batchFiles = new ArrayList<>();
+                    for (CompletableFuture<BatchFile> file : planned) {
+                        batchFiles.add(file.join());
+                    }
+                    return runBatch(batchFiles, analytics, reads, batchStartNanos);
+                });
+        });
+    }
+
+    /**
+     * Submits a job over the plain text of the block-compressed file {@code dfs}, on line-aligned splits
+     * of whole blocks.
+     */
+    CompletableFuture<WordCountResult> submitCompressed(DistributedFS dfs, LineAnalytics analytics) {
+        return track(() -> CompletableFuture
+            // Blocking calls: the file length, then the header, trailer and block index
+            .supplyAsync(() -> openCompressed(dfs), dispatchPool)
+            .thenCompose(compressed -> runSplits(compressed, compressed.plan(NUM_NODES, config),
+                compressed.fileLength(), analytics)));
+    }
+
+    /**
+     * Runs a job over the whole file and waits for its result.
+     */
+    WordCountResult run(DistributedFS dfs) {
+        return submit(dfs).join();
+    }
+
+    int activeJobs() {
+        return activeJobs.size();
+    }
+
+    /**
+     * Rejects new jobs, waits for the submitted ones to finish and releases the threads.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        for (CompletableFuture<?> job : activeJobs) {
+            try {
+                job.join();
+            } catch (RuntimeException e) {
+                // The job's own caller sees the failure
+            }
+        }
+        dispatchPool.shutdown();
+        prefetchPool.shutdown();
+        speculationPool.shutdown();
+        progressPool.shutdown();
+        timer.shutdownNow();
+        metrics.unregister();
+        try {
+            dispatchPool.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ExecutorService createDispatchPool(WordCountConfig config) {
+        if (config.dispatchMode() == DispatchMode.VIRTUAL_THREADS) {
+            if (DispatchMode.virtualThreadsSupported()) {
+                return DispatchMode.newVirtualThreadExecutor();
+            }
+            System.err.println("Virtual threads are not available on Java " + System.getProperty("java.version")
+                + ", dispatching on a fixed pool of " + config.dispatchThreads() + " threads");
+        }
+
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+            config.dispatchThreads(), config.dispatchThreads(),
+            IDLE_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), daemonThreads("word-count-dispatch"));
+        // Idle engines do not pin a hundred threads
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Byte splits over the file, moved to line starts by one vectored read of {@code probeBytes} per
+     * boundary unless that is 0. If the probe read fails, every partition probes for its first line instead.
+     */
+    private CompletableFuture<List<Split>> plan(DistributedFS dfs, long fileLength, int probeBytes) {
+        List<Split> splits = SplitPlanner.plan(fileLength, NUM_NODES, config);
+        if (probeBytes == 0) {
+            return CompletableFuture.completedFuture(splits);
+        }
+        return SplitPlanner.alignToLines(dfs, splits, fileLength, probeBytes)
+            .exceptionally(e -> {
+                System.err.println("Boundary probe read failed, planning byte splits: " + e);
+                return splits;
+            });
+    }
+
+    private CompletableFuture<WordCountResult> runSplits(DistributedFS dfs, List<Split> splits, long fileLength,
+                                                         LineAnalytics analytics) {
+        return runSplits(dfs, splits, fileLength, analytics, null);
+    }
+
+    /**
+     * Runs {@code splits}, reporting every finished split to {@code progress} unless it is null.
+     */
+    private CompletableFuture<WordCountResult> runSplits(DistributedFS dfs, List<Split> splits, long fileLength,
+                                                         LineAnalytics analytics, ProgressiveJob progress) {
+        long jobStartNanos = System.nanoTime();
+        ReadGovernor reads = newJobGovernor();
+        SplitScheduler scheduler = new SplitScheduler(nodes, reads, workingSetBytes(), config, timer, speculationPool);
+        Object file = fileOf(dfs);
+        long fileId = observe(file, fileLength);
+
+        // --- 1. Dispatch Tasks ---
+        List<CompletableFuture<PartitionMetrics>> futures = new ArrayList<>();
+        for (Split split : splits) {
+            // Back to the node that read most of the split's blocks last time, if it frees up in time
+            int preferredNode = locality.preferredNode(file, split);
+            // The task blocks a local thread while the remote node processes the split
+            CompletableFuture<PartitionMetrics> future = scheduler.submit(split, preferredNode,
+                (nodeId, s, admissionWaitNanos) -> processPartition(dfs, fileId, nodeId, preferredNode, s, fileLength,
+                    analytics, progress != null, reads, admissionWaitNanos, jobStartNanos),
+                dispatchPool);
+            if (progress != null) {
+                // In completion order, and all before the job result
+                future = future.whenComplete((partition, error) -> {
+                    if (error == null) {
+                        progress.completed(partition);
+                    } else {
+                        progress.failed(split);
+                    }
+                });
+            }
+            futures.add(future);
+        }
+        if (progress != null) {
+            progress.onCancel(scheduler::close);
+        }
+
+        // Splits still running at the deadline are cancelled and reported as failed
+        ScheduledFuture<?> deadline = config.jobDeadlineMillis() > 0
+            ? timer.schedule(scheduler::close, config.jobDeadlineMillis(), TimeUnit.MILLISECONDS)
+            : null;
+
+        // --- 2. Aggregate Results (Reduce Phase) ---
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+            .handle((ignored, error) -> {
+                if (deadline != null) {
+                    deadline.cancel(false);
+                }
+                scheduler.close();
+
+                int maxWords = 0;
+                List<Split> completed = new ArrayList<>();
+                List<Split> failed = new ArrayList<>();
+                List<PartitionMetrics> partitions = new ArrayList<>();
+                LineAnalytics merged = analytics.newEmpty();
+                for (int i = 0; i < splits.size(); i++) {
+                    Split split = splits.get(i);
+                    CompletableFuture<PartitionMetrics> future = futures.get(i);
+                    if (future.isCompletedExceptionally()) {
+                        // Retries are exhausted (or time is up): record the gap instead of hiding it
+                        System.err.println("Error processing " + split + ": " + failureOf(future));
+                        failed.add(split);
+                    } else {
+                        PartitionMetrics partition = future.join();
+                        locality.record(file, split, partition.serviceId());
+                        maxWords = Math.max(maxWords, partition.maxWords());
+                        completed.add(split);
+                        partitions.add(partition);
+                        merged.merge(partition.analytics());
+                    }
+                }
+                JobMetrics jobMetrics = new JobMetrics(partitions, System.nanoTime() - jobStartNanos,
+                    scheduler.speculativeAttempts(), scheduler.retries());
+                WordCountResult result = new WordCountResult(fileLength, maxWords, completed, failed, merged, jobMetrics);
+                metrics.record(result);
+                return result;
+            });
+    }
+
+    private CompletableFuture<BatchResult> runBatch(List<BatchFile> files, LineAnalytics analytics, ReadGovernor reads,
+                                                    long batchStartNanos) {
+        long totalBytes = 0;
+        for (BatchFile file : files) {
+            totalBytes += file.length;
+        }
+        long splitSize = SplitPlanner.splitSize(totalBytes, NUM_NODES, config);
+
+        // Pack consecutive pieces into a task until it holds a split's worth of bytes
+        List<List<Piece>> tasks = new ArrayList<>();
+        List<Piece> task = new ArrayList<>();
+        long taskBytes = 0;
+        for (BatchFile file : files) {
+            for (Split split : SplitPlanner.cut(file.length, splitSize)) {
+                task.add(new Piece(file, split));
+                taskBytes += split.length();
+                if (taskBytes >= splitSize) {
+                    tasks.add(task);
+                    task = new ArrayList<>();
+                    taskBytes = 0;
+                }
+            }
+        }
+        if (!task.isEmpty()) {
+            tasks.add(task);
+        }
+
+        // A task scans its pieces one after the other, so it is admitted for one working set like a split.
+        // It goes back to the node that read most of its largest piece last time
+        SplitScheduler scheduler = new SplitScheduler(nodes, reads, workingSetBytes(), config, timer, speculationPool);
+        List<CompletableFuture<List<PartitionMetrics>>> futures = new ArrayList<>();
+        for (int i = 0; i < tasks.size(); i++) {
+            List<Piece> pieces = tasks.get(i);
+            Piece largest = pieces.get(0);
+            long bytes = 0;
+            for (Piece piece : pieces) {
+                bytes += piece.split.length();
+                if (piece.split.length() > largest.split.length()) {
+                    largest = piece;
+                }
+            }
+            int preferredNode = locality.preferredNode(largest.file.file, largest.split);
+            futures.add(scheduler.submit(new Split(i, 0, bytes), preferredNode,
+                (nodeId, s, admissionWaitNanos) -> processTask(nodeId, pieces, analytics, reads, admissionWaitNanos,
+                    batchStartNanos),
+                dispatchPool));
+        }
+
+        // Tasks still running at the deadline are cancelled and their splits reported as failed
+        ScheduledFuture<?> deadline = config.jobDeadlineMillis() > 0
+            ? timer.schedule(scheduler::close, config.jobDeadlineMillis(), TimeUnit.MILLISECONDS)
+            : null;
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+            .handle((ignored, error) -> {
+                if (deadline != null) {
+                    deadline.cancel(false);
+                }
+                scheduler.close();
+
+                for (int i = 0; i < tasks.size(); i++) {
+                    CompletableFuture<List<PartitionMetrics>> future = futures.get(i);
+                    if (future.isCompletedExceptionally()) {
+                        System.err.println("Error processing batch task of " + tasks.get(i).size() + " splits: "
+                            + failureOf(future));
+                        for (Piece piece : tasks.get(i)) {
+                            piece.file.failed.add(piece.split);
+                        }
+                    } else {
+                        List<PartitionMetrics> partitions = future.join();
+                        for (int j = 0; j < partitions.size(); j++) {
+                            Piece piece = tasks.get(i).get(j);
+                            if (partitions.get(j) == null) {
+                                piece.file.failed.add(piece.split);
+                            } else {
+                                locality.record(piece.file.file, piece.split, partitions.get(j).serviceId());
+                                piece.file.completed(partitions.get(j));
+                            }
+                        }
+                    }
+                }
+                long wallNanos = System.nanoTime() - batchStartNanos;
+                Map<String, WordCountResult> results = new LinkedHashMap<>();
+                LineAnalytics merged = analytics.newEmpty();
+                for (BatchFile file : files) {
+                    WordCountResult result = file.result(wallNanos);
+                    metrics.record(result);
+                    results.put(file.name, result);
+                    merged.merge(result.analytics());
+                }
+                return new BatchResult(results, merged, tasks.size(), wallNanos);
+            });
+    }
+
+    /**
+     * What identifies the file of {@code dfs} across jobs: the compressed file under a block-compressed view,
+     * which every job opens anew.
+     */
+    private static Object fileOf(DistributedFS dfs) {
+        return dfs instanceof BlockCompressedFS ? ((BlockCompressedFS) dfs).backing() : dfs;
+    }
+
+    /**
+     * Notes the length of {@code file} for locality and returns its ID, dropping its cached blocks if it
+     * got shorter: it was rewritten.
+     */
+    private long observe(Object file, long fileLength) {
+        long fileId = locality.id(file);
+        if (!locality.observe(file, fileLength) && nodeCaches != null) {
+            for (int nodeId = 1; nodeId <= NUM_NODES; nodeId++) {
+                nodeCaches[nodeId].invalidate(fileId);
+            }
+        }
+        return fileId;
+    }
+
+    private ReadGovernor newJobGovernor() {
+        return new ReadGovernor(config.jobReadBudgetBytes(), config.jobMaxConcurrentReads(), readGovernor);
+    }
+
+    /**
+     * What a partition ending at {@code end} reads from: {@code dfs}, with read-ahead up to {@code end} if enabled.
+     */
+    private DistributedFS source(DistributedFS dfs, long end, long fileLength, ReadGovernor reads) {
+        if (dfs instanceof BlockCompressedFS) {
+            // Read ahead in the compressed bytes, which are what crosses the network
+            BlockCompressedFS compressed = (BlockCompressedFS) dfs;
+            return compressed.over(
+                source(compressed.backing(), compressed.compressedEnd(end), compressed.compressedLength(), reads));
+        }
+        return config.readAheadDepth() > 0
+            ? PrefetchingInputStream.over(dfs, end, fileLength, config.readAheadBlockSize(), config.readAheadDepth(),
+                config.readAheadMaxBytes(), prefetchPool, reads)
+            : dfs;
+    }
+
+    /**
+     * Bytes a partition holds however tight the budget: its read buffer and, with read-ahead,
+     * the block being consumed and the next one.
+     */
+    private long workingSetBytes() {
+        return config.readBufferSize() + (config.readAheadDepth() > 0 ? 2L * config.readAheadBlockSize() : 0);
+    }
+
+    private PartitionMetrics processPartition(DistributedFS dfs, long fileId, int nodeId, int preferredNode,
+                                              Split split, long fileLength, LineAnalytics analytics,
+                                              boolean exactLines, ReadGovernor reads, long admissionWaitNanos,
+                                              long jobStartNanos) {
+        PartitionMetrics.Recorder recorder = new PartitionMetrics.Recorder(split, nodeId, System.nanoTime() - jobStartNanos);
+        recorder.admissionWait(admissionWaitNanos);
+        if (nodeId == preferredNode) {
+            recorder.ranLocally();
+        }
+        // Every attempt aggregates into its own partial result; only the winner's is merged
+        LineAnalytics partial = analytics.newEmpty();
+
+        // RemoteExecutor runs the Supplier (lambda) on the remote machine
+        int maxWords = remoteExecutor.run(nodeId, () -> {
+            recorder.remoteStarted();
+            // The node's own cache, fetching what it lacks through the partition's read-ahead
+            DistributedFS source = source(dfs, split.end(), fileLength, reads);
+            DistributedFS input = nodeCaches != null ? nodeCaches[nodeId].reader(fileId, source, recorder) : source;
+            return scan(input, nodeId, split, fileLength, partial, exactLines, recorder);
+        });
+        return recorder.finish(maxWords, partial);
+    }
+
+    /**
+     * Scans the pieces of a batch task one after the other in a single remote call, through the node's cache.
+     * A piece that cannot be read gets a null entry and does not fail the others; a failed remote call fails
+     * the whole attempt, which the scheduler retries.
+     */
+    private List<PartitionMetrics> processTask(int nodeId, List<Piece> pieces, LineAnalytics analytics,
+                                               ReadGovernor reads, long admissionWaitNanos, long batchStartNanos) {
+        List<PartitionMetrics.Recorder> recorders = new ArrayList<>();
+        List<LineAnalytics> partials = new ArrayList<>();
+        for (Piece piece : pieces) {
+            PartitionMetrics.Recorder recorder =
+                new PartitionMetrics.Recorder(piece.split, nodeId, System.nanoTime() - batchStartNanos);
+            if (nodeId == locality.preferredNode(piece.file.file, piece.split)) {
+                recorder.ranLocally();
+            }
+            recorders.add(recorder);
+            partials.add(analytics.newEmpty());
+        }
+        // The task waited once, before its first piece
+        recorders.get(0).admissionWait(admissionWaitNanos);
+        int[] maxWords = new int[pieces.size()];
+        boolean[] failed = new boolean[pieces.size()];
+
+        // One node startup for all the pieces
+        remoteExecutor.run(nodeId, () -> {
+            for (PartitionMetrics.Recorder recorder : recorders) {
+                recorder.remoteStarted();
+            }
+            int max = 0;
+            for (int i = 0; i < pieces.size(); i++) {
+                Piece piece = pieces.get(i);
+                try {
+                    DistributedFS source = source(piece.file.dfs, piece.split.end(), piece.file.length, reads);
+                    DistributedFS input = nodeCaches != null
+                        ? nodeCaches[nodeId].reader(piece.file.fileId, source, recorders.get(i))
+                        : source;
+                    maxWords[i] = scan(input, nodeId, piece.split, piece.file.length, partials.get(i), false,
+                        recorders.get(i));
+                    max = Math.max(max, maxWords[i]);
+                } catch (RuntimeException e) {
+                    System.err.println("Error processing " + piece.split + " of " + piece.file.name + ": " + e);
+                    failed[i] = true;
+                }
+            }
+            return max;
+        });
+
+        List<PartitionMetrics> partitions = new ArrayList<>();
+        for (int i = 0; i < pieces.size(); i++) {
+            partitions.add(failed[i] ? null : recorders.get(i).finish(maxWords[i], partials.get(i)));
+        }
+        return partitions;
+    }
+
+    /**
+     * Scans {@code split} on the node, returning its max words; runs inside the remote call, within a read
+     * admission taken before the node. With {@code exactLines}, the scan counts "\r\n" as one line break
+     * even without aggregates.
+     */
+    private int scan(DistributedFS dfs, int nodeId, Split split, long fileLength, LineAnalytics partial,
+                     boolean exactLines, PartitionMetrics.Recorder recorder) {
+        if (split.start() >= fileLength) {
+            return 0; // Nothing left to read in this partition
+        }
+
+        // One stream per partition: the partial first line is skipped inline, and the
+        // fixed-size buffer keeps memory independent of the partition size
+        LineScanner scanner = new LineScanner(partial.isEmpty() && !exactLines ? null : partial);
+        try {
+            PartitionReader reader = new PartitionReader(dfs, config.readBufferSize());
+            if (split.lineAligned()) {
+                reader.readAligned(split.start(), split.end(), scanner, recorder);
+            } else {
+                reader.read(split.start(), split.end(), scanner, recorder);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading chunk data on node " + nodeId, e);
+        }
+        return scanner.maxWords();
+    }
+
+    private static BlockCompressedFS openCompressed(DistributedFS dfs) {
+        try {
+            return BlockCompressedFS.open(dfs);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error reading the block index", e);
+        }
+    }
+
+    private Resumed resume(DistributedFS dfs, SplitResultStore store) {
+        // Blocking call (100 ms on first call)
+        long fileLength = dfs.fileLength();
+        SplitResultStore.Checkpoint checkpoint = store.load();
+        try {
+            if (checkpoint != null && !checkpoint.matches(dfs, fileLength)) {
+                System.err.println("File no longer matches " + checkpoint + ", scanning it from scratch");
+                checkpoint = null;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error verifying " + checkpoint, e);
+        }
+        List<SplitResultStore.SplitResult> reused = checkpoint != null ? checkpoint.splits() : List.of();
+        long frontier = checkpoint != null ? checkpoint.frontier() : 0;
+        return new Resumed(fileLength, reused,
+            SplitPlanner.plan(frontier, fileLength, reused.size(), NUM_NODES, config));
+    }
+
+    private WordCountResult checkpoint(DistributedFS dfs, SplitResultStore store, Resumed resumed,
+                                       WordCountResult tailResult) {
+        int maxWords = tailResult.maxWords();
+        List<Split> completed = new ArrayList<>(tailResult.completedSplits());
+        List<SplitResultStore.SplitResult> finalSplits = new ArrayList<>(resumed.reused);
+        for (SplitResultStore.SplitResult result : resumed.reused) {
+            maxWords = Math.max(maxWords, result.maxWords());
+            completed.add(result.split());
+        }
+
+        // Extend the checkpoint with the leading tail splits that are final: a failed split or
+        // one that read up to the end of the file ends the prefix
+        Map<Integer, PartitionMetrics> bySplit = new HashMap<>();
+        for (PartitionMetrics partition : tailResult.metrics().partitions()) {
+            bySplit.put(partition.split().index(), partition);
+        }
+        for (Split split : resumed.tail) {
+            PartitionMetrics partition = bySplit.get(split.index());
+            if (partition == null || partition.reachedEndOfFile()) {
+                break;
+            }
+            finalSplits.add(new SplitResultStore.SplitResult(split, partition.maxWords()));
+        }
+        if (finalSplits.size() > resumed.reused.size()) {
+            long frontier = finalSplits.get(finalSplits.size() - 1).split().end();
+            try {
+                store.save(new SplitResultStore.Checkpoint(frontier, SplitResultStore.fingerprint(dfs, frontier),
+                    finalSplits));
+            } catch (IOException | UncheckedIOException e) {
+                // The answer stands; the next run just scans more
+                System.err.println("Error checkpointing split results: " + e);
+            }
+        }
+        return new WordCountResult(resumed.fileLength, maxWords, completed, tailResult.failedSplits(),
+            tailResult.analytics(), tailResult.metrics());
+    }
+
+    private <T> CompletableFuture<T> track(Supplier<CompletableFuture<T>> start) {
+        CompletableFuture<T> job;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("WordCountEngine is closed");
+            }
+            job = start.get();
+            activeJobs.add(job);
+        }
+        job.whenComplete((result, error) -> activeJobs.remove(job));
+        return job;
+    }
+
+    private static String failureOf(CompletableFuture<?> future) {
+        try {
+            future.join();
+            return "none";
+        } catch (RuntimeException e) {
+            return String.valueOf(e.getCause() != null ? e.getCause() : e);
+        }
+    }
+
+    /**
+     * A file of a batch job and the results of its splits so far.
+     */
+    private final class BatchFile {
+        final String name;
+        final DistributedFS dfs;
+        final Object file;
+        final long fileId;
+        final long length;
+        final List<Split> completed = new ArrayList<>();
+        final List<Split> failed = new ArrayList<>();
+        final List<PartitionMetrics> partitions = new ArrayList<>();
+        final LineAnalytics merged;
+        int maxWords;
+
+        BatchFile(String name, DistributedFS dfs, long length, LineAnalytics analytics) {
+            this.name = name;
+            this.dfs = dfs;
+            this.file = fileOf(dfs);
+            this.fileId = observe(file, length);
+            this.length = length;
+            this.merged = analytics.newEmpty();
+        }
+
+        void completed(PartitionMetrics partition) {
+            maxWords = Math.max(maxWords, partition.maxWords());
+            completed.add(partition.split());
+            partitions.add(partition);
+            merged.merge(partition.analytics());
+        }
+
+        WordCountResult result(long wallNanos) {
+            return new WordCountResult(length, maxWords, completed, failed, merged,
+                new JobMetrics(partitions, wallNanos, 0, 0));
+        }
+    }
+
+    /**
+     * A split of one file of a batch, scanned as part of a task.
+     */
+    private static final class Piece {
+        final BatchFile file;
+        final Split split;
+
+        Piece(BatchFile file, Split split) {
+            this.file = file;
+            this.split = split;
+        }
+    }
+
+    /**
+     * Where an incremental job picks up: the checkpointed splits it reuses and the splits left to scan.
+     */
+    private static final class Resumed {
+        final long fileLength;
+        final List<SplitResultStore.SplitResult> reused;
+        final List<Split> tail;
+
+        Resumed(long fileLength, List<SplitResultStore.SplitResult> reused, List<Split> tail) {
+            this.fileLength = fileLength;
+            this.reused = reused;
+            this.tail = tail;
+        }
+    }
+
+    static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
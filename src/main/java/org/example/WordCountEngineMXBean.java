@@ -0,0 +1,93 @@
+package org.example;
+
+import java.util.Map;
+
+/**
+ * Management interface of a {@link WordCountEngine}, registered as
+ * {@code org.example:type=WordCountEngine,name=...}.
+ *
+ * Counters are cumulative since the engine was created; the LastJob attributes
+ * describe the most recently finished job. Durations are in milliseconds.
+ * Public because JMX requires it.
+ */
+public interface WordCountEngineMXBean {
+
+    int getActiveJobs();
+
+    long getJobsCompleted();
+
+    long getIncompleteJobs();
+
+    long getPartitionsCompleted();
+
+    long getFailedSplits();
+
+    long getBytesRead();
+
+    long getLinesScanned();
+
+    long getDfsCalls();
+
+    long getSpeculativeAttempts();
+
+    long getRetries();
+
+    long getLastJobWallMillis();
+
+    long getLastJobPartitionMillisP50();
+
+    long getLastJobPartitionMillisP99();
+
+    long getLastJobPartitionMillisMax();
+
+    long getLastJobQueueWaitMillisP99();
+
+    long getLastJobRemoteStartupMillisP99();
+
+    long getLastJobDfsLatencyMillisP50();
+
+    long getLastJobDfsLatencyMillisP99();
+
+    long getLastJobDfsLatencyMillisMax();
+
+    long getLastJobComputeMillisP99();
+
+    long getLastJobAdmissionWaitMillisP99();
+
+    /**
+     * Bytes currently buffered by admitted reads across all jobs, and the part of them reserved by read-ahead.
+     */
+    long getReadBytesInFlight();
+
+    long getReadAheadBytesInFlight();
+
+    long getPeakReadBytesInFlight();
+
+    int getReadsInFlight();
+
+    /**
+     * Number of reads that had to wait for read budget, and the total time they waited.
+     */
+    long getReadAdmissionWaits();
+
+    long getReadAdmissionWaitMillis();
+
+    /**
+     * Completed splits that ran on the service ID that completed them in an earlier job.
+     */
+    long getLocalPartitions();
+
+    /**
+     * Blocks read through node-local caches that were cached, and that were fetched.
+     */
+    long getNodeCacheHits();
+
+    long getNodeCacheMisses();
+
+    double getLastJobNodeCacheHitRate();
+
+    /**
+     * Cumulative time each service ID spent on completed splits, by service ID.
+     */
+    Map<Integer, Long> getNodeBusyMillis();
+}
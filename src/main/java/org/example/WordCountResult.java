@@ -0,0 +1,113 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Outcome of a word count job, including which byte ranges it covered.
+ *
+ * A split that exhausted its retries or missed the job deadline is listed in
+ * {@link #failedSplits()} and the answer only reflects the completed splits.
+ * Such a result can be handed back to
+ * {@link DistributedWordCount#retryFailed(WordCountResult)}, which re-executes
+ * just the failed splits instead of the whole file.
+ *
+ * {@link #analytics()} holds the line aggregates requested for the job, and
+ * {@link #metrics()} the timings and volumes of every completed split.
+ */
+final class WordCountResult {
+
+    private final long fileLength;
+    private final int maxWords;
+    private final List<Split> completedSplits;
+    private final List<Split> failedSplits;
+    private final LineAnalytics analytics;
+    private final JobMetrics metrics;
+
+    WordCountResult(long fileLength, int maxWords, List<Split> completedSplits, List<Split> failedSplits) {
+        this(fileLength, maxWords, completedSplits, failedSplits, LineAnalytics.none(), JobMetrics.empty());
+    }
+
+    WordCountResult(long fileLength, int maxWords, List<Split> completedSplits, List<Split> failedSplits,
+                    LineAnalytics analytics, JobMetrics metrics) {
+        this.fileLength = fileLength;
+        this.maxWords = maxWords;
+        this.completedSplits = sorted(completedSplits);
+        this.failedSplits = sorted(failedSplits);
+        this.analytics = analytics;
+        this.metrics = metrics;
+    }
+
+    long fileLength() {
+        return fileLength;
+    }
+
+    /**
+     * Maximum words on a single line among the completed splits.
+     */
+    int maxWords() {
+        return maxWords;
+    }
+
+    boolean isComplete() {
+        return failedSplits.isEmpty();
+    }
+
+    List<Split> completedSplits() {
+        return completedSplits;
+    }
+
+    List<Split> failedSplits() {
+        return failedSplits;
+    }
+
+    /**
+     * The requested line aggregates over the completed splits.
+     */
+    LineAnalytics analytics() {
+        return analytics;
+    }
+
+    JobMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Number of bytes of the file whose lines are reflected in {@link #maxWords()}.
+     */
+    long coveredBytes() {
+        long covered = 0;
+        for (Split split : completedSplits) {
+            covered += split.length();
+        }
+        return covered;
+    }
+
+    /**
+     * Folds the result of re-running this job's failed splits into this result.
+     */
+    WordCountResult merge(WordCountResult retried) {
+        List<Split> completed = new ArrayList<>(completedSplits);
+        completed.addAll(retried.completedSplits);
+        LineAnalytics combined = analytics.newEmpty();
+        combined.merge(analytics);
+        combined.merge(retried.analytics);
+        return new WordCountResult(fileLength, Math.max(maxWords, retried.maxWords), completed, retried.failedSplits,
+            combined, metrics.plus(retried.metrics));
+    }
+
+    @Override
+    public String toString() {
+        return "WordCountResult{maxWords=" + maxWords
+            + ", covered=" + coveredBytes() + "/" + fileLength + " bytes"
+            + ", failedSplits=" + failedSplits + "}";
+    }
+
+    private static List<Split> sorted(List<Split> splits) {
+        List<Split> copy = new ArrayList<>(splits);
+        copy.sort(Comparator.comparingLong(Split::start));
+        return Collections.unmodifiableList(copy);
+    }
+}
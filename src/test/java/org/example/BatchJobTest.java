@@ -0,0 +1,145 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for batch jobs over many files
+ */
+public class BatchJobTest {
+
+    private static Map<String, WorkloadGenerator.Workload> workloads() {
+        Map<String, WorkloadGenerator.Workload> workloads = new LinkedHashMap<>();
+        for (int i = 0; i < 40; i++) {
+            workloads.put("small-" + i, WorkloadGenerator.builder()
+                .seed(i).sizeBytes(500 + 100 * i).wordsPerLine(0, 3 + i % 17).generate());
+        }
+        workloads.put("large", WorkloadGenerator.builder().seed(99).sizeBytes(100_000).wordsPerLine(0, 12).generate());
+        workloads.put("empty", WorkloadGenerator.builder().seed(1).sizeBytes(0).generate());
+        return workloads;
+    }
+
+    @Test
+    void testBatchMatchesPerFileResultsWithSharedTasks() {
+        Map<String, WorkloadGenerator.Workload> workloads = workloads();
+        Map<String, DistributedFS> files = new LinkedHashMap<>();
+        int separateTasks = 0;
+        long lines = 0;
+        int maxWords = 0;
+        for (Map.Entry<String, WorkloadGenerator.Workload> workload : workloads.entrySet()) {
+            files.put(workload.getKey(), workload.getValue().toDistributedFS());
+            separateTasks += SplitPlanner.plan(workload.getValue().data().length, WordCountEngine.NUM_NODES,
+                WordCountConfig.defaults()).size();
+            lines += workload.getValue().lines();
+            maxWords = Math.max(maxWords, workload.getValue().expectedMaxWords());
+        }
+
+        BatchResult batch;
+        try (DistributedWordCount processor = new DistributedWordCount(new InMemoryDistributedFS(""),
+                WordCountConfig.defaults())) {
+            batch = processor.runBatch(files, LineAnalytics.of(LineAggregates.lineCount()));
+        }
+
+        assertTrue(batch.isComplete(), batch.toString());
+        assertEquals(workloads.keySet().toString(), batch.files().keySet().toString());
+        for (Map.Entry<String, WorkloadGenerator.Workload> workload : workloads.entrySet()) {
+            WordCountResult result = batch.file(workload.getKey());
+            assertEquals(workload.getValue().expectedMaxWords(), result.maxWords(), workload.getKey());
+            assertEquals(workload.getValue().data().length, result.coveredBytes(), workload.getKey());
+            assertEquals(workload.getValue().lines(),
+                result.analytics().get(LineAggregates.LineCount.class).value(), workload.getKey());
+        }
+        assertEquals(maxWords, batch.maxWords());
+        assertEquals(lines, batch.analytics().get(LineAggregates.LineCount.class).value());
+        // A few tasks per node instead of a few per node for every file
+        assertTrue(batch.tasks() <= 2 * WordCountConfig.DEFAULT_OVERSPLIT_FACTOR * WordCountEngine.NUM_NODES,
+            batch.toString());
+        assertTrue(batch.tasks() * 10 < separateTasks, batch.tasks() + " tasks vs " + separateTasks);
+    }
+
+    @Test
+    void testUnreadableFileDoesNotFailItsTaskMates() {
+        WorkloadGenerator.Workload good = WorkloadGenerator.builder().seed(3).sizeBytes(300).generate();
+        DistributedFS broken = new DistributedFS() {
+            @Override
+            public long fileLength() {
+                return 200;
+            }
+
+            @Override
+            public InputStream getData(long offset) {
+                throw new RuntimeException("Simulated unreadable file");
+            }
+        };
+        Map<String, DistributedFS> files = new LinkedHashMap<>();
+        files.put("before", good.toDistributedFS());
+        files.put("broken", broken);
+        files.put("after", good.toDistributedFS());
+
+        try (DistributedWordCount processor = new DistributedWordCount(new InMemoryDistributedFS(""),
+                WordCountConfig.builder().splitSize(1_000_000).build())) {
+            BatchResult batch = processor.runBatch(files, LineAnalytics.none());
+
+            // All three files went into one task
+            assertEquals(1, batch.tasks());
+            assertFalse(batch.isComplete());
+            assertEquals(1, batch.file("broken").failedSplits().size());
+            assertTrue(batch.file("before").isComplete());
+            assertTrue(batch.file("after").isComplete());
+            assertEquals(good.expectedMaxWords(), batch.maxWords());
+        }
+    }
+
+    @Test
+    void testFailedTasksAreRetriedOnAnotherNode() {
+        Map<String, WorkloadGenerator.Workload> workloads = workloads();
+        Map<String, DistributedFS> files = new LinkedHashMap<>();
+        for (Map.Entry<String, WorkloadGenerator.Workload> workload : workloads.entrySet()) {
+            files.put(workload.getKey(), workload.getValue().toDistributedFS());
+        }
+        // Node 1 is down, and the first two calls fail wherever they land
+        FaultyRemoteExecutor<Integer> faulty = new FaultyRemoteExecutor<>(Set.of(1), 2);
+        WordCountConfig config = WordCountConfig.builder().splitSize(8 * 1024).retryBackoffMillis(10).build();
+
+        try (DistributedWordCount processor = new DistributedWordCount(new InMemoryDistributedFS(""), config, faulty)) {
+            BatchResult batch = processor.runBatch(files, LineAnalytics.none());
+
+            assertTrue(batch.isComplete(), batch.toString());
+            for (Map.Entry<String, WorkloadGenerator.Workload> workload : workloads.entrySet()) {
+                WordCountResult result = batch.file(workload.getKey());
+                assertEquals(workload.getValue().expectedMaxWords(), result.maxWords(), workload.getKey());
+                for (PartitionMetrics partition : result.metrics().partitions()) {
+                    assertNotEquals(1, partition.serviceId());
+                }
+            }
+            assertTrue(faulty.calls() > batch.tasks() + 2, faulty.calls() + " calls for " + batch.tasks() + " tasks");
+        }
+    }
+
+    @Test
+    void testTasksStillRunningAtTheDeadlineFail() {
+        WorkloadGenerator.Workload workload = WorkloadGenerator.builder().seed(5).sizeBytes(2000).generate();
+        Map<String, DistributedFS> files = new LinkedHashMap<>();
+        files.put("a", workload.toDistributedFS());
+        files.put("b", workload.toDistributedFS());
+        Set<Integer> everyNode = IntStream.rangeClosed(1, WordCountEngine.NUM_NODES).boxed().collect(Collectors.toSet());
+        SlowRemoteExecutor<Integer> slow = new SlowRemoteExecutor<>(everyNode, 10_000);
+
+        try (DistributedWordCount processor = new DistributedWordCount(new InMemoryDistributedFS(""),
+                WordCountConfig.builder().jobDeadlineMillis(300).build(), slow)) {
+            long startTime = System.currentTimeMillis();
+            BatchResult batch = processor.runBatch(files, LineAnalytics.none());
+
+            assertTrue(System.currentTimeMillis() - startTime < 5000);
+            assertFalse(batch.isComplete());
+            assertEquals(1, batch.file("a").failedSplits().size());
+            assertEquals(1, batch.file("b").failedSplits().size());
+        }
+    }
+}
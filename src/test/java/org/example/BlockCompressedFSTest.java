@@ -0,0 +1,172 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the block-compressed input format
+ */
+public class BlockCompressedFSTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static final int BLOCK_SIZE = 1000;
+
+    private static final WordCountConfig CONFIG = WordCountConfig.builder().splitSize(4000).readBufferSize(256).build();
+
+    private static WorkloadGenerator.Workload workload(String lineEnding) {
+        // Some lines span several blocks
+        return WorkloadGenerator.builder()
+            .seed(24).sizeBytes(60_000).wordsPerLine(0, 10).longLines(0.01, 300)
+            .lineEnding(lineEnding).trailingLineEnding(false)
+            .generate();
+    }
+
+    /**
+     * Log lines, which share most of their words and compress well.
+     */
+    private static byte[] logLines(int count) {
+        SplittableRandom random = new SplittableRandom(24);
+        String[] levels = {"INFO", "INFO", "INFO", "WARN", "ERROR"};
+        StringBuilder log = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            log.append("2026-10-16 12:").append(10 + i / 6000).append(':').append(10 + i % 50).append(' ')
+                .append(levels[random.nextInt(levels.length)]).append(" node-").append(random.nextInt(100))
+                .append(" request ").append(random.nextInt(1_000_000)).append(" served in ")
+                .append(random.nextInt(500)).append(" ms");
+            if (random.nextInt(20) == 0) {
+                log.append(" after retrying on a slower replica");
+            }
+            log.append('\n');
+        }
+        return log.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static int maxWords(byte[] data) {
+        LineScanner scanner = new LineScanner(null);
+        scanner.scan(data, 0, data.length);
+        scanner.finish();
+        return scanner.maxWords();
+    }
+
+    private static byte[] compress(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            BlockCompressedFS.write(new ByteArrayInputStream(data), out, BLOCK_SIZE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    void testPlainTextReadsBackFromAnyOffset() throws Exception {
+        for (String lineEnding : new String[] {"\n", "\r\n", "\r"}) {
+            byte[] data = workload(lineEnding).data();
+            BlockCompressedFS compressed = BlockCompressedFS.open(new InMemoryDistributedFS(compress(data)));
+            assertEquals(data.length, compressed.fileLength());
+            assertEquals((data.length + BLOCK_SIZE - 1) / BLOCK_SIZE, compressed.blockCount(), 10);
+
+            for (long offset : new long[] {0, 1, 999, 1000, 12_345, data.length - 1, data.length}) {
+                try (InputStream is = compressed.getData(offset)) {
+                    assertArrayEquals(Arrays.copyOfRange(data, (int) offset, data.length), is.readAllBytes(),
+                        "offset " + offset);
+                }
+            }
+            assertArrayEquals(Arrays.copyOfRange(data, 5_000, 5_100), compressed.getData(5_000, 100).join());
+
+            // Splits are cut at line starts and cover the text without gaps
+            List<Split> splits = compressed.plan(WordCountEngine.NUM_NODES, CONFIG);
+            assertTrue(splits.size() > 5, splits.toString());
+            long end = 0;
+            for (Split split : splits) {
+                assertTrue(split.lineAligned());
+                assertEquals(end, split.start());
+                int start = (int) split.start();
+                assertTrue(start == 0 || data[start - 1] == '\n' || (data[start - 1] == '\r' && data[start] != '\n'),
+                    split + " does not start a line");
+                end = split.end();
+            }
+            assertEquals(data.length, end);
+        }
+    }
+
+    @Test
+    void testJobFetchesOnlyCompressedBytes() {
+        byte[] data = logLines(2_000);
+        byte[] file = compress(data);
+        CountingDistributedFS dfs = new CountingDistributedFS(new InMemoryDistributedFS(file));
+
+        try (DistributedWordCount processor = new DistributedWordCount(dfs, CONFIG)) {
+            WordCountResult result = processor.runCompressed(LineAnalytics.of(LineAggregates.lineCount()));
+            assertTrue(result.isComplete());
+            assertEquals(maxWords(data), result.maxWords());
+            assertEquals(2_000, result.analytics().get(LineAggregates.LineCount.class).value());
+            // Every plain byte is scanned once, and no block is fetched twice
+            assertEquals(data.length, result.metrics().bytesRead());
+            assertTrue(dfs.bytes() <= file.length, dfs.bytes() + " bytes fetched from a " + file.length + " byte file");
+            assertTrue(file.length < data.length / 2, file.length + " bytes compressed from " + data.length);
+        }
+    }
+
+    @Test
+    void testCompressedLocalFileWithReadAhead() throws Exception {
+        WorkloadGenerator.Workload workload = workload("\n");
+        Path plain = tempDir.resolve("input.txt");
+        Path target = tempDir.resolve("input.txt" + BlockCompressedFS.EXTENSION);
+        Files.write(plain, workload.data());
+        BlockCompressedFS.compress(plain, target, BLOCK_SIZE);
+        assertFalse(Files.exists(tempDir.resolve(target.getFileName() + ".tmp")));
+
+        WordCountConfig config = WordCountConfig.builder()
+            .splitSize(4000).readBufferSize(256).readAheadDepth(2).readAheadBlockSize(512).build();
+        try (MappedFileDistributedFS file = new MappedFileDistributedFS(target);
+             DistributedWordCount processor = new DistributedWordCount(file, config)) {
+            WordCountResult result = processor.runCompressed(LineAnalytics.none());
+            assertTrue(result.isComplete());
+            assertEquals(workload.expectedMaxWords(), result.maxWords());
+        }
+    }
+
+    @Test
+    void testDamagedFilesAreRejected() {
+        byte[] data = workload("\n").data();
+        byte[] file = compress(data);
+
+        assertThrows(IOException.class, () -> BlockCompressedFS.open(new InMemoryDistributedFS(data)));
+        assertThrows(IOException.class,
+            () -> BlockCompressedFS.open(new InMemoryDistributedFS(Arrays.copyOf(file, file.length - 1))));
+
+        // A damaged block fails the split holding it, not the job
+        byte[] damaged = file.clone();
+        damaged[file.length / 2] ^= 0x55;
+        try (DistributedWordCount processor = new DistributedWordCount(new InMemoryDistributedFS(damaged), CONFIG)) {
+            WordCountResult result = processor.runCompressed(LineAnalytics.none());
+            assertEquals(1, result.failedSplits().size());
+            assertFalse(result.completedSplits().isEmpty());
+        }
+
+        // An empty text is a valid file without blocks
+        try (DistributedWordCount processor =
+                 new DistributedWordCount(new InMemoryDistributedFS(compress(new byte[0])), CONFIG)) {
+            WordCountResult result = processor.runCompressed(LineAnalytics.none());
+            assertTrue(result.isComplete());
+            assertEquals(0, result.maxWords());
+        }
+        assertThrows(IllegalArgumentException.class,
+            () -> BlockCompressedFS.write(InputStream.nullInputStream(), new ByteArrayOutputStream(), 0));
+    }
+}
@@ -0,0 +1,193 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the block-caching DistributedFS decorator
+ */
+public class CachingDistributedFSTest {
+
+    private static byte[] randomBytes(int length, long seed) {
+        byte[] data = new byte[length];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+    private static byte[] readAll(DistributedFS dfs, long offset) throws IOException {
+        try (InputStream is = dfs.getData(offset)) {
+            return is.readAllBytes();
+        }
+    }
+
+    @Test
+    void testReadsMatchBackendAtAnyOffset() throws IOException {
+        byte[] data = randomBytes(1000, 1);
+        CachingDistributedFS cache = new CachingDistributedFS(new InMemoryDistributedFS(data), 64, 4096);
+
+        for (int offset : new int[] {0, 1, 63, 64, 65, 500, 959, 960, 999, 1000, 1200}) {
+            byte[] expected = Arrays.copyOfRange(data, Math.min(offset, data.length), data.length);
+            assertArrayEquals(expected, readAll(cache, offset), "Mismatch at offset " + offset);
+            // Second read is served from the cache and must be identical
+            assertArrayEquals(expected, readAll(cache, offset), "Mismatch on cached read at offset " + offset);
+        }
+    }
+
+    @Test
+    void testRepeatedReadsHitTheCache() throws IOException {
+        LatencyDistributedFS backend = new LatencyDistributedFS(new InMemoryDistributedFS(randomBytes(640, 2)), 0);
+        CachingDistributedFS cache = new CachingDistributedFS(backend, 64, 4096);
+
+        readAll(cache, 0);
+        // A cold sequential scan reuses one backend stream for all ten blocks
+        assertEquals(1, backend.getDataCalls());
+        assertEquals(10, cache.misses());
+
+        // Fully cached: with the length known, not even end of file needs the backend
+        assertEquals(640, cache.fileLength());
+        readAll(cache, 100);
+        assertEquals(1, backend.getDataCalls());
+        assertEquals(9, cache.hits());
+        assertEquals(640, cache.cachedBytes());
+    }
+
+    @Test
+    void testRangedReadsAreServedFromCachedBlocks() throws IOException {
+        byte[] data = randomBytes(650, 7);
+        LatencyDistributedFS backend = new LatencyDistributedFS(new InMemoryDistributedFS(data), 0);
+        CachingDistributedFS cache = new CachingDistributedFS(backend, 64, 4096);
+        readAll(cache, 0);
+        int calls = backend.getDataCalls();
+        long misses = cache.misses();
+
+        // The partial tail block is not cached: only the last range goes to the backend
+        List<FileRange> ranges = List.of(new FileRange(10, 40), new FileRange(100, 200), new FileRange(600, 100));
+        List<byte[]> results = cache.getDataVectored(ranges).join();
+        assertArrayEquals(Arrays.copyOfRange(data, 10, 50), results.get(0));
+        assertArrayEquals(Arrays.copyOfRange(data, 100, 300), results.get(1));
+        assertArrayEquals(Arrays.copyOfRange(data, 600, 650), results.get(2));
+        assertEquals(calls + 1, backend.getDataCalls());
+        assertEquals(misses + 1, cache.misses());
+
+        assertArrayEquals(Arrays.copyOfRange(data, 64, 128), cache.getData(64, 64).join());
+        assertEquals(calls + 1, backend.getDataCalls());
+    }
+
+    @Test
+    void testFileLengthIsFetchedOnce() {
+        LatencyDistributedFS backend = new LatencyDistributedFS(new InMemoryDistributedFS("abc"), 0);
+        CachingDistributedFS cache = new CachingDistributedFS(backend, 1024);
+
+        assertEquals(3, cache.fileLength());
+        assertEquals(3, cache.fileLength());
+        assertEquals(1, backend.fileLengthCalls());
+
+        cache.invalidate();
+        assertEquals(3, cache.fileLength());
+        assertEquals(2, backend.fileLengthCalls());
+    }
+
+    @Test
+    void testLeastRecentlyUsedBlocksAreEvictedWithinBudget() throws IOException {
+        CachingDistributedFS cache = new CachingDistributedFS(new InMemoryDistributedFS(randomBytes(640, 3)), 64, 256);
+
+        readAll(cache, 0);
+
+        assertEquals(256, cache.cachedBytes());
+        assertEquals(6, cache.evictions());
+
+        // Blocks 6..9 survived, block 0 was evicted
+        long misses = cache.misses();
+        readAll(cache, 6 * 64);
+        assertEquals(misses, cache.misses());
+        readAll(cache, 0);
+        assertTrue(cache.misses() > misses);
+    }
+
+    @Test
+    void testPartialTailBlockIsNotCached() throws IOException {
+        CachingDistributedFS cache = new CachingDistributedFS(new InMemoryDistributedFS(randomBytes(100, 4)), 64, 4096);
+
+        readAll(cache, 0);
+
+        assertEquals(64, cache.cachedBytes());
+    }
+
+    @Test
+    void testConcurrentReadersShareOneFetch() throws Exception {
+        LatencyDistributedFS backend = new LatencyDistributedFS(new InMemoryDistributedFS(randomBytes(64, 5)), 200);
+        CachingDistributedFS cache = new CachingDistributedFS(backend, 64, 4096);
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<byte[]>> readers = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            readers.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    start.await();
+                    try (InputStream is = cache.getData(0)) {
+                        byte[] buffer = new byte[64];
+                        return Arrays.copyOf(buffer, is.read(buffer));
+                    }
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }));
+        }
+        start.countDown();
+        for (CompletableFuture<byte[]> reader : readers) {
+            assertEquals(64, reader.get().length);
+        }
+
+        // Every reader missed, but only one of them went to the backend
+        assertEquals(1, backend.getDataCalls());
+        assertEquals(8, cache.misses());
+        assertEquals(7, cache.sharedFetches());
+        assertEquals(0, cache.hits());
+    }
+
+    @Test
+    void testBuffersAreRecycledWithinTheBudget() throws IOException {
+        byte[] data = randomBytes(64 * 20, 6);
+        CachingDistributedFS cache = new CachingDistributedFS(new InMemoryDistributedFS(data), 64, 256);
+
+        // A reader parked in block 0 keeps its buffer while others stream through the whole file
+        try (InputStream parked = cache.getData(0)) {
+            byte[] head = new byte[10];
+            assertEquals(10, parked.read(head));
+            for (int pass = 0; pass < 3; pass++) {
+                assertArrayEquals(data, readAll(cache, 0));
+                assertTrue(cache.allocatedBytes() <= 256, cache.toString());
+            }
+            // Its block was evicted, but its buffer was not reused under it
+            byte[] rest = new byte[54];
+            assertEquals(54, parked.readNBytes(rest, 0, 54));
+            assertArrayEquals(Arrays.copyOfRange(data, 10, 64), rest);
+        }
+        assertEquals(256, cache.allocatedBytes());
+        assertEquals(256, cache.cachedBytes());
+        assertTrue(cache.evictions() > 20, cache.toString());
+
+        // A budget below one block caches nothing and allocates no direct memory
+        CachingDistributedFS tiny = new CachingDistributedFS(new InMemoryDistributedFS(data), 64, 63);
+        assertArrayEquals(data, readAll(tiny, 0));
+        assertEquals(0, tiny.allocatedBytes());
+        assertEquals(0, tiny.cachedBytes());
+    }
+
+    @Test
+    void testWordCountOverCache() {
+        DistributedFS cache = new CachingDistributedFS(DistributedFS.getInstance(), 16, 1024);
+        try (DistributedWordCount processor = new DistributedWordCount(cache, WordCountConfig.defaults())) {
+            assertEquals(11, processor.findMaxWordsPerLine());
+            assertEquals(11, processor.findMaxWordsPerLine());
+        }
+    }
+}
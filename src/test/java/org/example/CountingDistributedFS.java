@@ -0,0 +1,60 @@
+package org.example;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * DistributedFS decorator that counts the bytes transferred by streams and ranged reads
+ */
+class CountingDistributedFS implements DistributedFS {
+
+    private final DistributedFS delegate;
+    private final LongAdder bytes = new LongAdder();
+
+    CountingDistributedFS(DistributedFS delegate) {
+        this.delegate = delegate;
+    }
+
+    long bytes() {
+        return bytes.sum();
+    }
+
+    @Override
+    public long fileLength() {
+        return delegate.fileLength();
+    }
+
+    @Override
+    public InputStream getData(long offset) {
+        return new FilterInputStream(delegate.getData(offset)) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    bytes.increment();
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n > 0) {
+                    bytes.add(n);
+                }
+                return n;
+            }
+        };
+    }
+
+    @Override
+    public CompletableFuture<byte[]> getData(long offset, int length) {
+        return delegate.getData(offset, length).thenApply(data -> {
+            bytes.add(data.length);
+            return data;
+        });
+    }
+}
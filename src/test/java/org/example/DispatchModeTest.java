@@ -0,0 +1,85 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Tests for the fixed-pool and virtual-thread dispatch modes
+ */
+public class DispatchModeTest {
+
+    private static final int JOBS = 100;
+    private static final int SPLITS_PER_JOB = 100;
+
+    @Test
+    void testSupportFollowsRuntimeVersion() {
+        assertEquals(Runtime.version().feature() >= 21, DispatchMode.virtualThreadsSupported());
+    }
+
+    @Test
+    void testVirtualThreadModeGivesSameResult() {
+        WordCountConfig config = WordCountConfig.builder().dispatchMode(DispatchMode.VIRTUAL_THREADS).build();
+        try (DistributedWordCount processor = new DistributedWordCount(
+                new InMemoryDistributedFS("a b c\nd e f g\nh\n"), config)) {
+            assertEquals(4, processor.findMaxWordsPerLine());
+        }
+    }
+
+    // Takes about half a minute; run with -Dbenchmarks=true on Java 21
+    @Test
+    void testTenThousandOutstandingSplits() {
+        assumeTrue(Boolean.getBoolean("benchmarks"), "Benchmarks are disabled");
+        assumeTrue(DispatchMode.virtualThreadsSupported(), "Virtual threads need Java 21");
+
+        report("fixed pool, 100 threads", WordCountConfig.builder().build());
+        report("fixed pool, " + JOBS * SPLITS_PER_JOB + " threads",
+            WordCountConfig.builder().dispatchThreads(JOBS * SPLITS_PER_JOB).build());
+        report("virtual threads", WordCountConfig.builder().dispatchMode(DispatchMode.VIRTUAL_THREADS).build());
+    }
+
+    // Runs JOBS concurrent jobs of SPLITS_PER_JOB splits each, so JOBS * SPLITS_PER_JOB splits are outstanding at once
+    private static void report(String label, WordCountConfig config) {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        Runtime runtime = Runtime.getRuntime();
+        DistributedFS dfs = new InMemoryDistributedFS(new byte[SPLITS_PER_JOB]);
+
+        System.gc();
+        threads.resetPeakThreadCount();
+        long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+        long peakHeap = heapBefore;
+
+        long startTime = System.currentTimeMillis();
+        try (WordCountEngine engine = new WordCountEngine(config)) {
+            List<CompletableFuture<WordCountResult>> jobs = new ArrayList<>();
+            for (int i = 0; i < JOBS; i++) {
+                jobs.add(engine.submit(dfs));
+            }
+            for (CompletableFuture<WordCountResult> job : jobs) {
+                while (!job.isDone()) {
+                    peakHeap = Math.max(peakHeap, runtime.totalMemory() - runtime.freeMemory());
+                    sleep(5);
+                }
+                assertTrue(job.join().isComplete());
+            }
+        }
+        long elapsed = System.currentTimeMillis() - startTime;
+
+        System.out.println(JOBS * SPLITS_PER_JOB + " outstanding splits, " + label + ": "
+            + elapsed + " ms, peak platform threads " + threads.getPeakThreadCount()
+            + ", peak heap growth " + (peakHeap - heapBefore) / (1024 * 1024) + " MB");
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package org.example;
 
 import org.junit.jupiter.api.Test;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -63,6 +66,48 @@ public class DistributedFSTest {
         System.out.println("Second call: " + length2);
     }
     
+    @Test
+    void testDistributedFSRangedAndVectoredReads() throws Exception {
+        // The mock serves all the ranges of a vectored read in one round-trip
+        DistributedFS dfs = DistributedFS.getInstance();
+        byte[] all;
+        try (InputStream is = dfs.getData(0)) {
+            all = is.readAllBytes();
+        }
+        int length = all.length;
+        
+        List<FileRange> ranges = List.of(new FileRange(0, 10), new FileRange(length - 5, 10), new FileRange(length + 1, 3));
+        List<byte[]> results = dfs.getDataVectored(ranges).get();
+        assertArrayEquals(Arrays.copyOfRange(all, 0, 10), results.get(0));
+        assertArrayEquals(Arrays.copyOfRange(all, length - 5, length), results.get(1), "Short read at end of file");
+        assertEquals(0, results.get(2).length, "Reading past the end should return no data");
+        assertArrayEquals(Arrays.copyOfRange(all, 3, 7), dfs.getData(3, 4).get());
+    }
+    
+    @Test
+    void testDefaultRangedReadsUseGetDataStreams() throws Exception {
+        byte[] data = "0123456789".getBytes();
+        InMemoryDistributedFS backend = new InMemoryDistributedFS(data);
+        // Only the two required methods: ranged reads fall back to the defaults
+        DistributedFS dfs = new DistributedFS() {
+            @Override
+            public long fileLength() {
+                return backend.fileLength();
+            }
+            
+            @Override
+            public InputStream getData(long offset) {
+                return backend.getData(offset);
+            }
+        };
+        
+        assertArrayEquals("234".getBytes(), dfs.getData(2, 3).get());
+        List<byte[]> results = dfs.getDataVectored(List.of(new FileRange(8, 5), new FileRange(0, 1))).get();
+        assertArrayEquals("89".getBytes(), results.get(0));
+        assertArrayEquals("0".getBytes(), results.get(1));
+        assertThrows(IllegalArgumentException.class, () -> new FileRange(-1, 1));
+    }
+    
     @Test
     void testDistributedFSGetDataAtDifferentOffsets() {
         // Test getting data at different offsets
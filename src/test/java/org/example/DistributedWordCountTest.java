@@ -1,7 +1,9 @@
 package org.example;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
+import java.util.Set;
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -16,6 +18,11 @@ public class DistributedWordCountTest {
         processor = new DistributedWordCount();
     }
     
+    @AfterEach
+    void tearDown() {
+        processor.close();
+    }
+    
     @Test
     void testFindMaxWordsPerLine() {
         // Test basic functionality
@@ -28,6 +35,139 @@ public class DistributedWordCountTest {
         assertTrue(result < 50000, "Result should be reasonable");
     }
     
+    @Test
+    void testFindMaxWordsPerLineOnMockData() {
+        // The longest line of the mock file has 11 words and straddles several partitions
+        assertEquals(11, processor.findMaxWordsPerLine());
+    }
+    
+    @Test
+    void testLinesStraddlingPartitionsWithSmallBuffer() {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            content.append("w1 w2 w3\n");
+        }
+        // One long line spanning many partitions, followed by short lines again
+        for (int i = 0; i < 40; i++) {
+            content.append("long ");
+        }
+        content.append("\n");
+        for (int i = 0; i < 50; i++) {
+            content.append("a b\r\n");
+        }
+        
+        WordCountConfig config = WordCountConfig.builder().readBufferSize(3).build();
+        try (DistributedWordCount p = new DistributedWordCount(new InMemoryDistributedFS(content.toString()), config)) {
+            assertEquals(40, p.findMaxWordsPerLine());
+        }
+    }
+    
+    @Test
+    void testSingleDataRoundTripPerPartition() {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            content.append("one two three\n");
+        }
+        // The same 100 partitions of 28 bytes as the original job, which probes for every line start first
+        WordCountConfig config = WordCountConfig.builder().splitSize(content.length() / 100).build();
+        CountingDistributedFS counted = new CountingDistributedFS(new InMemoryDistributedFS(content.toString()));
+        LatencyDistributedFS dfs = new LatencyDistributedFS(counted, 100);
+        CountingDistributedFS originalCounted = new CountingDistributedFS(new InMemoryDistributedFS(content.toString()));
+        LatencyDistributedFS originalDfs = new LatencyDistributedFS(originalCounted, 100);
+        
+        long startTime = System.currentTimeMillis();
+        try (DistributedWordCount p = new DistributedWordCount(dfs, config)) {
+            assertEquals(3, p.findMaxWordsPerLine());
+        }
+        long jobMillis = System.currentTimeMillis() - startTime;
+        startTime = System.currentTimeMillis();
+        assertEquals(3, new OriginalWordCount(originalDfs, new RemoteExecutor<>()).findMaxWordsPerLine());
+        long originalMillis = System.currentTimeMillis() - startTime;
+        
+        // Boundary alignment is folded into the data stream: one getData call per partition instead of two
+        assertEquals(100, dfs.getDataCalls());
+        assertEquals(2 * 100 - 1, originalDfs.getDataCalls());
+        // And the probe's bytes are not fetched twice
+        assertTrue(counted.bytes() < originalCounted.bytes(), counted.bytes() + " bytes read, originally "
+            + originalCounted.bytes());
+        System.out.println("Job time with 100 ms DFS latency: " + jobMillis + " ms, probe-then-read: "
+            + originalMillis + " ms");
+    }
+    
+    @Test
+    void testManyMoreSplitsThanNodes() {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            content.append(i % 97 == 0 ? "a b c d e f\n" : "x y\n");
+        }
+        LatencyDistributedFS dfs = new LatencyDistributedFS(new InMemoryDistributedFS(content.toString()), 0);
+        WordCountConfig config = WordCountConfig.builder().splitSize(5).build();
+        
+        try (DistributedWordCount p = new DistributedWordCount(dfs, config)) {
+            assertEquals(6, p.findMaxWordsPerLine());
+        }
+        // 2048 bytes in 5-byte splits, each pulled by whichever node is free
+        assertEquals(410, dfs.getDataCalls());
+    }
+    
+    @Test
+    void testFailedSplitsAreReportedAndRetriedAlone() {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            content.append("a b c\n");
+        }
+        LatencyDistributedFS dfs = new LatencyDistributedFS(new InMemoryDistributedFS(content.toString()), 0);
+        WordCountConfig config = WordCountConfig.builder().splitSize(60).maxSplitRetries(0).build();
+        
+        // The first three remote calls fail and retries are disabled
+        WordCountResult partial;
+        try (DistributedWordCount failing = new DistributedWordCount(dfs, config, new FaultyRemoteExecutor<>(Set.of(), 3))) {
+            partial = failing.run();
+        }
+        
+        assertFalse(partial.isComplete());
+        assertEquals(3, partial.failedSplits().size());
+        assertEquals(7, partial.completedSplits().size());
+        assertEquals(420, partial.coveredBytes());
+        
+        // Only the three failed splits are executed again
+        FaultyRemoteExecutor<Integer> healthy = new FaultyRemoteExecutor<>(Set.of(), 0);
+        WordCountResult full;
+        try (DistributedWordCount retrying = new DistributedWordCount(dfs, config, healthy)) {
+            full = retrying.retryFailed(partial);
+        }
+        
+        assertTrue(full.isComplete());
+        assertEquals(3, full.maxWords());
+        assertEquals(600, full.coveredBytes());
+        assertEquals(3, healthy.calls());
+    }
+    
+    @Test
+    void testIncompleteResultIsNotReportedAsAnswer() {
+        WordCountConfig config = WordCountConfig.builder().maxSplitRetries(0).build();
+        try (DistributedWordCount p = new DistributedWordCount(
+                new InMemoryDistributedFS("a b\nc d e\n"), config, new FaultyRemoteExecutor<>(Set.of(), 1))) {
+            assertThrows(RuntimeException.class, p::findMaxWordsPerLine);
+        }
+    }
+    
+    @Test
+    void testJobDeadlineCancelsRunningSplits() {
+        WordCountConfig config = WordCountConfig.builder().jobDeadlineMillis(300).build();
+        long startTime = System.currentTimeMillis();
+        WordCountResult result;
+        long elapsed;
+        try (DistributedWordCount p = new DistributedWordCount(new InMemoryDistributedFS("a b\nc d e\n"), config,
+                new SlowRemoteExecutor<>(Set.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10), 5000))) {
+            result = p.run();
+            elapsed = System.currentTimeMillis() - startTime;
+        }
+        
+        assertFalse(result.isComplete());
+        assertTrue(elapsed < 2000, "Deadline should bound the job, took " + elapsed + " ms");
+    }
+    
     @Test
     void testConcurrentExecution() throws InterruptedException {
         // Test concurrent execution
@@ -37,8 +177,9 @@ public class DistributedWordCountTest {
         for (int i = 0; i < 3; i++) {
             final int index = i;
             threads[i] = new Thread(() -> {
-                DistributedWordCount p = new DistributedWordCount();
-                results[index] = p.findMaxWordsPerLine();
+                try (DistributedWordCount p = new DistributedWordCount()) {
+                    results[index] = p.findMaxWordsPerLine();
+                }
             });
             threads[i].start();
         }
@@ -0,0 +1,39 @@
+package org.example;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * RemoteExecutor whose service IDs each run one call at a time, as real nodes do:
+ * a call to a busy service ID waits for it and is counted as a collision
+ */
+class ExclusiveRemoteExecutor<T> extends RemoteExecutor<T> {
+
+    private final ReentrantLock[] nodes = new ReentrantLock[WordCountEngine.NUM_NODES + 1];
+    private final AtomicInteger collisions = new AtomicInteger();
+
+    ExclusiveRemoteExecutor() {
+        for (int serviceId = 1; serviceId < nodes.length; serviceId++) {
+            nodes[serviceId] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public T run(int serviceId, Supplier<T> func) {
+        ReentrantLock node = nodes[serviceId];
+        if (!node.tryLock()) {
+            collisions.incrementAndGet();
+            node.lock();
+        }
+        try {
+            return super.run(serviceId, func);
+        } finally {
+            node.unlock();
+        }
+    }
+
+    int collisions() {
+        return collisions.get();
+    }
+}
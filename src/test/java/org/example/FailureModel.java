@@ -0,0 +1,36 @@
+package org.example;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decides which calls of a simulated DFS or remote node fail
+ */
+interface FailureModel {
+
+    boolean nextFails();
+
+    static FailureModel never() {
+        return () -> false;
+    }
+
+    /**
+     * Each call fails independently with the given probability.
+     */
+    static FailureModel random(double probability, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        return () -> {
+            synchronized (random) {
+                return random.nextDouble() < probability;
+            }
+        };
+    }
+
+    /**
+     * The first {@code count} calls fail, then every call succeeds.
+     */
+    static FailureModel firstCalls(int count) {
+        AtomicInteger left = new AtomicInteger(count);
+        return () -> left.getAndDecrement() > 0;
+    }
+}
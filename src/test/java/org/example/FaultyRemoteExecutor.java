@@ -0,0 +1,33 @@
+package org.example;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * RemoteExecutor that fails every call on the listed service IDs, plus the first few calls overall
+ */
+class FaultyRemoteExecutor<T> extends RemoteExecutor<T> {
+
+    private final Set<Integer> failingServiceIds;
+    private final AtomicInteger failuresLeft;
+    private final AtomicInteger calls = new AtomicInteger();
+
+    FaultyRemoteExecutor(Set<Integer> failingServiceIds, int failFirstCalls) {
+        this.failingServiceIds = failingServiceIds;
+        this.failuresLeft = new AtomicInteger(failFirstCalls);
+    }
+
+    @Override
+    public T run(int serviceId, Supplier<T> func) {
+        calls.incrementAndGet();
+        if (failingServiceIds.contains(serviceId) || failuresLeft.getAndDecrement() > 0) {
+            throw new RuntimeException("Service " + serviceId + " is unavailable");
+        }
+        return super.run(serviceId, func);
+    }
+
+    int calls() {
+        return calls.get();
+    }
+}
@@ -0,0 +1,43 @@
+package org.example;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Latency-free DistributedFS over an in-memory byte array, for tests
+ */
+class InMemoryDistributedFS implements DistributedFS {
+
+    private final byte[] data;
+
+    InMemoryDistributedFS(byte[] data) {
+        this.data = data;
+    }
+
+    InMemoryDistributedFS(String content) {
+        this(content.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Override
+    public long fileLength() {
+        return data.length;
+    }
+
+    @Override
+    public InputStream getData(long offset) {
+        if (offset >= data.length) {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+        return new ByteArrayInputStream(data, (int) offset, data.length - (int) offset);
+    }
+
+    @Override
+    public CompletableFuture<byte[]> getData(long offset, int length) {
+        int start = (int) Math.min(offset, data.length);
+        return CompletableFuture.completedFuture(
+            Arrays.copyOfRange(data, start, (int) Math.min(offset + length, data.length)));
+    }
+}
@@ -0,0 +1,60 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the job-level metrics and their histograms
+ */
+public class JobMetricsTest {
+
+    private static PartitionMetrics partition(int index, int serviceId, long busyMillis) throws InterruptedException {
+        PartitionMetrics.Recorder recorder = new PartitionMetrics.Recorder(new Split(index, index * 100L, index * 100L + 100), serviceId, 0);
+        recorder.read(100, 0);
+        Thread.sleep(busyMillis);
+        return recorder.finish(index);
+    }
+
+    @Test
+    void testHistogramPercentiles() {
+        long[] values = new long[100];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = values.length - i;
+        }
+        Histogram histogram = Histogram.of(values);
+
+        assertEquals(100, histogram.count());
+        assertEquals(50, histogram.p50());
+        assertEquals(99, histogram.p99());
+        assertEquals(100, histogram.max());
+        assertEquals(5050, histogram.sum());
+        assertEquals(0, Histogram.of(new long[0]).p99());
+        assertEquals(7, Histogram.of(new long[] {7}).p50());
+    }
+
+    @Test
+    void testStragglersAndNodeTotals() throws InterruptedException {
+        List<PartitionMetrics> partitions = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            partitions.add(partition(i, i % 2 + 1, 10));
+        }
+        partitions.add(partition(5, 3, 150));
+        JobMetrics metrics = new JobMetrics(partitions, 0, 1, 2);
+
+        assertEquals(600, metrics.bytesRead());
+        List<PartitionMetrics> stragglers = metrics.stragglers(5);
+        assertEquals(1, stragglers.size());
+        assertEquals(3, stragglers.get(0).serviceId());
+
+        Map<Integer, Long> busy = metrics.busyNanosByNode();
+        assertEquals(3, busy.size());
+        assertTrue(busy.get(3) > busy.get(1));
+
+        JobMetrics combined = metrics.plus(new JobMetrics(List.of(partition(6, 1, 0)), 0, 1, 0));
+        assertEquals(7, combined.partitions().size());
+        assertEquals(2, combined.speculativeAttempts());
+    }
+}
@@ -0,0 +1,102 @@
+package org.example;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * DistributedFS decorator that adds a fixed latency to every call, optionally
+ * throttles the data streams, and counts round-trips. A vectored read is a
+ * single round-trip, waited out without blocking the caller, plus the
+ * transfer time of all its ranges
+ */
+class LatencyDistributedFS implements DistributedFS {
+
+    private final DistributedFS delegate;
+    private final long latencyMillis;
+    private final long millisPerKilobyte;
+    private final AtomicInteger fileLengthCalls = new AtomicInteger();
+    private final AtomicInteger getDataCalls = new AtomicInteger();
+
+    LatencyDistributedFS(DistributedFS delegate, long latencyMillis) {
+        this(delegate, latencyMillis, 0);
+    }
+
+    LatencyDistributedFS(DistributedFS delegate, long latencyMillis, long millisPerKilobyte) {
+        this.delegate = delegate;
+        this.latencyMillis = latencyMillis;
+        this.millisPerKilobyte = millisPerKilobyte;
+    }
+
+    @Override
+    public long fileLength() {
+        fileLengthCalls.incrementAndGet();
+        sleep();
+        return delegate.fileLength();
+    }
+
+    @Override
+    public InputStream getData(long offset) {
+        getDataCalls.incrementAndGet();
+        sleep();
+        InputStream data = delegate.getData(offset);
+        return millisPerKilobyte == 0 ? data : new ThrottledStream(data);
+    }
+
+    @Override
+    public CompletableFuture<byte[]> getData(long offset, int length) {
+        return getDataVectored(List.of(new FileRange(offset, length))).thenApply(results -> results.get(0));
+    }
+
+    @Override
+    public CompletableFuture<List<byte[]>> getDataVectored(List<FileRange> ranges) {
+        getDataCalls.incrementAndGet();
+        long bytes = 0;
+        for (FileRange range : ranges) {
+            bytes += range.length();
+        }
+        long millis = latencyMillis + millisPerKilobyte * bytes / 1024;
+        return CompletableFuture.runAsync(() -> { }, CompletableFuture.delayedExecutor(millis, TimeUnit.MILLISECONDS))
+            .thenCompose(ignored -> delegate.getDataVectored(ranges));
+    }
+
+    int fileLengthCalls() {
+        return fileLengthCalls.get();
+    }
+
+    int getDataCalls() {
+        return getDataCalls.get();
+    }
+
+    private void sleep() {
+        sleep(latencyMillis);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Delivers at most one kilobyte per read, taking millisPerKilobyte for it
+    private final class ThrottledStream extends FilterInputStream {
+        ThrottledStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, Math.min(len, 1024));
+            if (n > 0) {
+                sleep(millisPerKilobyte * n / 1024);
+            }
+            return n;
+        }
+    }
+}
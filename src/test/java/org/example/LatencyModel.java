@@ -0,0 +1,66 @@
+package org.example;
+
+import java.util.SplittableRandom;
+
+/**
+ * Per-call latency of a simulated DFS or remote node, in milliseconds
+ */
+interface LatencyModel {
+
+    long nextMillis();
+
+    static LatencyModel none() {
+        return () -> 0;
+    }
+
+    static LatencyModel fixed(long millis) {
+        return () -> millis;
+    }
+
+    /**
+     * Heavy-tailed latency: the median is {@code medianMillis}, and {@code sigma}
+     * controls the tail (0.5 gives a p99 of about 3x the median, 1.0 about 10x).
+     */
+    static LatencyModel logNormal(long medianMillis, double sigma, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        double mu = Math.log(Math.max(medianMillis, 1));
+        return () -> {
+            double gaussian;
+            synchronized (random) {
+                gaussian = gaussian(random);
+            }
+            return Math.round(Math.exp(mu + sigma * gaussian));
+        };
+    }
+
+    /**
+     * Adds {@code stragglerMillis} to a fraction {@code probability} of the calls of this model.
+     */
+    default LatencyModel withStragglers(double probability, long stragglerMillis, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        return () -> {
+            boolean straggler;
+            synchronized (random) {
+                straggler = random.nextDouble() < probability;
+            }
+            return nextMillis() + (straggler ? stragglerMillis : 0);
+        };
+    }
+
+    /**
+     * Sleeps for the next sampled latency, preserving the interrupt flag.
+     */
+    default void sleep() throws InterruptedException {
+        long millis = nextMillis();
+        if (millis > 0) {
+            Thread.sleep(millis);
+        }
+    }
+
+    private static double gaussian(SplittableRandom random) {
+        // Box-Muller; SplittableRandom has no nextGaussian on Java 11
+        double u1 = 1.0 - random.nextDouble();
+        double u2 = random.nextDouble();
+        return Math.sqrt(-2 * Math.log(u1)) * Math.cos(2 * Math.PI * u2);
+    }
+}
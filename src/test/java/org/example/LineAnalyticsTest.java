@@ -0,0 +1,180 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the single-pass line aggregates
+ */
+public class LineAnalyticsTest {
+
+    private static LineAnalytics allAggregates() {
+        return LineAnalytics.of(LineAggregates.maxWords(), LineAggregates.totalWords(), LineAggregates.lineCount(),
+            LineAggregates.wordsPerLineHistogram(), LineAggregates.maxLineBytes());
+    }
+
+    private static void assertMatchesReference(byte[] data, LineAnalytics analytics) {
+        String[] lines = new String(data, StandardCharsets.US_ASCII).split("\r\n|\r|\n", -1);
+        // A trailing line break does not start another line
+        int lineCount = lines.length > 0 && lines[lines.length - 1].isEmpty() ? lines.length - 1 : lines.length;
+
+        long totalWords = 0;
+        long maxLineBytes = 0;
+        int maxWords = 0;
+        Map<Integer, Long> histogram = new TreeMap<>();
+        for (int i = 0; i < lineCount; i++) {
+            String trimmed = lines[i].trim();
+            int words = trimmed.isEmpty() ? 0 : trimmed.split("\\s+").length;
+            totalWords += words;
+            maxWords = Math.max(maxWords, words);
+            maxLineBytes = Math.max(maxLineBytes, lines[i].length());
+            histogram.merge(words, 1L, Long::sum);
+        }
+
+        assertEquals(maxWords, analytics.get(LineAggregates.MaxWords.class).value());
+        assertEquals(totalWords, analytics.get(LineAggregates.TotalWords.class).value());
+        assertEquals(lineCount, analytics.get(LineAggregates.LineCount.class).value());
+        assertEquals(maxLineBytes, analytics.get(LineAggregates.MaxLineBytes.class).value());
+        assertEquals(histogram, analytics.get(LineAggregates.WordsPerLineHistogram.class).asMap());
+    }
+
+    @Test
+    void testScannerFeedsEveryLineOnce() {
+        byte[] data = "a b\r\n\r\nc\rd e f\n\n  g  ".getBytes(StandardCharsets.US_ASCII);
+        LineAnalytics analytics = allAggregates();
+        LineScanner scanner = new LineScanner(analytics);
+        // One byte at a time, so "\r\n" is split across chunks
+        for (int i = 0; i < data.length; i++) {
+            scanner.scan(data, i, 1);
+        }
+        scanner.finish();
+
+        assertEquals(6, scanner.lines());
+        assertMatchesReference(data, analytics);
+    }
+
+    @Test
+    void testSinglePassMatchesReferenceAcrossSplits() {
+        for (String lineEnding : new String[] {"\n", "\r\n", "\r"}) {
+            WorkloadGenerator.Workload workload = WorkloadGenerator.builder()
+                .seed(21).sizeBytes(200_000).wordsPerLine(0, 30).longLines(0.005, 2000)
+                .mixedWhitespace(true).lineEnding(lineEnding).trailingLineEnding(false)
+                .generate();
+            // An odd split size so that boundaries land on every kind of byte, including between '\r' and '\n'
+            WordCountConfig config = WordCountConfig.builder().splitSize(997).readBufferSize(256).build();
+
+            try (DistributedWordCount processor = new DistributedWordCount(workload.toDistributedFS(), config)) {
+                WordCountResult result = processor.run(allAggregates());
+                assertEquals(workload.expectedMaxWords(), result.maxWords());
+                assertEquals(workload.lines(), result.analytics().get(LineAggregates.LineCount.class).value());
+                assertMatchesReference(workload.data(), result.analytics());
+            }
+        }
+    }
+
+    @Test
+    void testRetriedSplitsAreMergedIntoTheAggregates() {
+        WorkloadGenerator.Workload workload = WorkloadGenerator.builder().seed(5).sizeBytes(20_000).generate();
+        WordCountConfig config = WordCountConfig.builder().splitSize(1000).maxSplitRetries(0).build();
+        // The first calls fail and, without retries, their splits are lost on the first run
+        SimulatedRemoteExecutor<Integer> executor = new SimulatedRemoteExecutor<>(LatencyModel.none(), FailureModel.firstCalls(3));
+
+        try (DistributedWordCount processor = new DistributedWordCount(workload.toDistributedFS(), config, executor)) {
+            WordCountResult partial = processor.run(LineAnalytics.of(LineAggregates.lineCount()));
+            assertFalse(partial.isComplete());
+            assertTrue(partial.analytics().get(LineAggregates.LineCount.class).value() < workload.lines());
+
+            assertEquals(3, partial.failedSplits().size());
+
+            WordCountResult result = processor.retryFailed(partial);
+            assertTrue(result.isComplete());
+            assertEquals(workload.lines(), result.analytics().get(LineAggregates.LineCount.class).value());
+        }
+    }
+
+    /**
+     * Every line of {@code data} as "words @offset+length", most words first, ties by offset.
+     */
+    private static List<String> referenceTopLines(byte[] data, int k) {
+        List<long[]> lines = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i <= data.length; i++) {
+            boolean end = i == data.length;
+            if (end || data[i] == '\n' || data[i] == '\r') {
+                if (!end || i > start) {
+                    String text = new String(data, start, i - start, StandardCharsets.US_ASCII);
+                    lines.add(new long[] {start, i - start, DistributedWordCount.countWordsInLine(text)});
+                }
+                if (!end && data[i] == '\r' && i + 1 < data.length && data[i + 1] == '\n') {
+                    i++;
+                }
+                start = i + 1;
+            }
+        }
+        lines.sort(Comparator.<long[]>comparingLong(line -> -line[2]).thenComparingLong(line -> line[0]));
+        List<String> top = new ArrayList<>();
+        for (long[] line : lines.subList(0, Math.min(k, lines.size()))) {
+            top.add(line[2] + " words @" + line[0] + "+" + line[1]);
+        }
+        return top;
+    }
+
+    @Test
+    void testTopLinesHaveExactOffsetsAcrossSplits() {
+        for (String lineEnding : new String[] {"\n", "\r\n", "\r"}) {
+            // Few distinct word counts, so that ties must be broken by offset
+            WorkloadGenerator.Workload workload = WorkloadGenerator.builder()
+                .seed(16).sizeBytes(100_000).wordsPerLine(0, 8).longLines(0.01, 3000)
+                .mixedWhitespace(true).lineEnding(lineEnding).trailingLineEnding(false)
+                .generate();
+            WordCountConfig config = WordCountConfig.builder().splitSize(883).readBufferSize(128).build();
+
+            try (DistributedWordCount processor = new DistributedWordCount(workload.toDistributedFS(), config)) {
+                List<LineAggregates.Line> top = processor.findWidestLines(25);
+                List<String> actual = new ArrayList<>();
+                for (LineAggregates.Line line : top) {
+                    actual.add(line.toString());
+                }
+                assertEquals(referenceTopLines(workload.data(), 25), actual, "line ending " + lineEnding.length());
+                assertEquals(workload.expectedMaxWords(), top.get(0).words());
+            }
+        }
+    }
+
+    @Test
+    void testTopLinesMergeIsOrderIndependent() {
+        LineAggregates.TopLines left = LineAggregates.topLines(2);
+        LineAggregates.TopLines right = left.newEmpty();
+        left.accept(0, 5, 10);
+        left.accept(40, 7, 14);
+        right.accept(100, 7, 20);
+        right.accept(200, 5, 9);
+        right.accept(300, 1, 2);
+
+        LineAggregates.TopLines leftFirst = left.newEmpty();
+        leftFirst.merge(left);
+        leftFirst.merge(right);
+        LineAggregates.TopLines rightFirst = left.newEmpty();
+        rightFirst.merge(right);
+        rightFirst.merge(left);
+
+        assertEquals("[7 words @40+14, 7 words @100+20]", leftFirst.lines().toString());
+        assertEquals(leftFirst.lines().toString(), rightFirst.lines().toString());
+        assertThrows(IllegalArgumentException.class, () -> LineAggregates.topLines(0));
+    }
+
+    @Test
+    void testRequestValidation() {
+        assertThrows(IllegalArgumentException.class,
+            () -> LineAnalytics.of(LineAggregates.maxWords(), LineAggregates.maxWords()));
+        assertThrows(IllegalArgumentException.class,
+            () -> LineAnalytics.of(LineAggregates.lineCount()).get(LineAggregates.TotalWords.class));
+        assertTrue(LineAnalytics.none().isEmpty());
+    }
+}
@@ -0,0 +1,157 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the newline index and line-aligned splits
+ */
+public class LineIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static final int INTERVAL = 512;
+
+    private static final WordCountConfig CONFIG = WordCountConfig.builder()
+        .splitSize(997).readBufferSize(256).lineIndexInterval(INTERVAL).build();
+
+    private static WorkloadGenerator.Workload workload(String lineEnding) {
+        // Long lines make equal byte ranges hold very different numbers of lines
+        return WorkloadGenerator.builder()
+            .seed(18).sizeBytes(60_000).wordsPerLine(0, 10).longLines(0.01, 4000)
+            .lineEnding(lineEnding).trailingLineEnding(false)
+            .generate();
+    }
+
+    /**
+     * The index of {@code data} built by a single scanner, as the reference.
+     */
+    private static LineIndex referenceIndex(byte[] data) {
+        LineIndex index = new LineIndex(INTERVAL);
+        LineScanner scanner = new LineScanner(LineAnalytics.of(index));
+        scanner.scan(data, 0, data.length);
+        scanner.finish();
+        index.coverTo(data.length);
+        return index;
+    }
+
+    private static LineIndex buildIndex(byte[] data) {
+        try (DistributedWordCount processor = new DistributedWordCount(new InMemoryDistributedFS(data), CONFIG)) {
+            WordCountResult result = processor.run(LineAnalytics.of(new LineIndex(INTERVAL)));
+            LineIndex index = result.analytics().get(LineIndex.class);
+            index.coverTo(result.fileLength());
+            return index;
+        }
+    }
+
+    private static String plan(LineIndex index, long fileLength) {
+        return index.plan(fileLength, WordCountEngine.NUM_NODES, CONFIG).toString();
+    }
+
+    @Test
+    void testIndexBuiltAcrossSplitsMatchesSingleScan() {
+        for (String lineEnding : new String[] {"\n", "\r\n", "\r"}) {
+            byte[] data = workload(lineEnding).data();
+            LineIndex reference = referenceIndex(data);
+            LineIndex index = buildIndex(data);
+
+            assertEquals(reference.toString(), index.toString());
+            assertEquals(plan(reference, data.length), plan(index, data.length));
+        }
+    }
+
+    @Test
+    void testAlignedSplitsReadEveryByteOnceAndBalanceLines() {
+        for (String lineEnding : new String[] {"\n", "\r\n"}) {
+            WorkloadGenerator.Workload workload = workload(lineEnding);
+            LineIndex index = buildIndex(workload.data());
+
+            try (DistributedWordCount processor = new DistributedWordCount(workload.toDistributedFS(), CONFIG)) {
+                WordCountResult result = processor.run(index, LineAnalytics.of(LineAggregates.lineCount()));
+                assertTrue(result.isComplete());
+                assertEquals(workload.expectedMaxWords(), result.maxWords());
+                assertEquals(workload.lines(), result.analytics().get(LineAggregates.LineCount.class).value());
+                // No boundary probing and no line read twice
+                assertEquals(workload.data().length, result.metrics().bytesRead());
+
+                List<PartitionMetrics> partitions = result.metrics().partitions();
+                long average = workload.lines() / partitions.size();
+                for (PartitionMetrics partition : partitions) {
+                    assertTrue(partition.split().lineAligned());
+                    assertTrue(partition.lines() < 2 * average + 20, partition.split() + " has " + partition.lines()
+                        + " lines, average " + average);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testIncrementalUpdateMatchesFullBuild() {
+        byte[] full = workload("\r\n").data();
+        // Cut in the middle of a line and between '\r' and '\n'
+        for (int cut : new int[] {20_000, 33_333, indexOf(full, (byte) '\r', 40_000) + 1}) {
+            byte[] prefix = Arrays.copyOf(full, cut);
+            LineIndex index = buildIndex(prefix);
+
+            LineIndex updated;
+            try (DistributedWordCount processor = new DistributedWordCount(new InMemoryDistributedFS(full), CONFIG)) {
+                updated = processor.updateLineIndex(index);
+            }
+            LineIndex reference = referenceIndex(full);
+            assertEquals(reference.toString(), updated.toString(), "cut at " + cut);
+            assertEquals(plan(reference, full.length), plan(updated, full.length), "cut at " + cut);
+        }
+    }
+
+    @Test
+    void testIndexIsKeptNextToTheFile() throws Exception {
+        WorkloadGenerator.Workload workload = workload("\n");
+        Path indexFile = LineIndex.sidecarOf(tempDir.resolve("input.txt"));
+        assertEquals("input.txt.lineidx", indexFile.getFileName().toString());
+
+        try (DistributedWordCount processor = new DistributedWordCount(workload.toDistributedFS(), CONFIG)) {
+            assertEquals(workload.expectedMaxWords(), processor.findMaxWordsPerLine(indexFile));
+        }
+        assertTrue(Files.exists(indexFile));
+        assertEquals(referenceIndex(workload.data()).toString(), LineIndex.load(indexFile).toString());
+
+        // The file grows: the index is extended and the appended line counted
+        byte[] wide = ("\n" + " a b c d e f g h i j k l m n o p q r s t u v w x y z".repeat(200))
+            .getBytes(StandardCharsets.US_ASCII);
+        byte[] grown = Arrays.copyOf(workload.data(), workload.data().length + wide.length);
+        System.arraycopy(wide, 0, grown, workload.data().length, wide.length);
+        try (DistributedWordCount processor = new DistributedWordCount(new InMemoryDistributedFS(grown), CONFIG)) {
+            assertEquals(5200, processor.findMaxWordsPerLine(indexFile));
+        }
+        assertEquals(referenceIndex(grown).toString(), LineIndex.load(indexFile).toString());
+
+        Files.write(indexFile, new byte[] {0});
+        assertNull(LineIndex.load(indexFile));
+    }
+
+    @Test
+    void testValidation() {
+        assertThrows(IllegalArgumentException.class, () -> new LineIndex(0));
+        assertThrows(IllegalArgumentException.class, () -> new LineIndex(512).merge(new LineIndex(1024)));
+        // An empty file needs no splits, and a file without an index gets a single one
+        assertTrue(new LineIndex(512).plan(0, WordCountEngine.NUM_NODES, CONFIG).isEmpty());
+        assertEquals("[Split#0[0, 100), line-aligned]",
+            new LineIndex(512).plan(100, WordCountEngine.NUM_NODES, CONFIG).toString());
+    }
+
+    private static int indexOf(byte[] data, byte b, int from) {
+        for (int i = from; i < data.length; i++) {
+            if (data[i] == b) {
+                return i;
+            }
+        }
+        throw new AssertionError("No " + b + " after " + from);
+    }
+}
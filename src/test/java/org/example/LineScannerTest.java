@@ -0,0 +1,131 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the byte-level LineScanner
+ */
+public class LineScannerTest {
+
+    private static final String[] EDGE_CASES = {
+        "SingleWord",
+        "Two words",
+        "   Leading spaces   ",
+        "Trailing spaces   ",
+        "Multiple   spaces   between   words",
+        "",
+        "   ",
+        "\ttabs\tand spaces\t",
+        "form\ffeed\u000Bvertical"
+    };
+
+    @Test
+    void testMatchesRegexSplitOnEdgeCases() {
+        for (String line : EDGE_CASES) {
+            assertEquals(referenceCount(line), DistributedWordCount.countWordsInLine(line),
+                "Mismatch for '" + line + "'");
+        }
+    }
+
+    @Test
+    void testControlCharactersAreWordCharacters() {
+        // Inside a line, as with the regex split
+        assertEquals(referenceCount("a\u0001b c"), DistributedWordCount.countWordsInLine("a\u0001b c"));
+        assertEquals(referenceCount("a \u0001 b"), DistributedWordCount.countWordsInLine("a \u0001 b"));
+        // At the ends of a line too, where the original trim() dropped them
+        assertEquals(1, DistributedWordCount.countWordsInLine("\u0001"));
+        assertEquals(3, DistributedWordCount.countWordsInLine("\u0000 a \u001F"));
+        assertEquals(0, referenceCount("\u0001"));
+
+        byte[] data = "\u0001\n\u0002 \u0003\n".getBytes(StandardCharsets.US_ASCII);
+        LineScanner scanner = new LineScanner();
+        scanner.scan(data, 0, data.length);
+        scanner.finish();
+        assertEquals(2, scanner.maxWords());
+    }
+
+    @Test
+    void testMaxAcrossLines() {
+        byte[] data = "a b\r\nc d e f\n\n  g  \rh i j".getBytes(StandardCharsets.US_ASCII);
+
+        LineScanner scanner = new LineScanner();
+        scanner.scan(data, 0, data.length);
+        scanner.finish();
+
+        assertEquals(4, scanner.maxWords());
+    }
+
+    @Test
+    void testLastLineWithoutNewlineCountedOnFinish() {
+        byte[] data = "one\ntwo three four".getBytes(StandardCharsets.US_ASCII);
+
+        LineScanner scanner = new LineScanner();
+        scanner.scan(data, 0, data.length);
+        assertEquals(1, scanner.maxWords(), "Pending line must not be counted before finish()");
+
+        scanner.finish();
+        assertEquals(3, scanner.maxWords());
+    }
+
+    @Test
+    void testCountsLines() {
+        byte[] data = "one\n\ntwo three\nfour".getBytes(StandardCharsets.US_ASCII);
+
+        LineScanner scanner = new LineScanner();
+        scanner.scan(data, 0, 5);
+        scanner.scan(data, 5, data.length - 5);
+        assertEquals(3, scanner.lines());
+
+        // The unterminated last line counts once it is closed
+        scanner.finish();
+        assertEquals(4, scanner.lines());
+    }
+
+    @Test
+    void testChunkBoundariesDoNotChangeResult() {
+        Random random = new Random(42);
+        byte[] alphabet = "ab  \t\n\r".getBytes(StandardCharsets.US_ASCII);
+
+        for (int round = 0; round < 200; round++) {
+            byte[] data = new byte[random.nextInt(300)];
+            for (int i = 0; i < data.length; i++) {
+                data[i] = alphabet[random.nextInt(alphabet.length)];
+            }
+
+            int expected = 0;
+            String text = new String(data, StandardCharsets.US_ASCII);
+            for (String line : text.split("\r\n|\r|\n")) {
+                expected = Math.max(expected, referenceCount(line));
+            }
+
+            // Feed the same bytes in random-sized chunks
+            LineScanner scanner = new LineScanner();
+            int pos = 0;
+            while (pos < data.length) {
+                int len = Math.min(data.length - pos, 1 + random.nextInt(17));
+                scanner.scan(data, pos, len);
+                pos += len;
+            }
+            scanner.finish();
+
+            assertEquals(expected, scanner.maxWords(), "Mismatch for input '" + text + "'");
+        }
+    }
+
+    // Reference implementation: the original String/regex based counter
+    private static int referenceCount(String line) {
+        if (line == null || line.trim().isEmpty()) {
+            return 0;
+        }
+        int count = 0;
+        for (String word : line.trim().split("\\s+")) {
+            if (!word.isEmpty()) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
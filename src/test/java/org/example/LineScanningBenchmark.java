@@ -0,0 +1,144 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Microbenchmarks for the per-byte hot paths: word counting, line splitting and line-start search.
+ *
+ * The baselines run the original code from {@link OriginalWordCount}. Each
+ * operation covers the whole 1 MiB input, so the scores read as MiB/s;
+ * findNextLineStart and indexOfLineBreak instead run 256 searches from random offsets.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LineScanningBenchmark {
+
+    private static final int INPUT_SIZE = 1024 * 1024;
+
+    // SHORT: 1-8 words per line; LONG: 50-400; SKEWED: short, with one line in a thousand of 3000 words
+    @Param({"SHORT", "LONG", "SKEWED"})
+    public String lineShape;
+
+    // SINGLE: one space between words and '\n' line ends; MIXED: runs of mixed blanks and "\r\n"
+    @Param({"SINGLE", "MIXED"})
+    public String spacing;
+
+    private byte[] input;
+    private DistributedFS dfs;
+    private String[] lines;
+    private int[] probeOffsets;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        WorkloadGenerator generator = WorkloadGenerator.builder().seed(42).sizeBytes(INPUT_SIZE).lineShape(lineShape);
+        if (spacing.equals("MIXED")) {
+            generator.mixedWhitespace(true).lineEnding("\r\n");
+        }
+        WorkloadGenerator.Workload workload = generator.generate();
+        input = workload.data();
+        dfs = new InMemoryDistributedFS(input);
+        lines = new String(input, StandardCharsets.US_ASCII).split("\r?\n");
+        // Split boundaries fall at arbitrary offsets, usually mid-line
+        probeOffsets = workload.offsets(256);
+    }
+
+    /**
+     * Baseline: the original trim().split("\\s+") word count on pre-split lines.
+     */
+    @Benchmark
+    public int countWordsInLine() {
+        int max = 0;
+        for (String line : lines) {
+            max = Math.max(max, OriginalWordCount.countWordsInLine(line));
+        }
+        return max;
+    }
+
+    /**
+     * Line splitting and counting in a single pass over raw bytes, as done by PartitionReader.
+     */
+    @Benchmark
+    public int scanBytes() {
+        LineScanner scanner = new LineScanner();
+        // Fed in read-buffer-sized chunks to include the cross-chunk state handling
+        for (int off = 0; off < input.length; off += WordCountConfig.DEFAULT_READ_BUFFER_SIZE) {
+            scanner.scan(input, off, Math.min(WordCountConfig.DEFAULT_READ_BUFFER_SIZE, input.length - off));
+        }
+        scanner.finish();
+        return scanner.maxWords();
+    }
+
+    /**
+     * The same scan computing all built-in line aggregates as well.
+     */
+    @Benchmark
+    public LineAnalytics scanBytesWithAnalytics() {
+        LineAnalytics analytics = LineAnalytics.of(LineAggregates.maxWords(), LineAggregates.totalWords(),
+            LineAggregates.lineCount(), LineAggregates.wordsPerLineHistogram(), LineAggregates.maxLineBytes());
+        LineScanner scanner = new LineScanner(analytics);
+        for (int off = 0; off < input.length; off += WordCountConfig.DEFAULT_READ_BUFFER_SIZE) {
+            scanner.scan(input, off, Math.min(WordCountConfig.DEFAULT_READ_BUFFER_SIZE, input.length - off));
+        }
+        scanner.finish();
+        return analytics;
+    }
+
+    /**
+     * Baseline: the original reader, which decodes to characters, splits lines with BufferedReader
+     * and counts each line.
+     */
+    @Benchmark
+    public int readLineAndCount() throws IOException {
+        BufferedReader reader = new BufferedReader(
+            new InputStreamReader(new ByteArrayInputStream(input), StandardCharsets.US_ASCII));
+        int max = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            max = Math.max(max, OriginalWordCount.countWordsInLine(line));
+        }
+        return max;
+    }
+
+    /**
+     * Baseline: the original search for the start of the next line from a split boundary, which opens
+     * a stream at the boundary and reads it in 1 KiB chunks.
+     */
+    @Benchmark
+    public void findNextLineStart(Blackhole blackhole) throws IOException {
+        for (int offset : probeOffsets) {
+            blackhole.consume(OriginalWordCount.findNextLineStart(dfs, offset, input.length));
+        }
+    }
+
+    /**
+     * Finding the start of the next line in bytes already read, which replaced findNextLineStart.
+     */
+    @Benchmark
+    public void indexOfLineBreak(Blackhole blackhole) {
+        for (int offset : probeOffsets) {
+            blackhole.consume(PartitionReader.indexOfLineBreak(input, offset, input.length - offset));
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the memory-mapped local-file DistributedFS
+ */
+public class MappedFileDistributedFSTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static byte[] readAll(DistributedFS dfs, long offset) throws IOException {
+        try (InputStream is = dfs.getData(offset)) {
+            return is.readAllBytes();
+        }
+    }
+
+    @Test
+    void testReadsMatchFileAcrossSegments() throws IOException {
+        byte[] data = new byte[1000];
+        new Random(3).nextBytes(data);
+        Path file = Files.write(tempDir.resolve("random.bin"), data);
+
+        // Tiny segments so that most reads cross a segment boundary
+        try (MappedFileDistributedFS dfs = new MappedFileDistributedFS(file, 64)) {
+            assertEquals(1000, dfs.fileLength());
+            for (int offset : new int[] {0, 1, 63, 64, 65, 500, 959, 960, 999, 1000, 1200}) {
+                assertArrayEquals(Arrays.copyOfRange(data, Math.min(offset, data.length), data.length),
+                    readAll(dfs, offset), "Mismatch at offset " + offset);
+            }
+
+            try (InputStream is = dfs.getData(10)) {
+                assertEquals(200, is.skip(200));
+                assertEquals(data[210] & 0xFF, is.read());
+                assertEquals(789, is.skip(5000));
+                assertEquals(-1, is.read());
+            }
+        }
+    }
+
+    @Test
+    void testEmptyFile() throws IOException {
+        Path file = Files.createFile(tempDir.resolve("empty.txt"));
+        try (MappedFileDistributedFS dfs = new MappedFileDistributedFS(file)) {
+            assertEquals(0, dfs.fileLength());
+            assertEquals(0, readAll(dfs, 0).length);
+        }
+    }
+
+    @Test
+    void testWordCountOverMappedFile() throws IOException {
+        StringBuilder content = new StringBuilder();
+        Random random = new Random(5);
+        int expected = 0;
+        for (int line = 0; line < 2000; line++) {
+            int words = random.nextInt(20);
+            expected = Math.max(expected, words);
+            for (int w = 0; w < words; w++) {
+                content.append(w == 0 ? "" : " ").append("w").append(w);
+            }
+            content.append('\n');
+        }
+        Path file = Files.write(tempDir.resolve("lines.txt"), content.toString().getBytes(StandardCharsets.US_ASCII));
+
+        WordCountConfig config = WordCountConfig.builder().splitSize(997).build();
+        try (MappedFileDistributedFS dfs = new MappedFileDistributedFS(file, 4096);
+             DistributedWordCount processor = new DistributedWordCount(dfs, config)) {
+            assertEquals(expected, processor.findMaxWordsPerLine());
+        }
+    }
+
+    @Test
+    void testOffsetsPastTwoGigabytes() throws IOException {
+        // Sparse file: only the pages that are written take up disk space
+        Path file = tempDir.resolve("large.bin");
+        long length = 3L * 1024 * 1024 * 1024;
+        long straddling = (1L << 31) - 4;     // Crosses the 2 GB segment boundary
+        long beyond = 2_600_000_000L;
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(length);
+            raf.seek(straddling);
+            raf.write("across 2GB\n".getBytes(StandardCharsets.US_ASCII));
+            raf.seek(beyond);
+            raf.write("past 2GB\n".getBytes(StandardCharsets.US_ASCII));
+        }
+
+        try (MappedFileDistributedFS dfs = new MappedFileDistributedFS(file)) {
+            assertEquals(length, dfs.fileLength());
+            try (InputStream is = dfs.getData(straddling)) {
+                assertEquals("across 2GB\n", new String(is.readNBytes(11), StandardCharsets.US_ASCII));
+            }
+            try (InputStream is = dfs.getData(beyond)) {
+                assertEquals("past 2GB\n", new String(is.readNBytes(9), StandardCharsets.US_ASCII));
+            }
+            try (InputStream is = dfs.getData(length - 1)) {
+                assertEquals(0, is.read());
+                assertEquals(-1, is.read());
+            }
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import java.io.InputStream;
+import java.util.Arrays;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for locality-aware split placement and node-local caches
+ */
+public class NodeCacheTest {
+
+    private static final WordCountConfig CONFIG = WordCountConfig.builder()
+        .splitSize(4000).readBufferSize(256).nodeCacheBytes(1024 * 1024).nodeCacheBlockSize(1024).build();
+
+    private static WorkloadGenerator.Workload workload(int sizeBytes) {
+        return WorkloadGenerator.builder().seed(25).sizeBytes(sizeBytes).wordsPerLine(0, 12).generate();
+    }
+
+    @Test
+    void testRepeatedJobReadsFromNodeCaches() {
+        WorkloadGenerator.Workload workload = workload(60_000);
+        LatencyDistributedFS dfs = new LatencyDistributedFS(workload.toDistributedFS(), 0);
+
+        try (DistributedWordCount processor = new DistributedWordCount(dfs, CONFIG)) {
+            WordCountResult cold = processor.run();
+            assertEquals(workload.expectedMaxWords(), cold.maxWords());
+            assertEquals(0, cold.metrics().localPartitions());
+            assertEquals(0, cold.metrics().cacheHits());
+            int coldCalls = dfs.getDataCalls();
+
+            WordCountResult warm = processor.run();
+            assertTrue(warm.isComplete());
+            assertEquals(workload.expectedMaxWords(), warm.maxWords());
+            // Every split went back to its node, which only lacks the partial block at the end of the file
+            JobMetrics metrics = warm.metrics();
+            assertEquals(metrics.partitions().size(), metrics.localPartitions());
+            assertTrue(metrics.cacheHitRate() > 0.9, metrics.toString());
+            assertTrue(dfs.getDataCalls() - coldCalls <= 2, (dfs.getDataCalls() - coldCalls) + " DFS reads");
+            for (PartitionMetrics partition : metrics.partitions()) {
+                assertTrue(partition.local());
+            }
+        }
+    }
+
+    @Test
+    void testSplitsWaitForTheirNodeWhenThereAreMoreSplitsThanNodes() {
+        WorkloadGenerator.Workload workload = workload(60_000);
+        WordCountConfig config = WordCountConfig.builder()
+            .splitSize(200).readBufferSize(256).localityWaitMillis(5_000).nodeCacheBlockSize(200).build();
+
+        try (DistributedWordCount processor = new DistributedWordCount(workload.toDistributedFS(), config)) {
+            WordCountResult first = processor.run();
+            assertTrue(first.metrics().partitions().size() > 2 * WordCountEngine.NUM_NODES);
+
+            WordCountResult second = processor.run();
+            assertTrue(second.isComplete());
+            assertEquals(workload.expectedMaxWords(), second.maxWords());
+            assertEquals(second.metrics().partitions().size(), second.metrics().localPartitions());
+            // Without node caches there is nothing to hit
+            assertEquals(0, second.metrics().cacheHitRate());
+        }
+    }
+
+    @Test
+    void testAppendedFileKeepsItsPlacementsWithDerivedSplits() {
+        byte[] data = workload(400_000).data();
+        byte[] appended = Arrays.copyOf(data, data.length + data.length / 10);
+        System.arraycopy(data, 0, appended, data.length, appended.length - data.length);
+        GrowingDistributedFS dfs = new GrowingDistributedFS(data);
+        // Derived split sizes, which change with the file length
+        WordCountConfig config = WordCountConfig.builder()
+            .nodeCacheBytes(1024 * 1024).nodeCacheBlockSize(256).localityWaitMillis(1_000).build();
+
+        try (DistributedWordCount processor = new DistributedWordCount(dfs, config)) {
+            WordCountResult first = processor.run();
+            assertTrue(first.isComplete());
+            dfs.append(appended);
+
+            WordCountResult second = processor.run();
+            assertTrue(second.isComplete());
+            assertNotEquals(first.completedSplits().get(1).start(), second.completedSplits().get(1).start());
+            // Splits moved, but most of their blocks are still where they were read last time
+            JobMetrics metrics = second.metrics();
+            assertTrue(metrics.localPartitions() > metrics.partitions().size() * 3 / 4, metrics.toString());
+            assertTrue(metrics.cacheHitRate() > 0.5, metrics.toString());
+        }
+    }
+
+    @Test
+    void testCacheKeepsFullBlocksWithinItsCapacity() throws Exception {
+        byte[] data = workload(10_000).data();
+        NodeCache cache = new NodeCache(1000, 4000);
+        long file = 1;
+        PartitionMetrics.Recorder recorder = new PartitionMetrics.Recorder(new Split(0, 0, data.length), 1, 0);
+        DistributedFS reader = cache.reader(file, new InMemoryDistributedFS(data), recorder);
+
+        try (InputStream is = reader.getData(8_500)) {
+            assertArrayEquals(Arrays.copyOfRange(data, 8_500, data.length), is.readAllBytes());
+        }
+        // Only the full blocks are kept
+        assertEquals(2000, cache.cachedBytes());
+        try (InputStream is = reader.getData(2_500)) {
+            assertArrayEquals(Arrays.copyOfRange(data, 2_500, 4_000), is.readNBytes(1_500));
+        }
+        assertEquals(4000, cache.cachedBytes());
+        try (InputStream is = reader.getData(0)) {
+            assertArrayEquals(Arrays.copyOf(data, 100), is.readNBytes(100));
+        }
+        // The least recently used block made room
+        assertEquals(4000, cache.cachedBytes());
+        try (InputStream is = reader.getData(9_000)) {
+            assertArrayEquals(Arrays.copyOfRange(data, 9_000, 9_100), is.readNBytes(100));
+        }
+        try (InputStream is = reader.getData(8_000)) {
+            assertArrayEquals(Arrays.copyOfRange(data, 8_000, 8_100), is.readNBytes(100));
+        }
+        PartitionMetrics metrics = recorder.finish(0);
+        assertEquals(1, metrics.cacheHits());
+        assertEquals(7, metrics.cacheMisses());
+
+        cache.invalidate(2);
+        assertEquals(4000, cache.cachedBytes());
+        cache.invalidate(file);
+        assertEquals(0, cache.cachedBytes());
+    }
+
+    @Test
+    void testSplitsPreferTheNodeHoldingMostOfTheirBlocks() {
+        SplitLocality locality = new SplitLocality(100);
+        Object file = new Object();
+        Object other = new Object();
+        assertNotEquals(locality.id(file), locality.id(other));
+        assertEquals(locality.id(file), locality.id(file));
+
+        assertTrue(locality.observe(file, 1000));
+        locality.record(file, new Split(0, 0, 300), 7);
+        locality.record(file, new Split(1, 300, 1000), 8);
+        assertTrue(locality.observe(file, 2000));
+        assertEquals(7, locality.preferredNode(file, new Split(0, 0, 250)));
+        assertEquals(8, locality.preferredNode(file, new Split(1, 250, 550)));
+        assertEquals(8, locality.preferredNode(file, new Split(2, 900, 1500)));
+        assertEquals(0, locality.preferredNode(file, new Split(3, 1500, 2000)));
+        assertEquals(0, locality.preferredNode(other, new Split(0, 0, 250)));
+
+        // A file that got shorter was rewritten: where its blocks were read no longer matters
+        assertFalse(locality.observe(file, 50));
+        assertEquals(0, locality.preferredNode(file, new Split(0, 0, 50)));
+    }
+
+    /**
+     * In-memory file that can be appended to between jobs.
+     */
+    private static final class GrowingDistributedFS implements DistributedFS {
+        private volatile InMemoryDistributedFS data;
+
+        GrowingDistributedFS(byte[] data) {
+            this.data = new InMemoryDistributedFS(data);
+        }
+
+        void append(byte[] grown) {
+            data = new InMemoryDistributedFS(grown);
+        }
+
+        @Override
+        public long fileLength() {
+            return data.fileLength();
+        }
+
+        @Override
+        public InputStream getData(long offset) {
+            return data.getData(offset);
+        }
+    }
+}
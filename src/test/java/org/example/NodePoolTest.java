@@ -0,0 +1,128 @@
+package org.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for handing out service IDs to the queues of concurrent jobs
+ */
+public class NodePoolTest {
+
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+
+    @AfterEach
+    void tearDown() {
+        timer.shutdownNow();
+    }
+
+    @Test
+    void testRequestsWaitWithoutAThread() {
+        NodePool nodes = new NodePool(2, timer);
+        NodePool.Queue queue = nodes.newQueue();
+
+        CompletableFuture<Integer> first = queue.acquire();
+        CompletableFuture<Integer> second = queue.acquire();
+        CompletableFuture<Integer> third = queue.acquire();
+        assertEquals(1, first.join());
+        assertEquals(2, second.join());
+        assertFalse(third.isDone());
+        assertEquals(0, nodes.poll());
+
+        // The thread returning a node hands it over
+        nodes.release(2);
+        assertEquals(2, third.getNow(0));
+
+        // A cancelled request is skipped
+        CompletableFuture<Integer> cancelled = queue.acquire();
+        CompletableFuture<Integer> next = queue.acquire();
+        cancelled.cancel(false);
+        nodes.release(1);
+        assertEquals(1, next.getNow(0));
+        assertEquals(0, nodes.freeNodes());
+    }
+
+    @Test
+    void testPreferredNodeIsWaitedForUpToTheWait() {
+        NodePool nodes = new NodePool(3, timer);
+        NodePool.Queue queue = nodes.newQueue();
+        int held = queue.acquirePreferred(2, 0).join();
+        assertEquals(2, held);
+
+        CompletableFuture<Integer> patient = queue.acquirePreferred(2, 60_000);
+        assertFalse(patient.isDone(), "Nodes 1 and 3 are free, but the request waits for node 2");
+        nodes.release(2);
+        assertEquals(2, patient.getNow(0));
+
+        // Without a wait, a busy preferred node gives way to any free node at once
+        assertEquals(1, queue.acquirePreferred(2, 0).getNow(0));
+
+        // After the wait, so does a preferred node that stays busy
+        CompletableFuture<Integer> impatient = queue.acquirePreferred(2, 50);
+        assertFalse(impatient.isDone());
+        assertEquals(3, impatient.orTimeout(5, TimeUnit.SECONDS).join());
+    }
+
+    @Test
+    void testAvoidedNodeIsTakenOnlyAfterTheWait() {
+        NodePool nodes = new NodePool(2, timer);
+        NodePool.Queue queue = nodes.newQueue();
+        queue.acquire().join();
+        queue.acquire().join();
+
+        CompletableFuture<Integer> retry = queue.acquireAvoiding(1, 60_000);
+        nodes.release(1);
+        assertFalse(retry.isDone(), "Node 1 is free, but the request avoids it");
+        nodes.release(2);
+        assertEquals(2, retry.getNow(0));
+
+        // Only node 1 is free: after the wait, the request takes it anyway
+        CompletableFuture<Integer> impatient = queue.acquireAvoiding(1, 50);
+        assertFalse(impatient.isDone());
+        assertEquals(1, impatient.orTimeout(5, TimeUnit.SECONDS).join());
+    }
+
+    @Test
+    void testLaterQueueIsNotStarvedByALargeOne() {
+        NodePool nodes = new NodePool(2, timer);
+        List<String> granted = new ArrayList<>();
+        ArrayDeque<Integer> held = new ArrayDeque<>();
+        List<CompletableFuture<Integer>> requests = new ArrayList<>();
+
+        NodePool.Queue large = nodes.newQueue();
+        for (int i = 0; i < 20; i++) {
+            requests.add(large.acquire().whenComplete((nodeId, e) -> {
+                granted.add("large");
+                held.add(nodeId);
+            }));
+        }
+        NodePool.Queue small = nodes.newQueue();
+        for (int i = 0; i < 3; i++) {
+            requests.add(small.acquire().whenComplete((nodeId, e) -> {
+                granted.add("small");
+                held.add(nodeId);
+            }));
+        }
+
+        // Finish the requests in the order they were granted nodes
+        while (!held.isEmpty()) {
+            int nodeId = held.poll();
+            assertTrue(nodeId == 1 || nodeId == 2);
+            nodes.release(nodeId);
+        }
+
+        // The two queues alternate once the small one has made its requests
+        assertTrue(requests.stream().allMatch(CompletableFuture::isDone));
+        assertEquals(23, granted.size());
+        assertEquals(List.of("large", "large", "large", "small", "large", "small", "large", "small"),
+            granted.subList(0, 8));
+        assertEquals(2, nodes.freeNodes());
+    }
+}
@@ -0,0 +1,88 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for PartitionReader boundary handling
+ */
+public class PartitionReaderTest {
+
+    @Test
+    void testRandomPartitioningMatchesWholeFile() throws IOException {
+        Random random = new Random(7);
+        byte[] alphabet = "xy  \n\r".getBytes(StandardCharsets.US_ASCII);
+
+        for (int round = 0; round < 300; round++) {
+            byte[] data = new byte[1 + random.nextInt(200)];
+            for (int i = 0; i < data.length; i++) {
+                data[i] = alphabet[random.nextInt(alphabet.length)];
+            }
+            DistributedFS dfs = new InMemoryDistributedFS(data);
+
+            LineScanner whole = new LineScanner();
+            whole.scan(data, 0, data.length);
+            whole.finish();
+
+            int partitions = 1 + random.nextInt(20);
+            int bufferSize = 1 + random.nextInt(8);
+            int max = 0;
+            for (int p = 0; p < partitions; p++) {
+                long start = (long) data.length * p / partitions;
+                long end = (long) data.length * (p + 1) / partitions;
+                LineScanner scanner = new LineScanner();
+                new PartitionReader(dfs, bufferSize).read(start, end, scanner);
+                max = Math.max(max, scanner.maxWords());
+            }
+
+            assertEquals(whole.maxWords(), max,
+                "Mismatch for '" + new String(data, StandardCharsets.US_ASCII) + "' in " + partitions + " partitions");
+        }
+    }
+
+    @Test
+    void testPartitionInsideLongLineReadsNothing() throws IOException {
+        CountingDistributedFS dfs = new CountingDistributedFS(new InMemoryDistributedFS("short\na b c d e f g h i j\nend"));
+
+        // [8, 12) lies inside the long line, which belongs to the partition it starts in
+        LineScanner scanner = new LineScanner();
+        new PartitionReader(dfs, 64).read(8, 12, scanner);
+
+        assertEquals(0, scanner.maxWords());
+        // The search for the first line start reads no further than the partition's range
+        assertEquals(4, dfs.bytes());
+    }
+
+    @Test
+    void testPartitionReadsLittleMoreThanItsRange() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            content.append("one two three\n");
+        }
+        CountingDistributedFS dfs = new CountingDistributedFS(new InMemoryDistributedFS(content.toString()));
+
+        // The line straddling the end is finished within the first small read past it
+        LineScanner scanner = new LineScanner();
+        new PartitionReader(dfs, 64 * 1024).read(100, 200, scanner);
+
+        assertEquals(3, scanner.maxWords());
+        assertEquals(100 + PartitionReader.FIRST_TAIL_READ, dfs.bytes());
+    }
+
+    @Test
+    void testLineStartingAtPartitionEndBelongsToPartition() throws IOException {
+        DistributedFS dfs = new InMemoryDistributedFS("a\nb c d\ne");
+
+        // The line "b c d" starts exactly at the end offset 2
+        LineScanner first = new LineScanner();
+        new PartitionReader(dfs, 16).read(0, 2, first);
+        LineScanner second = new LineScanner();
+        new PartitionReader(dfs, 16).read(2, 9, second);
+
+        assertEquals(3, first.maxWords());
+        assertEquals(1, second.maxWords());
+    }
+}
@@ -0,0 +1,176 @@
+package org.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the read-ahead PrefetchingInputStream
+ */
+public class PrefetchingInputStreamTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testReadsMatchPlainStream() throws IOException {
+        Random random = new Random(11);
+        byte[] data = new byte[5000];
+        random.nextBytes(data);
+        DistributedFS dfs = new InMemoryDistributedFS(data);
+
+        for (int round = 0; round < 50; round++) {
+            int offset = random.nextInt(data.length + 10);
+            int blockSize = 1 + random.nextInt(700);
+            int depth = 1 + random.nextInt(5);
+
+            byte[] actual;
+            try (InputStream is = new PrefetchingInputStream(dfs, offset, data.length, blockSize, depth, executor)) {
+                actual = is.readAllBytes();
+            }
+            assertArrayEquals(Arrays.copyOfRange(data, Math.min(offset, data.length), data.length), actual,
+                "Mismatch at offset " + offset + " with block size " + blockSize + " and depth " + depth);
+        }
+    }
+
+    @Test
+    void testDepthIsCappedByMemoryBudget() throws IOException {
+        LatencyDistributedFS dfs = new LatencyDistributedFS(new InMemoryDistributedFS(new byte[10 * 1024]), 0);
+        // Depth 8 of 1 KB blocks, but only 2 KB may be buffered
+        DistributedFS readAhead = PrefetchingInputStream.over(dfs, 10 * 1024, 1024, 8, 2048, executor);
+
+        try (InputStream is = readAhead.getData(0)) {
+            assertEquals(0, is.read());
+            // The head block plus the one fetched to refill the pipeline
+            assertTrue(dfs.getDataCalls() <= 3, "Fetched " + dfs.getDataCalls() + " blocks ahead");
+        }
+    }
+
+    @Test
+    void testFetchOverlapsWithCompute() throws IOException {
+        int kilobytes = 16;
+        // 20 ms of network time per kilobyte, and the consumer spends 20 ms of "CPU" per kilobyte
+        DistributedFS dfs = new LatencyDistributedFS(new InMemoryDistributedFS(new byte[kilobytes * 1024]), 0, 20);
+
+        long startTime = System.currentTimeMillis();
+        try (InputStream is = dfs.getData(0)) {
+            consume(is);
+        }
+        long sequentialMillis = System.currentTimeMillis() - startTime;
+
+        startTime = System.currentTimeMillis();
+        try (InputStream is = new PrefetchingInputStream(dfs, 0, kilobytes * 1024, 1024, 4, executor)) {
+            consume(is);
+        }
+        long prefetchMillis = System.currentTimeMillis() - startTime;
+
+        System.out.println("Sequential: " + sequentialMillis + " ms, read-ahead: " + prefetchMillis + " ms");
+        // Sum of I/O and CPU (~640 ms) versus roughly their max (~320 ms)
+        assertTrue(prefetchMillis < sequentialMillis * 3 / 4,
+            "Read-ahead should overlap I/O with compute: " + prefetchMillis + " vs " + sequentialMillis + " ms");
+    }
+
+    @Test
+    void testReadAheadStopsAtTheEndOfTheRange() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            content.append("line ").append(i).append('\n');
+        }
+        byte[] data = content.toString().getBytes(StandardCharsets.US_ASCII);
+        CountingDistributedFS dfs = new CountingDistributedFS(new InMemoryDistributedFS(data));
+
+        // Read the range and the rest of the line straddling its end, as a partition does
+        try (InputStream is = new PrefetchingInputStream(dfs, 10_000, 30_000, data.length, 4096, 4, executor,
+                ReadGovernor.unlimited())) {
+            assertArrayEquals(Arrays.copyOfRange(data, 10_000, 30_000), is.readNBytes(20_000));
+            int b;
+            while ((b = is.read()) != '\n') {
+                assertNotEquals(-1, b);
+            }
+        }
+        assertTrue(dfs.bytes() <= 20_000 + PrefetchingInputStream.TAIL_BLOCK_SIZE, dfs.bytes() + " bytes fetched");
+
+        // A whole job fetches about the file once, not a pipeline's worth past every split
+        WordCountConfig config = WordCountConfig.builder()
+            .splitSize(4000).readAheadDepth(4).readAheadBlockSize(1024).build();
+        CountingDistributedFS jobDfs = new CountingDistributedFS(new InMemoryDistributedFS(data));
+        try (DistributedWordCount processor = new DistributedWordCount(jobDfs, config)) {
+            WordCountResult result = processor.run();
+            assertTrue(result.isComplete());
+            assertEquals(2, result.maxWords());
+            long splits = result.completedSplits().size();
+            assertTrue(jobDfs.bytes() <= data.length + splits * 1024, jobDfs.bytes() + " bytes fetched for "
+                + data.length + " bytes in " + splits + " splits");
+        }
+    }
+
+    @Test
+    void testClosedStreamIssuesNoMoreFetches() throws Exception {
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        LatencyDistributedFS dfs = new LatencyDistributedFS(new InMemoryDistributedFS(new byte[64 * 1024]), 0);
+        ReadGovernor governor = new ReadGovernor(8 * 1024, 0, null);
+        CountDownLatch busy = new CountDownLatch(1);
+        try {
+            // The fetch executor is busy, so nothing is issued before the stream is closed
+            single.execute(() -> await(busy));
+            InputStream is = new PrefetchingInputStream(dfs, 0, 64 * 1024, 64 * 1024, 1024, 8, single, governor);
+            assertTrue(governor.bytesInFlight() > 0);
+            is.close();
+            busy.countDown();
+            single.submit(() -> { }).get();
+            assertEquals(0, dfs.getDataCalls());
+            assertEquals(0, governor.bytesInFlight());
+        } finally {
+            single.shutdown();
+        }
+    }
+
+    @Test
+    void testWordCountWithReadAhead() {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            content.append(i == 150 ? "a b c d e f g\n" : "x y z\n");
+        }
+        WordCountConfig config = WordCountConfig.builder()
+            .splitSize(400)
+            .readAheadDepth(3)
+            .readAheadBlockSize(64)
+            .build();
+        try (DistributedWordCount processor = new DistributedWordCount(
+                new InMemoryDistributedFS(content.toString()), config)) {
+            assertEquals(7, processor.findMaxWordsPerLine());
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void consume(InputStream is) throws IOException {
+        byte[] buffer = new byte[1024];
+        int n;
+        while ((n = is.read(buffer)) != -1) {
+            try {
+                Thread.sleep(20L * n / 1024);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
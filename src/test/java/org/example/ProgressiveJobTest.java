@@ -0,0 +1,154 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for progressive results and sampled estimates
+ */
+public class ProgressiveJobTest {
+
+    private static final WorkloadGenerator.Workload WORKLOAD = WorkloadGenerator.builder()
+        .seed(21).sizeBytes(20_000).wordsPerLine(0, 12).generate();
+
+    // Ten splits on a single dispatch thread: they finish one by one, in dispatch order
+    private static WordCountConfig.Builder config() {
+        return WordCountConfig.builder().splitSize(2100).dispatchThreads(1).registerMBean(false);
+    }
+
+    @Test
+    void testRunningResultIsPublishedAsSplitsFinish() {
+        List<JobProgress> events = Collections.synchronizedList(new ArrayList<>());
+        try (DistributedWordCount processor = new DistributedWordCount(WORKLOAD.toDistributedFS(),
+                config().dispatchThreads(4).build())) {
+            ProgressiveJob job = processor.submitProgressive(LineAnalytics.of(LineAggregates.lineCount()), events::add);
+            WordCountResult result = job.result().join();
+
+            assertTrue(result.isComplete());
+            assertEquals(WORKLOAD.expectedMaxWords(), result.maxWords());
+            assertEquals(10, events.size());
+            for (int i = 1; i < events.size(); i++) {
+                assertEquals(i + 1, events.get(i).finishedSplits());
+                assertTrue(events.get(i).maxWords() >= events.get(i - 1).maxWords());
+                assertTrue(events.get(i).coverage() > events.get(i - 1).coverage());
+            }
+            JobProgress last = events.get(events.size() - 1);
+            assertTrue(last.isFinal());
+            assertSame(last, job.latest());
+            assertEquals(1.0, last.coverage());
+            assertEquals(WORKLOAD.lines(), last.result().analytics().get(LineAggregates.LineCount.class).value());
+            // Without sampling, the estimate is the exact answer
+            assertEquals(result.maxWords(), job.estimate().join().maxWords());
+            assertTrue(job.estimate().join().isFinal());
+        }
+    }
+
+    @Test
+    void testEachProgressHasTheAnalyticsOfItsSplits() {
+        List<JobProgress> events = Collections.synchronizedList(new ArrayList<>());
+        try (DistributedWordCount processor = new DistributedWordCount(WORKLOAD.toDistributedFS(), config().build())) {
+            ProgressiveJob job = processor.submitProgressive(LineAnalytics.of(LineAggregates.lineCount()), events::add);
+            job.result().join();
+        }
+        assertEquals(10, events.size());
+
+        // Asked for out of order, after the job has finished: each result still covers only its own splits
+        List<JobProgress> asked = new ArrayList<>(events);
+        asked.add(0, events.get(4));
+        for (JobProgress progress : asked) {
+            assertEquals(progress.lines(), progress.result().analytics().get(LineAggregates.LineCount.class).value(),
+                progress.toString());
+        }
+    }
+
+    private static JobProgress estimate(long seed) {
+        WordCountConfig config = config().sampleFraction(0.3).sampleSeed(seed).build();
+        try (DistributedWordCount processor = new DistributedWordCount(WORKLOAD.toDistributedFS(), config)) {
+            ProgressiveJob job = processor.submitProgressive(LineAnalytics.none(), null);
+            JobProgress estimate = job.estimate().join();
+            assertFalse(job.result().isDone());
+            assertEquals(WORKLOAD.expectedMaxWords(), job.result().join().maxWords());
+            return estimate;
+        }
+    }
+
+    @Test
+    void testSampleEstimateCoversASeededSpreadOfTheFile() {
+        JobProgress estimate = estimate(7);
+
+        assertFalse(estimate.isFinal());
+        assertEquals(3, estimate.finishedSplits());
+        assertTrue(estimate.coverage() > 0.2 && estimate.coverage() < 0.4, estimate.toString());
+        List<Split> sample = estimate.result().completedSplits();
+        for (Split split : sample) {
+            assertTrue(split.lineAligned());
+        }
+        // Not simply the head of the file
+        assertTrue(sample.get(sample.size() - 1).start() > WORKLOAD.data().length / 2, sample.toString());
+        long lines = estimate.estimatedTotalLines();
+        assertTrue(Math.abs(lines - WORKLOAD.lines()) < WORKLOAD.lines() / 2, lines + " vs " + WORKLOAD.lines());
+
+        // The same seed samples the same splits
+        assertEquals(sample.toString(), estimate(7).result().completedSplits().toString());
+    }
+
+    @Test
+    void testLinesOfCrlfFilesAreCountedOnce() {
+        WorkloadGenerator.Workload workload = WorkloadGenerator.builder()
+            .seed(21).sizeBytes(20_000).wordsPerLine(0, 12).lineEnding("\r\n").generate();
+        Set<String> listenerThreads = ConcurrentHashMap.newKeySet();
+        WordCountConfig config = config().dispatchThreads(4).sampleFraction(0.3).build();
+
+        try (DistributedWordCount processor = new DistributedWordCount(workload.toDistributedFS(), config)) {
+            ProgressiveJob job = processor.submitProgressive(LineAnalytics.none(),
+                progress -> listenerThreads.add(Thread.currentThread().getName()));
+            JobProgress estimate = job.estimate().join();
+            long lines = estimate.estimatedTotalLines();
+            assertTrue(Math.abs(lines - workload.lines()) < workload.lines() / 4, lines + " vs " + workload.lines());
+
+            job.result().join();
+            assertEquals(workload.lines(), job.latest().lines());
+            // Listeners are called on their own threads, never on a dispatch thread
+            assertFalse(listenerThreads.isEmpty());
+            for (String thread : listenerThreads) {
+                assertTrue(thread.startsWith("word-count-progress"), thread);
+            }
+        }
+    }
+
+    @Test
+    void testBudgetedEstimateThenCancel() {
+        WordCountConfig config = config().sampleFraction(1).sampleBudgetMillis(250).build();
+        try (DistributedWordCount processor = new DistributedWordCount(WORKLOAD.toDistributedFS(), config)) {
+            ProgressiveJob job = processor.submitProgressive(LineAnalytics.none(), null);
+
+            // Each split takes 100 ms on the only dispatch thread: the budget runs out first
+            JobProgress estimate = job.estimate().join();
+            assertTrue(estimate.finishedSplits() < 10, estimate.toString());
+            assertTrue(estimate.maxWords() <= WORKLOAD.expectedMaxWords());
+
+            job.cancel();
+            WordCountResult partial = job.result().join();
+            assertFalse(partial.isComplete());
+            assertEquals(10, partial.completedSplits().size() + partial.failedSplits().size());
+            assertTrue(job.latest().isFinal());
+
+            // The scan can be finished later from where it stopped
+            WordCountResult exact = processor.retryFailed(partial);
+            assertTrue(exact.isComplete());
+            assertEquals(WORKLOAD.expectedMaxWords(), exact.maxWords());
+        }
+    }
+
+    @Test
+    void testValidation() {
+        assertThrows(IllegalArgumentException.class, () -> WordCountConfig.builder().sampleFraction(1.5));
+        assertThrows(IllegalArgumentException.class, () -> WordCountConfig.builder().sampleFraction(Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> WordCountConfig.builder().sampleBudgetMillis(-1));
+    }
+}
@@ -0,0 +1,184 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for read admission control
+ */
+public class ReadGovernorTest {
+
+    @Test
+    void testReadsWaitForBudgetInsteadOfFailing() throws Exception {
+        ReadGovernor governor = new ReadGovernor(1000, 2, null);
+        assertEquals(0, governor.admit(400).join());
+        assertEquals(0, governor.admit(400).join());
+
+        // Out of reads: the third waits, without a thread, until one is returned
+        CompletableFuture<Long> third = governor.admit(100);
+        Thread.sleep(100);
+        assertFalse(third.isDone());
+        assertFalse(governor.tryAdmit(100));
+        governor.release(400);
+        assertTrue(third.get(5, TimeUnit.SECONDS) >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(500, governor.bytesInFlight());
+
+        // Out of bytes
+        governor.release(400);
+        assertFalse(governor.tryAdmit(1000));
+        assertTrue(governor.tryAdmit(900));
+        governor.release(900);
+        governor.release(100);
+        assertEquals(0, governor.readsInFlight());
+        // More than the whole budget still gets through on its own
+        assertEquals(0, governor.admit(5000).join());
+        assertEquals(1000, governor.bytesInFlight());
+        governor.release(5000);
+
+        assertEquals(4, governor.admissions());
+        assertEquals(1, governor.waits());
+        assertEquals(1000, governor.peakBytesInFlight());
+        assertEquals(2, governor.declined());
+    }
+
+    @Test
+    void testJobLimitsNestInTheEngineLimits() throws Exception {
+        ReadGovernor engine = new ReadGovernor(0, 3, null);
+        ReadGovernor jobA = new ReadGovernor(0, 2, engine);
+        ReadGovernor jobB = new ReadGovernor(0, 2, engine);
+
+        jobA.admit(1).join();
+        jobA.admit(1).join();
+        assertFalse(jobA.tryAdmit(1), "Job limit");
+        jobB.admit(1).join();
+        assertFalse(jobB.tryAdmit(1), "Engine limit");
+        assertEquals(1, jobB.readsInFlight());
+
+        CompletableFuture<Long> waiting = jobB.admit(1);
+        Thread.sleep(50);
+        assertFalse(waiting.isDone());
+        jobA.release(1);
+        waiting.get(5, TimeUnit.SECONDS);
+        assertEquals(3, engine.readsInFlight());
+        assertEquals(3, engine.peakReadsInFlight());
+
+        // A withdrawn request takes nothing, even once it would fit
+        CompletableFuture<Long> withdrawn = jobA.admit(1);
+        withdrawn.cancel(false);
+        jobB.release(1);
+        assertEquals(2, engine.readsInFlight());
+        assertEquals(1, jobA.readsInFlight());
+    }
+
+    @Test
+    void testReadAheadTakesBytesButNoReadSlot() {
+        ReadGovernor governor = new ReadGovernor(1000, 2, null);
+        governor.admit(300).join();
+        governor.admit(100).join();
+
+        // The read limit is reached, but read-ahead still fits in the byte budget
+        assertTrue(governor.tryReserve(400));
+        assertFalse(governor.tryReserve(400));
+        assertEquals(2, governor.readsInFlight());
+        assertEquals(800, governor.bytesInFlight());
+        assertEquals(400, governor.reservedBytesInFlight());
+
+        // Reserved bytes count against the budget of the next read
+        governor.release(100);
+        CompletableFuture<Long> next = governor.admit(400);
+        assertFalse(next.isDone());
+        governor.releaseReserved(400);
+        assertTrue(next.isDone());
+        assertEquals(0, governor.reservedBytesInFlight());
+        assertEquals(700, governor.bytesInFlight());
+    }
+
+    @Test
+    void testReadsWaitingForBudgetHoldNoNode() throws Exception {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+        NodePool nodes = new NodePool(4, timer);
+        ReadGovernor reads = new ReadGovernor(0, 1, null);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        try (SplitScheduler scheduler = new SplitScheduler(nodes, reads, 100, WordCountConfig.defaults(), timer,
+                executor)) {
+            List<CompletableFuture<Long>> splits = new ArrayList<>();
+            for (Split split : SplitPlanner.cut(300, 100)) {
+                splits.add(scheduler.submit(split, 0, (nodeId, s, admissionWaitNanos) -> {
+                    running.countDown();
+                    await(finish);
+                    return admissionWaitNanos;
+                }, executor));
+            }
+            assertTrue(running.await(5, TimeUnit.SECONDS));
+
+            // One split reads; the other two wait for admission, not on a node
+            assertEquals(3, nodes.freeNodes());
+            assertEquals(1, reads.readsInFlight());
+            finish.countDown();
+            for (CompletableFuture<Long> split : splits) {
+                split.get(5, TimeUnit.SECONDS);
+            }
+            assertEquals(2, reads.waits());
+            assertTrue(splits.get(2).join() > 0);
+            assertEquals(4, nodes.freeNodes());
+            assertEquals(0, reads.readsInFlight());
+        } finally {
+            executor.shutdownNow();
+            timer.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    void testJobsStayWithinTheEngineBudget() {
+        WorkloadGenerator.Workload workload = WorkloadGenerator.builder().seed(23).sizeBytes(60_000).generate();
+        for (int readAheadDepth : new int[] {0, 4}) {
+            WordCountConfig config = WordCountConfig.builder()
+                .splitSize(3000).readBufferSize(256)
+                .readAheadDepth(readAheadDepth).readAheadBlockSize(512)
+                .readBudgetBytes(4 * 1280).registerMBean(false)
+                .build();
+            DistributedFS dfs = new LatencyDistributedFS(workload.toDistributedFS(), 20);
+            try (WordCountEngine engine = new WordCountEngine(config)) {
+                WordCountResult result = engine.submit(dfs).join();
+
+                assertTrue(result.isComplete());
+                assertEquals(workload.expectedMaxWords(), result.maxWords());
+                ReadGovernor reads = engine.readGovernor();
+                assertTrue(reads.peakBytesInFlight() <= 4 * 1280, reads.toString());
+                assertEquals(0, reads.readsInFlight());
+                assertEquals(0, reads.bytesInFlight());
+                // Twenty partitions start together: most of them queue for budget
+                assertTrue(reads.waits() > 0, reads.toString());
+                assertTrue(result.metrics().admissionWait().max() > 0);
+                assertEquals(reads.waits(), engine.metrics().getReadAdmissionWaits());
+            }
+        }
+    }
+
+    @Test
+    void testValidation() {
+        assertThrows(IllegalArgumentException.class, () -> new ReadGovernor(-1, 0, null));
+        assertThrows(IllegalArgumentException.class, () -> WordCountConfig.builder().readBudgetBytes(-1));
+        assertThrows(IllegalArgumentException.class, () -> WordCountConfig.builder().maxConcurrentReads(-1));
+        assertThrows(IllegalArgumentException.class, () -> WordCountConfig.builder().jobReadBudgetBytes(-1));
+        assertThrows(IllegalArgumentException.class, () -> WordCountConfig.builder().jobMaxConcurrentReads(-1));
+    }
+}
@@ -0,0 +1,79 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scalar against vector scan kernels on 1 MiB of input; scores read as MiB/s.
+ *
+ * The forks run with the incubator module, so the vector kernel is available on Java 17+.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class ScanKernelBenchmark {
+
+    private static final int INPUT_SIZE = 1024 * 1024;
+
+    @Param({"scalar", "vector"})
+    public String kernel;
+
+    // SHORT: 1-8 words per line; LONG: 50-400
+    @Param({"SHORT", "LONG"})
+    public String lineShape;
+
+    private ScanKernel scanKernel;
+    private byte[] input;
+    private byte[] singleLine;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        scanKernel = kernel.equals("vector") ? ScanKernels.VECTOR : ScanKernels.SCALAR;
+        if (scanKernel == null) {
+            throw new IllegalStateException("The vector kernel is not available on this JVM");
+        }
+        input = WorkloadGenerator.builder().seed(42).sizeBytes(INPUT_SIZE).lineShape(lineShape).generate().data();
+        singleLine = input.clone();
+        for (int i = 0; i < singleLine.length; i++) {
+            if (LineScanner.isLineBreak(singleLine[i])) {
+                singleLine[i] = ' ';
+            }
+        }
+    }
+
+    @Benchmark
+    public int scan() {
+        ScanKernel.State state = new ScanKernel.State();
+        for (int off = 0; off < input.length; off += WordCountConfig.DEFAULT_READ_BUFFER_SIZE) {
+            scanKernel.scan(input, off, Math.min(WordCountConfig.DEFAULT_READ_BUFFER_SIZE, input.length - off), state);
+        }
+        return state.maxWords;
+    }
+
+    @Benchmark
+    public int countWords() {
+        return scanKernel.countWords(input, 0, input.length);
+    }
+
+    /**
+     * Searches input without a line break, as when skipping the partial first line of a split into a very long line.
+     */
+    @Benchmark
+    public int indexOfLineBreak() {
+        return scanKernel.indexOfLineBreak(singleLine, 0, singleLine.length);
+    }
+}
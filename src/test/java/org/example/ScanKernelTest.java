@@ -0,0 +1,115 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Property tests: every scan kernel must agree with the scalar one on random input
+ */
+public class ScanKernelTest {
+
+    // Every whitespace byte, its neighbours in the byte range, a letter and a non-ASCII byte
+    private static final byte[] ALPHABET = {' ', '\t', '\n', '\u000B', '\f', '\r', 8, 14, 31, 33, 'a', (byte) 0xA0};
+
+    private static byte[] randomBytes(Random random, int length) {
+        byte[] data = new byte[length];
+        // Mostly the interesting bytes, sometimes anything at all
+        for (int i = 0; i < length; i++) {
+            data[i] = random.nextInt(8) == 0 ? (byte) random.nextInt(256) : ALPHABET[random.nextInt(ALPHABET.length)];
+        }
+        // Runs of letters or blanks, so that words and gaps span whole vectors
+        for (int runs = random.nextInt(4); runs > 0 && length > 0; runs--) {
+            int start = random.nextInt(length);
+            byte fill = random.nextBoolean() ? (byte) 'x' : (byte) ' ';
+            for (int i = start; i < Math.min(length, start + random.nextInt(200)); i++) {
+                data[i] = fill;
+            }
+        }
+        return data;
+    }
+
+    private static ScanKernel vectorKernel() {
+        assumeTrue(ScanKernels.VECTOR != null, "The Vector API is not available on this JVM");
+        return ScanKernels.VECTOR;
+    }
+
+    private static String describe(ScanKernel.State state) {
+        return "inWord=" + state.inWord + ", words=" + state.words + ", max=" + state.maxWords + ", lines=" + state.lines;
+    }
+
+    @Test
+    void testScanMatchesScalarInAnyChunking() {
+        ScanKernel vector = vectorKernel();
+        Random random = new Random(19);
+        for (int round = 0; round < 2000; round++) {
+            byte[] data = randomBytes(random, random.nextInt(600));
+            ScanKernel.State expected = new ScanKernel.State();
+            ScanKernel.State actual = new ScanKernel.State();
+            int off = 0;
+            while (off < data.length) {
+                int len = 1 + random.nextInt(data.length - off);
+                ScanKernels.SCALAR.scan(data, off, len, expected);
+                vector.scan(data, off, len, actual);
+                assertEquals(describe(expected), describe(actual), "round " + round + " at " + off + "+" + len);
+                off += len;
+            }
+        }
+    }
+
+    @Test
+    void testCountWordsAndLineBreakSearchMatchScalar() {
+        ScanKernel vector = vectorKernel();
+        Random random = new Random(91);
+        for (int round = 0; round < 5000; round++) {
+            byte[] data = randomBytes(random, random.nextInt(400));
+            int off = data.length == 0 ? 0 : random.nextInt(data.length);
+            int len = random.nextInt(data.length - off + 1);
+            assertEquals(ScanKernels.SCALAR.countWords(data, off, len), vector.countWords(data, off, len),
+                "round " + round);
+            assertEquals(ScanKernels.SCALAR.indexOfLineBreak(data, off, len), vector.indexOfLineBreak(data, off, len),
+                "round " + round);
+        }
+    }
+
+    @Test
+    void testScannerResultsAreIdenticalOnWorkloads() {
+        ScanKernel vector = vectorKernel();
+        for (String lineEnding : new String[] {"\n", "\r\n", "\r"}) {
+            byte[] data = WorkloadGenerator.builder()
+                .seed(7).sizeBytes(300_000).wordsPerLine(0, 200).longLines(0.01, 5000)
+                .mixedWhitespace(true).lineEnding(lineEnding)
+                .generate().data();
+            LineScanner scalar = new LineScanner(null, ScanKernels.SCALAR);
+            LineScanner vectorized = new LineScanner(null, vector);
+            for (int off = 0; off < data.length; off += 4093) {
+                int len = Math.min(4093, data.length - off);
+                scalar.scan(data, off, len);
+                vectorized.scan(data, off, len);
+            }
+            scalar.finish();
+            vectorized.finish();
+            assertEquals(scalar.maxWords(), vectorized.maxWords());
+            assertEquals(scalar.lines(), vectorized.lines());
+        }
+    }
+
+    @Test
+    void testKernelChoice() {
+        assertSame(ScanKernels.SCALAR, ScanKernels.choose("scalar", 21));
+        if (ScanKernels.VECTOR == null) {
+            assertSame(ScanKernels.SCALAR, ScanKernels.choose("vector", 21));
+        } else {
+            // Slower than scalar before Java 21, unless asked for
+            assertSame(ScanKernels.SCALAR, ScanKernels.choose(null, 17));
+            assertSame(ScanKernels.VECTOR, ScanKernels.choose("vector", 17));
+            assertSame(ScanKernels.VECTOR, ScanKernels.choose(null, 21));
+        }
+
+        byte[] data = "\t one  two\nthree".getBytes(StandardCharsets.US_ASCII);
+        assertEquals(3, ScanKernels.SCALAR.countWords(data, 0, data.length));
+        assertEquals(10, ScanKernels.SCALAR.indexOfLineBreak(data, 0, data.length));
+    }
+}
@@ -0,0 +1,55 @@
+package org.example;
+
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * DistributedFS decorator with pluggable latency and failure models, for production-like tests
+ */
+class SimulatedDistributedFS implements DistributedFS {
+
+    private final DistributedFS delegate;
+    private final LatencyModel latency;
+    private final FailureModel failures;
+    private final AtomicInteger getDataCalls = new AtomicInteger();
+    private final AtomicInteger failedCalls = new AtomicInteger();
+
+    SimulatedDistributedFS(DistributedFS delegate, LatencyModel latency, FailureModel failures) {
+        this.delegate = delegate;
+        this.latency = latency;
+        this.failures = failures;
+    }
+
+    @Override
+    public long fileLength() {
+        pause();
+        return delegate.fileLength();
+    }
+
+    @Override
+    public InputStream getData(long offset) {
+        getDataCalls.incrementAndGet();
+        pause();
+        if (failures.nextFails()) {
+            failedCalls.incrementAndGet();
+            throw new RuntimeException("Simulated DFS failure reading offset " + offset);
+        }
+        return delegate.getData(offset);
+    }
+
+    int getDataCalls() {
+        return getDataCalls.get();
+    }
+
+    int failedCalls() {
+        return failedCalls.get();
+    }
+
+    private void pause() {
+        try {
+            latency.sleep();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package org.example;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * RemoteExecutor whose startup time and failures follow pluggable models instead of a fixed 100 ms
+ */
+class SimulatedRemoteExecutor<T> extends RemoteExecutor<T> {
+
+    private final LatencyModel latency;
+    private final FailureModel failures;
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicInteger failedCalls = new AtomicInteger();
+
+    SimulatedRemoteExecutor(LatencyModel latency, FailureModel failures) {
+        this.latency = latency;
+        this.failures = failures;
+    }
+
+    @Override
+    public T run(int serviceId, Supplier<T> func) {
+        if (serviceId < 1 || serviceId > 100) {
+            throw new IllegalArgumentException("Invalid serviceId: " + serviceId);
+        }
+        calls.incrementAndGet();
+        try {
+            latency.sleep();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted", e);
+        }
+        if (failures.nextFails()) {
+            failedCalls.incrementAndGet();
+            throw new RuntimeException("Service " + serviceId + " failed");
+        }
+        return func.get();
+    }
+
+    int calls() {
+        return calls.get();
+    }
+
+    int failedCalls() {
+        return failedCalls.get();
+    }
+}
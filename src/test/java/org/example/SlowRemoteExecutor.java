@@ -0,0 +1,38 @@
+package org.example;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * RemoteExecutor whose listed service IDs take an extra delay before running the task
+ */
+class SlowRemoteExecutor<T> extends RemoteExecutor<T> {
+
+    private final Set<Integer> slowServiceIds;
+    private final long extraDelayMillis;
+    private final AtomicInteger cancelledRuns = new AtomicInteger();
+
+    SlowRemoteExecutor(Set<Integer> slowServiceIds, long extraDelayMillis) {
+        this.slowServiceIds = slowServiceIds;
+        this.extraDelayMillis = extraDelayMillis;
+    }
+
+    @Override
+    public T run(int serviceId, Supplier<T> func) {
+        if (slowServiceIds.contains(serviceId)) {
+            try {
+                Thread.sleep(extraDelayMillis);
+            } catch (InterruptedException e) {
+                cancelledRuns.incrementAndGet();
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted", e);
+            }
+        }
+        return super.run(serviceId, func);
+    }
+
+    int cancelledRuns() {
+        return cancelledRuns.get();
+    }
+}
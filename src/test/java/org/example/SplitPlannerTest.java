@@ -0,0 +1,171 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for SplitPlanner
+ */
+public class SplitPlannerTest {
+
+    @Test
+    void testSplitsCoverFileContiguously() {
+        WordCountConfig config = WordCountConfig.builder().splitSize(7).build();
+        List<Split> splits = SplitPlanner.plan(100, 10, config);
+
+        assertEquals(15, splits.size());
+        long expectedStart = 0;
+        for (int i = 0; i < splits.size(); i++) {
+            Split split = splits.get(i);
+            assertEquals(i, split.index());
+            assertEquals(expectedStart, split.start());
+            expectedStart = split.end();
+        }
+        assertEquals(100, expectedStart);
+    }
+
+    @Test
+    void testAutomaticSplitSizeFollowsTargetDuration() {
+        WordCountConfig config = WordCountConfig.builder()
+            .assumedScanBytesPerSecond(1000 * 1000)
+            .targetSplitDurationMillis(500)
+            .build();
+
+        // 500 ms at 1 MB/s gives 500 kB splits: 10 MB -> 20 splits, more than the 4 nodes
+        assertEquals(500 * 1000, SplitPlanner.splitSize(10 * 1000 * 1000, 4, config));
+        assertEquals(20, SplitPlanner.plan(10 * 1000 * 1000, 4, config).size());
+    }
+
+    @Test
+    void testDefaultPlanHasMoreSplitsThanNodes() {
+        // A file far below the target split size still gets several splits per node
+        long fileLength = 1000L * 1000 * 1000;
+        List<Split> splits = SplitPlanner.plan(fileLength, 100, WordCountConfig.defaults());
+        assertEquals(WordCountConfig.DEFAULT_OVERSPLIT_FACTOR * 100, splits.size());
+        assertTrue(splits.size() > 100);
+
+        WordCountConfig config = WordCountConfig.builder().oversplitFactor(8).build();
+        assertEquals(800, SplitPlanner.plan(fileLength, 100, config).size());
+        assertThrows(IllegalArgumentException.class, () -> WordCountConfig.builder().oversplitFactor(0));
+    }
+
+    @Test
+    void testSmallFilesAreNotCutIntoTinySplits() {
+        WordCountConfig defaults = WordCountConfig.defaults();
+        long minSplit = WordCountConfig.DEFAULT_MIN_SPLIT_SIZE;
+        assertEquals(1, SplitPlanner.plan(184, 100, defaults).size());
+        assertEquals(1, SplitPlanner.plan(minSplit, 100, defaults).size());
+        // Fewer splits per node than the oversplit factor asks for, none below the minimum
+        List<Split> splits = SplitPlanner.plan(10 * minSplit + 1, 100, defaults);
+        assertEquals(10, splits.size());
+        assertEquals(minSplit + 1, splits.get(0).length());
+        assertEquals(2 * minSplit - 1, SplitPlanner.plan(2 * minSplit - 1, 100, defaults).get(0).length());
+        // The tail of an incremental job too
+        assertEquals(1, SplitPlanner.plan(1_000_000, 1_000_100, 5, 100, defaults).size());
+
+        WordCountConfig config = WordCountConfig.builder().minSplitSize(1).build();
+        assertEquals(WordCountConfig.DEFAULT_OVERSPLIT_FACTOR * 100, SplitPlanner.plan(4000, 100, config).size());
+        assertThrows(IllegalArgumentException.class, () -> WordCountConfig.builder().minSplitSize(0));
+    }
+
+    @Test
+    void testEmptyFileHasNoSplits() {
+        assertTrue(SplitPlanner.plan(0, 100, WordCountConfig.defaults()).isEmpty());
+    }
+
+    private static WorkloadGenerator.Workload workload(String lineEnding) {
+        // Long lines leave some boundaries without a line start in a short probe
+        return WorkloadGenerator.builder()
+            .seed(20).sizeBytes(40_000).wordsPerLine(0, 10).longLines(0.01, 3000)
+            .lineEnding(lineEnding).trailingLineEnding(false)
+            .generate();
+    }
+
+    @Test
+    void testAlignToLinesProbesAllBoundariesInOneRead() {
+        WordCountConfig config = WordCountConfig.builder().splitSize(997).build();
+        for (String lineEnding : new String[] {"\n", "\r\n", "\r"}) {
+            for (int probeBytes : new int[] {1, 2, 64, 4096}) {
+                byte[] data = workload(lineEnding).data();
+                LatencyDistributedFS dfs = new LatencyDistributedFS(new InMemoryDistributedFS(data), 0);
+                List<Split> splits = SplitPlanner.plan(data.length, 10, config);
+
+                List<Split> aligned = SplitPlanner.alignToLines(dfs, splits, data.length, probeBytes).join();
+
+                String context = "line ending " + lineEnding.length() + ", probe " + probeBytes;
+                assertEquals(1, dfs.getDataCalls(), context);
+                assertTrue(aligned.size() <= splits.size(), context);
+                long expectedStart = 0;
+                for (int i = 0; i < aligned.size(); i++) {
+                    Split split = aligned.get(i);
+                    assertEquals(i, split.index());
+                    assertTrue(split.lineAligned());
+                    assertEquals(expectedStart, split.start(), context);
+                    assertTrue(split.start() == 0 || isLineStart(data, (int) split.start()), context + ": " + split);
+                    expectedStart = split.end();
+                }
+                assertEquals(data.length, expectedStart);
+            }
+        }
+        // Probes shorter than the long lines cannot align every boundary
+        byte[] data = workload("\n").data();
+        List<Split> splits = SplitPlanner.plan(data.length, 10, config);
+        assertTrue(SplitPlanner.alignToLines(new InMemoryDistributedFS(data), splits, data.length, 64).join().size()
+            < splits.size());
+    }
+
+    @Test
+    void testJobWithBoundaryProbesReadsEveryByteOnce() {
+        WordCountConfig config = WordCountConfig.builder().splitSize(997).readBufferSize(256).boundaryProbeBytes(256).build();
+        for (String lineEnding : new String[] {"\n", "\r\n"}) {
+            WorkloadGenerator.Workload workload = workload(lineEnding);
+            LatencyDistributedFS dfs = new LatencyDistributedFS(workload.toDistributedFS(), 0);
+
+            try (DistributedWordCount processor = new DistributedWordCount(dfs, config)) {
+                WordCountResult result = processor.run(LineAnalytics.of(LineAggregates.lineCount()));
+                assertTrue(result.isComplete());
+                assertEquals(workload.expectedMaxWords(), result.maxWords());
+                assertEquals(workload.lines(), result.analytics().get(LineAggregates.LineCount.class).value());
+                assertEquals(workload.data().length, result.metrics().bytesRead());
+                // One stream per split plus the single vectored probe read
+                assertEquals(result.completedSplits().size() + 1, dfs.getDataCalls());
+            }
+        }
+    }
+
+    @Test
+    void testFailedProbeReadFallsBackToByteSplits() {
+        WorkloadGenerator.Workload workload = workload("\r\n");
+        DistributedFS backend = workload.toDistributedFS();
+        DistributedFS dfs = new DistributedFS() {
+            @Override
+            public long fileLength() {
+                return backend.fileLength();
+            }
+
+            @Override
+            public InputStream getData(long offset) {
+                return backend.getData(offset);
+            }
+
+            @Override
+            public CompletableFuture<List<byte[]>> getDataVectored(List<FileRange> ranges) {
+                return CompletableFuture.failedFuture(new RuntimeException("Simulated vectored read failure"));
+            }
+        };
+        WordCountConfig config = WordCountConfig.builder().splitSize(997).boundaryProbeBytes(256).build();
+        try (DistributedWordCount processor = new DistributedWordCount(dfs, config)) {
+            WordCountResult result = processor.run(LineAnalytics.none());
+            assertEquals(workload.expectedMaxWords(), result.maxWords());
+            assertFalse(result.completedSplits().get(0).lineAligned());
+        }
+    }
+
+    private static boolean isLineStart(byte[] data, int offset) {
+        byte previous = data[offset - 1];
+        return previous == '\n' || (previous == '\r' && data[offset] != '\n');
+    }
+}
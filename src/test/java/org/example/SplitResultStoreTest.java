@@ -0,0 +1,110 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for incremental jobs over append-only files
+ */
+public class SplitResultStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static final WordCountConfig CONFIG = WordCountConfig.builder().splitSize(1000).readBufferSize(256).build();
+
+    private static byte[] append(byte[] data, String tail) {
+        byte[] bytes = tail.getBytes(StandardCharsets.US_ASCII);
+        byte[] grown = Arrays.copyOf(data, data.length + bytes.length);
+        System.arraycopy(bytes, 0, grown, data.length, bytes.length);
+        return grown;
+    }
+
+    private static int fullScan(byte[] data) {
+        try (DistributedWordCount processor = new DistributedWordCount(new InMemoryDistributedFS(data), CONFIG)) {
+            return processor.findMaxWordsPerLine();
+        }
+    }
+
+    private static WordCountResult runIncremental(byte[] data, SplitResultStore store) {
+        try (DistributedWordCount processor = new DistributedWordCount(new InMemoryDistributedFS(data), CONFIG)) {
+            return processor.runIncremental(store);
+        }
+    }
+
+    @Test
+    void testRerunOnlyScansTheAppendedTail() {
+        byte[] data = WorkloadGenerator.builder()
+            .seed(17).sizeBytes(50_000).wordsPerLine(0, 12).trailingLineEnding(false)
+            .generate().data();
+        SplitResultStore store = new SplitResultStore();
+
+        WordCountResult first = runIncremental(data, store);
+        assertEquals(fullScan(data), first.maxWords());
+        long frontier = store.load().frontier();
+        assertTrue(frontier > 40_000 && frontier < data.length, "Frontier " + frontier);
+
+        // The unterminated last line grows into the widest line of the file
+        byte[] grown = append(data, " x x x x x x x x x x x x x x x x x x x x\nshort line\n");
+        WordCountResult second = runIncremental(grown, store);
+        assertTrue(second.isComplete());
+        assertEquals(fullScan(grown), second.maxWords());
+        assertEquals(grown.length, second.coveredBytes());
+        // Only the last split or so of the old file is read again
+        assertTrue(second.metrics().bytesRead() < 5_000, "Read " + second.metrics().bytesRead() + " bytes");
+
+        // An unterminated line is never checkpointed
+        byte[] unterminated = append(grown, "tail without a line break");
+        assertEquals(fullScan(unterminated), runIncremental(unterminated, store).maxWords());
+        assertTrue(store.load().frontier() < grown.length);
+    }
+
+    @Test
+    void testRewrittenFileIsScannedFromScratch() {
+        byte[] data = WorkloadGenerator.builder().seed(4).sizeBytes(20_000).wordsPerLine(0, 5).generate().data();
+        SplitResultStore store = new SplitResultStore();
+        runIncremental(data, store);
+
+        // Same length and tail, but the widest line is now near the start
+        byte[] rewritten = data.clone();
+        byte[] wide = "a b c d e f g h i j k l m n o p q r s t u v w x y z\n".getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(wide, 0, rewritten, 0, wide.length);
+        WordCountResult result = runIncremental(rewritten, store);
+        assertEquals(26, result.maxWords());
+        assertTrue(result.metrics().bytesRead() >= rewritten.length);
+
+        // A file that shrank cannot be an append either
+        byte[] truncated = Arrays.copyOf(data, 5_000);
+        assertEquals(fullScan(truncated), runIncremental(truncated, store).maxWords());
+    }
+
+    @Test
+    void testCheckpointSurvivesRestart() throws IOException {
+        byte[] data = WorkloadGenerator.builder().seed(9).sizeBytes(20_000).generate().data();
+        Path file = tempDir.resolve("splits.bin");
+        runIncremental(data, new SplitResultStore(file));
+        assertTrue(Files.exists(file));
+
+        SplitResultStore reopened = new SplitResultStore(file);
+        SplitResultStore.Checkpoint checkpoint = reopened.load();
+        assertNotNull(checkpoint);
+        assertEquals(fullScan(data), checkpoint.maxWords());
+
+        byte[] grown = append(data, "one two three\n");
+        WordCountResult result = runIncremental(grown, reopened);
+        assertEquals(fullScan(grown), result.maxWords());
+        assertTrue(result.metrics().bytesRead() < data.length / 2);
+
+        // A damaged store is ignored rather than trusted
+        Files.write(file, new byte[] {1, 2, 3});
+        assertNull(new SplitResultStore(file).load());
+        reopened.clear();
+        assertFalse(Files.exists(file));
+    }
+}
@@ -0,0 +1,235 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for SplitScheduler node assignment and speculative execution
+ */
+public class SplitSchedulerTest {
+
+    @Test
+    void testEachNodeRunsOneSplitAtATime() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        int[] running = new int[5];
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+
+        try (SplitScheduler scheduler = new SplitScheduler(4, WordCountConfig.defaults())) {
+            for (int i = 0; i < 40; i++) {
+                futures.add(scheduler.submit(new Split(i, i, i + 1), (nodeId, split) -> {
+                    synchronized (running) {
+                        assertEquals(0, running[nodeId], "Node " + nodeId + " is already busy");
+                        running[nodeId]++;
+                    }
+                    sleep(2);
+                    synchronized (running) {
+                        running[nodeId]--;
+                    }
+                    return nodeId;
+                }, executor));
+            }
+            for (CompletableFuture<Integer> future : futures) {
+                int nodeId = future.get();
+                assertTrue(nodeId >= 1 && nodeId <= 4);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testSpeculationBoundsTailLatency() {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            content.append(i == 0 ? "the widest line of all\n" : "x y\n");
+        }
+        // Service IDs 1 and 2 are five seconds slower than the rest
+        SlowRemoteExecutor<Integer> executor = new SlowRemoteExecutor<>(Set.of(1, 2), 5000);
+        WordCountConfig config = WordCountConfig.builder()
+            .splitSize(4)
+            .speculativeExecution(true)
+            .speculationQuantile(0.5)
+            .speculationMultiplier(2)
+            .build();
+        DistributedWordCount processor = new DistributedWordCount(
+            new InMemoryDistributedFS(content.toString()), config, executor);
+
+        long startTime = System.currentTimeMillis();
+        int result = processor.findMaxWordsPerLine();
+        long elapsed = System.currentTimeMillis() - startTime;
+
+        assertEquals(5, result);
+        assertTrue(elapsed < 2500, "Stragglers should be bypassed, took " + elapsed + " ms");
+        System.out.println("Job time with two 5 s straggler nodes: " + elapsed + " ms");
+    }
+
+    @Test
+    void testLosingAttemptIsCancelled() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        SlowRemoteExecutor<Integer> remote = new SlowRemoteExecutor<>(Set.of(1), 5000);
+        WordCountConfig config = WordCountConfig.builder()
+            .speculativeExecution(true)
+            .speculationQuantile(0.5)
+            .maxSpeculativeAttempts(1)
+            .build();
+
+        try (SplitScheduler scheduler = new SplitScheduler(4, config)) {
+            List<CompletableFuture<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(scheduler.submit(new Split(i, i, i + 1),
+                    (nodeId, split) -> remote.run(nodeId, () -> split.index()), executor));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                assertEquals(i, futures.get(i).get());
+            }
+            assertEquals(1, scheduler.speculativeAttempts());
+        } finally {
+            executor.shutdown();
+        }
+
+        // The straggling original on node 1 is interrupted once its duplicate wins
+        long deadline = System.currentTimeMillis() + 1000;
+        while (remote.cancelledRuns() == 0 && System.currentTimeMillis() < deadline) {
+            sleep(10);
+        }
+        assertEquals(1, remote.cancelledRuns());
+    }
+
+    @Test
+    void testDuplicateDoesNotQueueBehindPendingSplits() throws Exception {
+        // One dispatch thread is stuck on the first attempt at split 0, the other works through the queue
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        RemoteExecutor<Integer> remote = new RemoteExecutor<>();
+        AtomicBoolean straggling = new AtomicBoolean(true);
+        WordCountConfig config = WordCountConfig.builder()
+            .speculativeExecution(true)
+            .speculationQuantile(0.1)
+            .maxSpeculativeAttempts(1)
+            .build();
+
+        try (SplitScheduler scheduler = new SplitScheduler(4, config)) {
+            List<CompletableFuture<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                futures.add(scheduler.submit(new Split(i, i, i + 1), (nodeId, split) -> {
+                    if (split.index() == 0 && straggling.getAndSet(false)) {
+                        sleep(5000);
+                    }
+                    return remote.run(nodeId, () -> split.index());
+                }, executor));
+            }
+            assertEquals(0, futures.get(0).get());
+            // The duplicate ran on a spare node right away, with most of the queue still pending
+            assertFalse(futures.get(futures.size() - 1).isDone());
+            assertEquals(1, scheduler.speculativeAttempts());
+            for (int i = 0; i < futures.size(); i++) {
+                assertEquals(i, futures.get(i).get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testFailedSplitIsRetriedOnAnotherNode() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        FaultyRemoteExecutor<Integer> remote = new FaultyRemoteExecutor<>(Set.of(1), 0);
+        WordCountConfig config = WordCountConfig.builder().retryBackoffMillis(10).build();
+
+        try (SplitScheduler scheduler = new SplitScheduler(4, config)) {
+            // The only split lands on node 1 first, which always fails
+            CompletableFuture<Integer> future = scheduler.submit(new Split(0, 0, 1),
+                (nodeId, split) -> remote.run(nodeId, () -> nodeId), executor);
+
+            assertNotEquals(1, future.get());
+            assertEquals(1, scheduler.retries());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testConcurrentRetriesOnTwoNodesDoNotWaitForEachOther() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        WordCountConfig config = WordCountConfig.builder().retryBackoffMillis(0).build();
+
+        try {
+            // Both splits fail at once, so both retries look for a node while each one's
+            // failed node is free: neither may hold on to its node while waiting for the other
+            for (int round = 0; round < 200; round++) {
+                CyclicBarrier bothRunning = new CyclicBarrier(2);
+                try (SplitScheduler scheduler = new SplitScheduler(2, config)) {
+                    List<CompletableFuture<Integer>> futures = new ArrayList<>();
+                    for (int i = 0; i < 2; i++) {
+                        AtomicBoolean failed = new AtomicBoolean();
+                        futures.add(scheduler.submit(new Split(i, i, i + 1), (nodeId, split) -> {
+                            if (failed.compareAndSet(false, true)) {
+                                await(bothRunning);
+                                throw new IllegalStateException("first attempt on node " + nodeId);
+                            }
+                            return nodeId;
+                        }, executor));
+                    }
+                    for (CompletableFuture<Integer> future : futures) {
+                        assertTrue(future.get(5, TimeUnit.SECONDS) > 0, "round " + round);
+                    }
+                    assertEquals(2, scheduler.retries());
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testRetryBudgetIsShared() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        FaultyRemoteExecutor<Integer> remote = new FaultyRemoteExecutor<>(Set.of(1, 2, 3, 4), 0);
+        WordCountConfig config = WordCountConfig.builder()
+            .retryBackoffMillis(1)
+            .maxSplitRetries(10)
+            .retryBudget(5)
+            .build();
+
+        try (SplitScheduler scheduler = new SplitScheduler(4, config)) {
+            List<CompletableFuture<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                futures.add(scheduler.submit(new Split(i, i, i + 1),
+                    (nodeId, split) -> remote.run(nodeId, () -> nodeId), executor));
+            }
+            for (CompletableFuture<Integer> future : futures) {
+                assertThrows(ExecutionException.class, future::get);
+            }
+            // Three first attempts plus the five retries the budget allows
+            assertEquals(5, scheduler.retries());
+            assertEquals(8, remote.calls());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await(5, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
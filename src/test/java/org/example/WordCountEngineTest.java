@@ -0,0 +1,162 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the long-lived WordCountEngine
+ */
+public class WordCountEngineTest {
+
+    private static final int CONCURRENT_JOBS = 8;
+
+    @Test
+    void testInstanceCanRunManyJobs() {
+        try (DistributedWordCount processor = new DistributedWordCount(
+                new InMemoryDistributedFS("a b c\nd e\n"), WordCountConfig.defaults())) {
+            assertEquals(3, processor.findMaxWordsPerLine());
+            assertEquals(3, processor.findMaxWordsPerLine());
+        }
+    }
+
+    @Test
+    void testConcurrentJobsShareOneEngine() {
+        try (WordCountEngine engine = new WordCountEngine(WordCountConfig.defaults())) {
+            List<CompletableFuture<WordCountResult>> jobs = new ArrayList<>();
+            for (int i = 0; i < CONCURRENT_JOBS; i++) {
+                StringBuilder content = new StringBuilder();
+                for (int words = 0; words <= i; words++) {
+                    content.append("w ");
+                }
+                jobs.add(engine.submit(new InMemoryDistributedFS(content.append("\nx\n").toString())));
+            }
+            for (int i = 0; i < CONCURRENT_JOBS; i++) {
+                assertEquals(i + 1, jobs.get(i).join().maxWords());
+            }
+        }
+    }
+
+    @Test
+    void testCloseWaitsForRunningJobsAndRejectsNewOnes() {
+        WordCountEngine engine = new WordCountEngine(WordCountConfig.defaults());
+        DistributedFS dfs = new InMemoryDistributedFS("one two\n");
+        CompletableFuture<WordCountResult> running = engine.submit(dfs);
+
+        engine.close();
+
+        assertTrue(running.isDone(), "close() should let submitted jobs finish");
+        assertEquals(2, running.join().maxWords());
+        assertEquals(0, engine.activeJobs());
+        assertThrows(IllegalStateException.class, () -> engine.submit(dfs));
+    }
+
+    @Test
+    void testSharedEngineAgainstInstancePerJob() throws InterruptedException {
+        // 25 one-line splits per job, over a DFS that adds 100 ms to every call
+        StringBuilder content = new StringBuilder();
+        for (int line = 0; line < 25; line++) {
+            content.append("a b c\n");
+        }
+        DistributedFS dfs = new LatencyDistributedFS(new InMemoryDistributedFS(content.toString()), 100);
+        WordCountConfig config = WordCountConfig.builder().splitSize(6).build();
+
+        // Today's pattern: a new processor (and thread pool) for every query. Each one
+        // believes it owns every node, so the jobs queue behind each other on the same nodes
+        ExclusiveRemoteExecutor<Integer> perJobNodes = new ExclusiveRemoteExecutor<>();
+        long startTime = System.currentTimeMillis();
+        Thread[] threads = new Thread[CONCURRENT_JOBS];
+        int[] results = new int[CONCURRENT_JOBS];
+        for (int i = 0; i < CONCURRENT_JOBS; i++) {
+            final int index = i;
+            threads[i] = new Thread(() -> {
+                try (DistributedWordCount p = new DistributedWordCount(dfs, config, perJobNodes)) {
+                    results[index] = p.findMaxWordsPerLine();
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long instancePerJobMillis = System.currentTimeMillis() - startTime;
+        for (int result : results) {
+            assertEquals(3, result);
+        }
+
+        // One engine answering the same queries with the default 100 dispatch threads
+        ExclusiveRemoteExecutor<Integer> sharedNodes = new ExclusiveRemoteExecutor<>();
+        long sharedEngineMillis = timeSharedEngine(config, sharedNodes, dfs, results);
+
+        System.out.println(CONCURRENT_JOBS + " concurrent jobs, instance per job: " + instancePerJobMillis + " ms, "
+            + perJobNodes.collisions() + " calls to a busy node");
+        System.out.println(CONCURRENT_JOBS + " concurrent jobs, shared engine: " + sharedEngineMillis + " ms, "
+            + sharedNodes.collisions() + " calls to a busy node");
+        assertEquals(0, sharedNodes.collisions(), "Jobs on one engine never run on the same node at once");
+        assertTrue(sharedEngineMillis <= instancePerJobMillis,
+            "Shared engine took " + sharedEngineMillis + " ms, instance per job " + instancePerJobMillis + " ms");
+    }
+
+    @Test
+    void testJobsAreInstrumentedAndExportedViaJmx() throws Exception {
+        WorkloadGenerator.Workload workload = WorkloadGenerator.builder().seed(3).sizeBytes(64 * 1024).generate();
+        DistributedFS dfs = new LatencyDistributedFS(workload.toDistributedFS(), 20);
+        WordCountConfig config = WordCountConfig.builder().splitSize(4096).build();
+
+        ObjectName name;
+        try (WordCountEngine engine = new WordCountEngine(config,
+                new SimulatedRemoteExecutor<>(LatencyModel.fixed(30), FailureModel.never()))) {
+            WordCountResult result = engine.run(dfs);
+            JobMetrics metrics = result.metrics();
+
+            assertEquals(workload.expectedMaxWords(), result.maxWords());
+            assertEquals(result.completedSplits().size(), metrics.partitions().size());
+            // Every byte is read at least once; boundary lines are read by both neighbours
+            assertTrue(metrics.bytesRead() >= workload.data().length, metrics.toString());
+            assertEquals(workload.lines(), metrics.lines());
+            for (PartitionMetrics partition : metrics.partitions()) {
+                assertTrue(partition.serviceId() >= 1 && partition.serviceId() <= WordCountEngine.NUM_NODES);
+                assertEquals(1, partition.dfsCalls());
+                assertTrue(partition.remoteStartupNanos() >= TimeUnit.MILLISECONDS.toNanos(30), partition.toString());
+                assertTrue(partition.dfsLatencyNanos() >= TimeUnit.MILLISECONDS.toNanos(20), partition.toString());
+                assertTrue(partition.totalNanos() >= partition.remoteStartupNanos() + partition.dfsLatencyNanos());
+            }
+            assertTrue(metrics.dfsLatency().p50() >= TimeUnit.MILLISECONDS.toNanos(20));
+            assertTrue(metrics.partitionTime().max() >= metrics.partitionTime().p99());
+
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            name = engine.metrics().objectName();
+            assertNotNull(name);
+            assertEquals(1L, server.getAttribute(name, "JobsCompleted"));
+            assertEquals((long) metrics.partitions().size(), server.getAttribute(name, "PartitionsCompleted"));
+            assertEquals(metrics.bytesRead(), server.getAttribute(name, "BytesRead"));
+            assertTrue((Long) server.getAttribute(name, "LastJobDfsLatencyMillisP99") >= 20);
+            assertNotNull(server.getAttribute(name, "NodeBusyMillis"));
+        }
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name), "close() should unregister the MBean");
+    }
+
+    private static long timeSharedEngine(WordCountConfig config, RemoteExecutor<Integer> remoteExecutor,
+                                         DistributedFS dfs, int[] expected) {
+        try (WordCountEngine engine = new WordCountEngine(config, remoteExecutor)) {
+            // Warm up once: a long-lived engine has its threads already running
+            engine.run(dfs);
+
+            long startTime = System.currentTimeMillis();
+            List<CompletableFuture<WordCountResult>> jobs = new ArrayList<>();
+            for (int i = 0; i < expected.length; i++) {
+                jobs.add(engine.submit(dfs));
+            }
+            for (int i = 0; i < expected.length; i++) {
+                assertEquals(expected[i], jobs.get(i).join().maxWords());
+            }
+            return System.currentTimeMillis() - startTime;
+        }
+    }
+}
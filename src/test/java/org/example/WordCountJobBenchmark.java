@@ -0,0 +1,85 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end findMaxWordsPerLine benchmarks with configurable DFS and executor latency.
+ *
+ * With both latencies at zero this measures the engine's own overhead
+ * (planning, scheduling, dispatch and scanning); with latency it shows how well
+ * the engine hides round-trips. One engine is shared across all invocations of
+ * a trial, as in production. The baseline runs the original word count from
+ * {@link OriginalWordCount} on the same input, DFS and executor.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WordCountJobBenchmark {
+
+    @Param({"8388608"})
+    public int inputSize;
+
+    @Param({"0", "10"})
+    public long dfsLatencyMillis;
+
+    @Param({"0", "100"})
+    public long executorLatencyMillis;
+
+    @Param({"FIXED_POOL"})
+    public String dispatchMode;
+
+    @Param({"0"})
+    public int readAheadDepth;
+
+    private DistributedFS dfs;
+    private RemoteExecutor<Integer> executor;
+    private DistributedWordCount processor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        byte[] input = WorkloadGenerator.builder().seed(42).sizeBytes(inputSize).lineShape("SHORT").generate().data();
+        dfs = new LatencyDistributedFS(new InMemoryDistributedFS(input), dfsLatencyMillis);
+        WordCountConfig config = WordCountConfig.builder()
+            .dispatchMode(DispatchMode.valueOf(dispatchMode))
+            .readAheadDepth(readAheadDepth)
+            .readAheadBlockSize(256 * 1024)
+            .build();
+        executor = new SimulatedRemoteExecutor<>(LatencyModel.fixed(executorLatencyMillis), FailureModel.never());
+        processor = new DistributedWordCount(dfs, config, executor);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        processor.close();
+    }
+
+    @Benchmark
+    public int findMaxWordsPerLine() {
+        return processor.findMaxWordsPerLine();
+    }
+
+    /**
+     * Baseline: the original word count, which takes a new thread pool per run and shuts it down after.
+     * It ignores the engine parameters.
+     */
+    @Benchmark
+    public int originalFindMaxWordsPerLine() {
+        return new OriginalWordCount(dfs, executor).findMaxWordsPerLine();
+    }
+}
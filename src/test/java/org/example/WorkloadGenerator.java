@@ -0,0 +1,253 @@
+package org.example;
+
+import java.io.ByteArrayOutputStream;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic generator of large text inputs with a precomputed answer.
+ *
+ * The same seed and settings always produce the same bytes. Words per line
+ * are drawn uniformly or from a lognormal distribution, and a fraction of the
+ * lines can be made extremely long so that they span many partitions. The
+ * maximum words per line is tracked while generating, independently of the
+ * scanner under test. The benchmarks take all their inputs from here, by
+ * {@link #lineShape named line shape}.
+ */
+final class WorkloadGenerator {
+
+    /**
+     * Generated input together with its expected result
+     */
+    static final class Workload {
+        private final byte[] data;
+        private final int expectedMaxWords;
+        private final int lines;
+        private final long seed;
+
+        private Workload(byte[] data, int expectedMaxWords, int lines, long seed) {
+            this.data = data;
+            this.expectedMaxWords = expectedMaxWords;
+            this.lines = lines;
+            this.seed = seed;
+        }
+
+        byte[] data() {
+            return data;
+        }
+
+        int expectedMaxWords() {
+            return expectedMaxWords;
+        }
+
+        int lines() {
+            return lines;
+        }
+
+        DistributedFS toDistributedFS() {
+            return new InMemoryDistributedFS(data);
+        }
+
+        /**
+         * {@code count} offsets into the data drawn from the workload's seed, such as split
+         * boundaries, which usually fall mid-line.
+         */
+        int[] offsets(int count) {
+            SplittableRandom random = new SplittableRandom(seed);
+            int[] offsets = new int[count];
+            for (int i = 0; i < count; i++) {
+                offsets[i] = random.nextInt(Math.max(1, data.length));
+            }
+            return offsets;
+        }
+    }
+
+    private long seed = 1;
+    private int sizeBytes = 1024 * 1024;
+    private int minWords = 0;
+    private int maxWords = 12;
+    private double logNormalSigma;          // 0 = uniform between minWords and maxWords
+    private int minWordLength = 1;
+    private int maxWordLength = 10;
+    private double longLineProbability;
+    private int longLineWords;
+    private boolean mixedWhitespace;
+    private String lineEnding = "\n";
+    private boolean trailingLineEnding = true;
+
+    static WorkloadGenerator builder() {
+        return new WorkloadGenerator();
+    }
+
+    WorkloadGenerator seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Approximate size of the output; generation stops at the first line end past it.
+     */
+    WorkloadGenerator sizeBytes(int sizeBytes) {
+        this.sizeBytes = sizeBytes;
+        return this;
+    }
+
+    /**
+     * Words per line drawn uniformly from {@code [min, max]}.
+     */
+    WorkloadGenerator wordsPerLine(int min, int max) {
+        if (min < 0 || max < min) {
+            throw new IllegalArgumentException("Invalid words per line range: " + min + ".." + max);
+        }
+        this.minWords = min;
+        this.maxWords = max;
+        this.logNormalSigma = 0;
+        return this;
+    }
+
+    /**
+     * Words per line drawn from a lognormal distribution with the given median, capped at {@code max}.
+     */
+    WorkloadGenerator wordsPerLineLogNormal(int median, double sigma, int max) {
+        if (median < 1 || sigma <= 0 || max < median) {
+            throw new IllegalArgumentException("Invalid lognormal words per line: " + median + ", " + sigma + ", " + max);
+        }
+        this.minWords = median;
+        this.maxWords = max;
+        this.logNormalSigma = sigma;
+        return this;
+    }
+
+    /**
+     * Words per line of a named benchmark shape: SHORT has 1-8 words per line, LONG 50-400,
+     * and SKEWED is short with one line in a thousand of 3000 words.
+     */
+    WorkloadGenerator lineShape(String shape) {
+        switch (shape) {
+            case "SHORT":
+                return wordsPerLine(1, 8).longLines(0, 0);
+            case "LONG":
+                return wordsPerLine(50, 400).longLines(0, 0);
+            case "SKEWED":
+                return wordsPerLine(1, 8).longLines(0.001, 3000);
+            default:
+                throw new IllegalArgumentException("Unknown line shape: " + shape);
+        }
+    }
+
+    WorkloadGenerator wordLength(int min, int max) {
+        if (min < 1 || max < min) {
+            throw new IllegalArgumentException("Invalid word length range: " + min + ".." + max);
+        }
+        this.minWordLength = min;
+        this.maxWordLength = max;
+        return this;
+    }
+
+    /**
+     * Makes a fraction of the lines {@code words} words long, typically long enough to span many partitions.
+     */
+    WorkloadGenerator longLines(double probability, int words) {
+        this.longLineProbability = probability;
+        this.longLineWords = words;
+        return this;
+    }
+
+    /**
+     * Separates words with runs of spaces, tabs, vertical tabs and form feeds, and adds leading and trailing blanks.
+     */
+    WorkloadGenerator mixedWhitespace(boolean mixedWhitespace) {
+        this.mixedWhitespace = mixedWhitespace;
+        return this;
+    }
+
+    /**
+     * Line terminator: "\n", "\r\n" or "\r".
+     */
+    WorkloadGenerator lineEnding(String lineEnding) {
+        this.lineEnding = lineEnding;
+        return this;
+    }
+
+    /**
+     * Whether the last line is terminated; without it the file ends mid-line.
+     */
+    WorkloadGenerator trailingLineEnding(boolean trailingLineEnding) {
+        this.trailingLineEnding = trailingLineEnding;
+        return this;
+    }
+
+    Workload generate() {
+        SplittableRandom random = new SplittableRandom(seed);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(sizeBytes + 1024);
+        int expected = 0;
+        int lines = 0;
+
+        while (out.size() < sizeBytes) {
+            int words = longLineProbability > 0 && random.nextDouble() < longLineProbability
+                ? longLineWords
+                : wordsPerLine(random);
+            expected = Math.max(expected, words);
+            lines++;
+
+            if (mixedWhitespace && random.nextInt(4) == 0) {
+                appendBlanks(out, random);
+            }
+            for (int w = 0; w < words; w++) {
+                if (w > 0) {
+                    if (mixedWhitespace) {
+                        appendBlanks(out, random);
+                    } else {
+                        out.write(' ');
+                    }
+                }
+                int length = minWordLength + random.nextInt(maxWordLength - minWordLength + 1);
+                for (int c = 0; c < length; c++) {
+                    out.write(wordChar(random));
+                }
+            }
+            if (mixedWhitespace && random.nextInt(4) == 0) {
+                appendBlanks(out, random);
+            }
+            if (out.size() < sizeBytes || trailingLineEnding) {
+                for (int i = 0; i < lineEnding.length(); i++) {
+                    out.write(lineEnding.charAt(i));
+                }
+            }
+        }
+        return new Workload(out.toByteArray(), expected, lines, seed);
+    }
+
+    private int wordsPerLine(SplittableRandom random) {
+        if (logNormalSigma == 0) {
+            return minWords + random.nextInt(maxWords - minWords + 1);
+        }
+        double u1 = 1.0 - random.nextDouble();
+        double u2 = random.nextDouble();
+        double gaussian = Math.sqrt(-2 * Math.log(u1)) * Math.cos(2 * Math.PI * u2);
+        return (int) Math.min(maxWords, Math.round(minWords * Math.exp(logNormalSigma * gaussian)));
+    }
+
+    private static void appendBlanks(ByteArrayOutputStream out, SplittableRandom random) {
+        int count = 1 + random.nextInt(3);
+        for (int i = 0; i < count; i++) {
+            switch (random.nextInt(6)) {
+                case 0:
+                    out.write('\t');
+                    break;
+                case 1:
+                    out.write('\u000B');
+                    break;
+                case 2:
+                    out.write('\f');
+                    break;
+                default:
+                    out.write(' ');
+            }
+        }
+    }
+
+    private static int wordChar(SplittableRandom random) {
+        // Printable, non-blank ASCII including punctuation
+        return '!' + random.nextInt('~' - '!' + 1);
+    }
+}
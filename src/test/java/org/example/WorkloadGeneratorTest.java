@@ -0,0 +1,97 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the synthetic workload generator and the latency and failure harness built on it
+ */
+public class WorkloadGeneratorTest {
+
+    // Reference answer computed the way the original line-by-line implementation did
+    private static int referenceMaxWords(byte[] data) {
+        int max = 0;
+        for (String line : new String(data, StandardCharsets.US_ASCII).split("\r\n|\r|\n")) {
+            String trimmed = line.trim();
+            if (!trimmed.isEmpty()) {
+                max = Math.max(max, trimmed.split("\\s+").length);
+            }
+        }
+        return max;
+    }
+
+    @Test
+    void testSameSeedGeneratesSameInput() {
+        WorkloadGenerator.Workload a = WorkloadGenerator.builder().seed(7).sizeBytes(50_000).mixedWhitespace(true).generate();
+        WorkloadGenerator.Workload b = WorkloadGenerator.builder().seed(7).sizeBytes(50_000).mixedWhitespace(true).generate();
+        WorkloadGenerator.Workload c = WorkloadGenerator.builder().seed(8).sizeBytes(50_000).mixedWhitespace(true).generate();
+
+        assertArrayEquals(a.data(), b.data());
+        assertEquals(a.expectedMaxWords(), b.expectedMaxWords());
+        assertFalse(Arrays.equals(a.data(), c.data()));
+    }
+
+    @Test
+    void testExpectedAnswerMatchesReference() {
+        WorkloadGenerator[] generators = {
+            WorkloadGenerator.builder().seed(1).sizeBytes(100_000),
+            WorkloadGenerator.builder().seed(2).sizeBytes(100_000).mixedWhitespace(true).lineEnding("\r\n"),
+            WorkloadGenerator.builder().seed(3).sizeBytes(100_000).lineEnding("\r").trailingLineEnding(false),
+            WorkloadGenerator.builder().seed(4).sizeBytes(100_000).wordsPerLineLogNormal(6, 1.0, 500),
+            WorkloadGenerator.builder().seed(5).sizeBytes(100_000).wordsPerLine(0, 3).longLines(0.01, 700),
+        };
+        for (WorkloadGenerator generator : generators) {
+            WorkloadGenerator.Workload workload = generator.generate();
+            assertTrue(workload.data().length >= 100_000);
+            assertEquals(referenceMaxWords(workload.data()), workload.expectedMaxWords());
+
+            LineScanner scanner = new LineScanner();
+            scanner.scan(workload.data(), 0, workload.data().length);
+            scanner.finish();
+            assertEquals(workload.expectedMaxWords(), scanner.maxWords());
+        }
+    }
+
+    @Test
+    void testLongLinesSpanningManyPartitions() {
+        // Lines of several thousand words are much longer than a split
+        WorkloadGenerator.Workload workload = WorkloadGenerator.builder()
+            .seed(11).sizeBytes(300_000).wordsPerLine(0, 20).longLines(0.02, 5000).lineEnding("\r\n")
+            .generate();
+        WordCountConfig config = WordCountConfig.builder().splitSize(4096).readBufferSize(512).build();
+
+        try (DistributedWordCount processor = new DistributedWordCount(workload.toDistributedFS(), config)) {
+            assertEquals(5000, workload.expectedMaxWords());
+            assertEquals(workload.expectedMaxWords(), processor.findMaxWordsPerLine());
+        }
+    }
+
+    @Test
+    void testCorrectUnderHeavyTailedLatencyAndFailures() {
+        WorkloadGenerator.Workload workload = WorkloadGenerator.builder()
+            .seed(13).sizeBytes(512 * 1024).wordsPerLineLogNormal(8, 0.7, 300).mixedWhitespace(true)
+            .generate();
+        SimulatedDistributedFS dfs = new SimulatedDistributedFS(workload.toDistributedFS(),
+            LatencyModel.logNormal(2, 0.5, 1), FailureModel.random(0.05, 2));
+        SimulatedRemoteExecutor<Integer> executor = new SimulatedRemoteExecutor<>(
+            LatencyModel.logNormal(5, 0.8, 3).withStragglers(0.05, 300, 4), FailureModel.random(0.05, 5));
+        WordCountConfig config = WordCountConfig.builder()
+            .splitSize(8 * 1024)
+            .speculativeExecution(true)
+            .retryBackoffMillis(5)
+            .build();
+
+        WordCountResult result;
+        try (DistributedWordCount processor = new DistributedWordCount(dfs, config, executor)) {
+            result = processor.run();
+        }
+        System.out.println(result + ", executor calls: " + executor.calls() + " (" + executor.failedCalls()
+            + " failed), DFS failures: " + dfs.failedCalls());
+
+        assertTrue(result.isComplete(), "All splits should survive occasional failures: " + result);
+        assertEquals(workload.expectedMaxWords(), result.maxWords());
+        assertTrue(executor.failedCalls() + dfs.failedCalls() > 0, "The failure models should have injected failures");
+    }
+}